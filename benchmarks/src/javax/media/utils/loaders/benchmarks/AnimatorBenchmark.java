@@ -0,0 +1,126 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.images.AnimationClock;
+import javax.media.utils.loaders.images.ImageAnimator;
+import javax.media.utils.loaders.images.ImageHolder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of advancing every animator by one frame, for each way an ImageAnimator can be driven:
+ * by its own timer, by a shared AnimationClock, and by the game loop calling update.
+ * Every invocation advances all animators, so the score divided by the animator count is the cost per animator.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class AnimatorBenchmark {
+
+    /**
+     * Duration of each frame in ms
+     */
+    private static final long TICKRATE = 16;
+
+    /**
+     * Number of running animators
+     */
+    @Param ( { "1", "100", "10000" } )
+    public int animators;
+
+    /**
+     * Number of frames of every animation
+     */
+    @Param ( { "8" } )
+    public int frames;
+
+    private ImageAnimator[] timed;
+    private ImageAnimator[] clocked;
+    private ImageAnimator[] pulled;
+    private AnimationClock clock;
+    private long now;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        ImageHolder holder = new ImageHolder ( );
+        for ( int i = 0; i < this.frames; i++ )
+            holder.addImage ( "frame" + i + ".png", new BufferedImage ( 1, 1, BufferedImage.TYPE_INT_ARGB ) );
+        holder.seal ( );
+
+        // The clock is only ticked by the benchmark; its own thread would tick once a day
+        this.clock = new AnimationClock ( TimeUnit.DAYS.toMillis ( 1 ) );
+
+        this.timed = new ImageAnimator[this.animators];
+        this.clocked = new ImageAnimator[this.animators];
+        this.pulled = new ImageAnimator[this.animators];
+        for ( int i = 0; i < this.animators; i++ ) {
+            // Timers are never started; the benchmark delivers their events
+            this.timed[i] = new ImageAnimator ( holder, TICKRATE );
+            this.timed[i].setRepeating ( true );
+
+            this.clocked[i] = new ImageAnimator ( holder, TICKRATE, this.clock );
+            this.clocked[i].setRepeating ( true );
+            this.clocked[i].start ( );
+
+            this.pulled[i] = new ImageAnimator ( holder, TICKRATE, null );
+            this.pulled[i].setRepeating ( true );
+            this.pulled[i].start ( );
+        }
+        this.now = System.nanoTime ( );
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) {
+        for ( int i = 0; i < this.animators; i++ ) {
+            this.timed[i].destroy ( );
+            this.clocked[i].destroy ( );
+            this.pulled[i].destroy ( );
+        }
+        this.clock.shutdown ( );
+    }
+
+    /**
+     * Delivers one timer event to every animator
+     */
+    @Benchmark
+    public void timerTick ( ) {
+        for ( ImageAnimator animator : this.timed )
+            animator.actionPerformed ( null );
+    }
+
+    /**
+     * Ticks the shared clock one frame later, so every animator is due
+     */
+    @Benchmark
+    public void clockTick ( ) {
+        this.now += TimeUnit.MILLISECONDS.toNanos ( TICKRATE );
+        this.clock.tick ( this.now );
+    }
+
+    /**
+     * Updates every animator to a time one frame later
+     */
+    @Benchmark
+    public void update ( ) {
+        this.now += TimeUnit.MILLISECONDS.toNanos ( TICKRATE );
+        for ( ImageAnimator animator : this.pulled )
+            animator.update ( this.now );
+    }
+}
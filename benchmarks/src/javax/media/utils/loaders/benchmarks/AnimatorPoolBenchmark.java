@@ -0,0 +1,124 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.images.AnimatorPool;
+import javax.media.utils.loaders.images.ImageAnimator;
+import javax.media.utils.loaders.images.ImageHolder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares advancing N sprites by one frame in an AnimatorPool against N individual ImageAnimators
+ * driven by update, and the same followed by resolving the current image of every sprite, as a renderer does.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class AnimatorPoolBenchmark {
+
+    /**
+     * Duration of each frame in ms
+     */
+    private static final long TICKRATE = 16;
+
+    /**
+     * Number of distinct holders the sprites are spread over
+     */
+    private static final int HOLDERS = 16;
+
+    /**
+     * Number of animated sprites
+     */
+    @Param ( { "100", "10000", "100000" } )
+    public int sprites;
+
+    private ImageAnimator[] animators;
+    private AnimatorPool pool;
+    private int[] handles;
+    private ForkJoinPool forkJoinPool;
+    private long now;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        ImageHolder[] holders = new ImageHolder[HOLDERS];
+        for ( int h = 0; h < HOLDERS; h++ ) {
+            holders[h] = new ImageHolder ( );
+            for ( int i = 0; i < 4 + h; i++ )
+                holders[h].addImage ( "frame" + i + ".png", new BufferedImage ( 1, 1, BufferedImage.TYPE_INT_ARGB ) );
+            holders[h].seal ( );
+        }
+
+        this.animators = new ImageAnimator[this.sprites];
+        this.pool = new AnimatorPool ( this.sprites );
+        this.handles = new int[this.sprites];
+        for ( int i = 0; i < this.sprites; i++ ) {
+            ImageHolder holder = holders[i % HOLDERS];
+            this.animators[i] = new ImageAnimator ( holder, TICKRATE, null );
+            this.animators[i].setRepeating ( true );
+            this.animators[i].start ( );
+
+            this.handles[i] = this.pool.add ( holder, TICKRATE );
+            this.pool.setRepeating ( this.handles[i], true );
+            this.pool.start ( this.handles[i] );
+        }
+        this.forkJoinPool = new ForkJoinPool ( );
+        this.now = System.nanoTime ( );
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) {
+        for ( ImageAnimator animator : this.animators )
+            animator.destroy ( );
+        this.forkJoinPool.shutdown ( );
+    }
+
+    @Benchmark
+    public void animators ( ) {
+        this.now += TimeUnit.MILLISECONDS.toNanos ( TICKRATE );
+        for ( ImageAnimator animator : this.animators )
+            animator.update ( this.now );
+    }
+
+    @Benchmark
+    public void pool ( ) {
+        this.pool.update ( TimeUnit.MILLISECONDS.toNanos ( TICKRATE ) );
+    }
+
+    @Benchmark
+    public void poolParallel ( ) {
+        this.pool.update ( TimeUnit.MILLISECONDS.toNanos ( TICKRATE ), this.forkJoinPool );
+    }
+
+    @Benchmark
+    public void animatorsAndImages ( Blackhole blackhole ) {
+        this.animators ( );
+        for ( ImageAnimator animator : this.animators )
+            blackhole.consume ( animator.getCurrentImage ( ) );
+    }
+
+    @Benchmark
+    public void poolAndImages ( Blackhole blackhole ) {
+        this.pool ( );
+        for ( int handle : this.handles )
+            blackhole.consume ( this.pool.getCurrentImage ( handle ) );
+    }
+}
@@ -0,0 +1,116 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.images.ImageLoader;
+import javax.media.utils.loaders.images.PaletteCompactor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of drawing the frames of a holder in full color and repacked into indexed images,
+ * and of repacking them, for frames using more or fewer colors.
+ * The heap taken by the frames before and after repacking is printed once per trial.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class CompactionBenchmark {
+
+    /**
+     * Number of frames of the holder
+     */
+    private static final int FRAMES = 16;
+
+    /**
+     * Number of distinct opaque colors used by all frames together, besides transparent
+     * Up to 255 colors the frames share one palette; above that, frames that use few enough colors get their own
+     */
+    @Param ( { "16", "255", "1024" } )
+    public int colors;
+
+    /**
+     * Width and height of every frame
+     */
+    @Param ( { "64" } )
+    public int size;
+
+    private BufferedImage[] full;
+    private BufferedImage[] compacted;
+    private BufferedImage backBuffer;
+    private Graphics2D gc;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        Random random = new Random ( 0 );
+        int[] palette = new int[this.colors];
+        for ( int i = 0; i < palette.length; i++ )
+            palette[i] = 0xFF000000 | random.nextInt ( 0x1000000 );
+
+        // Every frame uses a run of the palette, on a transparent border
+        this.full = new BufferedImage[FRAMES];
+        int border = this.size / 8;
+        for ( int f = 0; f < FRAMES; f++ ) {
+            this.full[f] = new BufferedImage ( this.size, this.size, BufferedImage.TYPE_INT_ARGB );
+            for ( int y = border; y < this.size - border; y++ )
+                for ( int x = border; x < this.size - border; x++ )
+                    this.full[f].setRGB ( x, y, palette[( f * palette.length / FRAMES + x * 7 + y * 13 ) % palette.length] );
+        }
+        this.compacted = PaletteCompactor.compact ( this.full, PaletteCompactor.MAX_COLORS );
+
+        long before = 0;
+        long after = 0;
+        int indexed = 0;
+        for ( int f = 0; f < FRAMES; f++ ) {
+            before += ImageLoader.getImageSize ( this.full[f] );
+            after += ImageLoader.getImageSize ( this.compacted[f] );
+            if ( this.compacted[f] != this.full[f] )
+                indexed++;
+        }
+        System.out.println ( "Heap of " + FRAMES + " frames of " + this.colors + " colors: " + before + " bytes in full color, "
+                + after + " bytes with " + indexed + " indexed" );
+
+        this.backBuffer = new BufferedImage ( 640, 480, BufferedImage.TYPE_INT_RGB );
+        this.gc = this.backBuffer.createGraphics ( );
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) {
+        this.gc.dispose ( );
+    }
+
+    @Benchmark
+    public void drawFull ( ) {
+        for ( int f = 0; f < FRAMES; f++ )
+            this.gc.drawImage ( this.full[f], f * 16, f * 8, null );
+    }
+
+    @Benchmark
+    public void drawCompacted ( ) {
+        for ( int f = 0; f < FRAMES; f++ )
+            this.gc.drawImage ( this.compacted[f], f * 16, f * 8, null );
+    }
+
+    @Benchmark
+    public BufferedImage[] compact ( ) {
+        return PaletteCompactor.compact ( this.full, PaletteCompactor.MAX_COLORS );
+    }
+}
@@ -0,0 +1,85 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.media.utils.loaders.images.ImageIODecoder;
+import javax.media.utils.loaders.images.RawImageDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-frame cost of decoding a small sprite: as a PNG through ImageIO.read, as a PNG through
+ * an ImageIODecoder reusing its reader, and as raw pixels through a RawImageDecoder.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class DecoderBenchmark {
+
+    /**
+     * Width and height of the sprite
+     */
+    @Param ( { "16", "64" } )
+    public int size;
+
+    private byte[] png;
+    private ByteBuffer pngBuffer;
+    private ByteBuffer rawBuffer;
+    private ImageIODecoder imageIODecoder;
+    private RawImageDecoder rawDecoder;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) throws IOException {
+        BufferedImage sprite = Fixtures.sprite ( this.size, this.size, 16, 0 );
+        this.png = Fixtures.png ( sprite );
+        this.pngBuffer = ByteBuffer.wrap ( this.png );
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream ( );
+        RawImageDecoder.write ( sprite, raw );
+        this.rawBuffer = ByteBuffer.wrap ( raw.toByteArray ( ) );
+
+        this.imageIODecoder = new ImageIODecoder ( );
+        this.rawDecoder = new RawImageDecoder ( );
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) {
+        this.imageIODecoder.close ( );
+    }
+
+    @Benchmark
+    public BufferedImage imageIORead ( ) throws IOException {
+        return ImageIO.read ( new ByteArrayInputStream ( this.png ) );
+    }
+
+    @Benchmark
+    public BufferedImage imageIODecoder ( ) throws IOException {
+        return this.imageIODecoder.decode ( this.pngBuffer );
+    }
+
+    @Benchmark
+    public BufferedImage rawDecoder ( ) {
+        return this.rawDecoder.decode ( this.rawBuffer );
+    }
+}
@@ -0,0 +1,135 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.media.utils.loaders.EventDispatcher;
+import javax.media.utils.loaders.ExecutorEventDispatcher;
+import javax.media.utils.loaders.InlineEventDispatcher;
+import javax.media.utils.loaders.QueuedEventDispatcher;
+import javax.media.utils.loaders.images.ImageAnimator;
+import javax.media.utils.loaders.images.ImageHolder;
+import javax.media.utils.loaders.images.ImageWatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the time one frame of the game loop spends on animators whose every tick notifies a watcher,
+ * for each event dispatcher and for cheap and slow watchers.
+ *
+ * With the inline dispatcher, watchers run inside the ticks. With the queued dispatcher, the loop ticks
+ * all animators and then drains the queue, as a game loop would. With the executor dispatcher, watchers
+ * run on another thread; the loop only waits when that thread falls more than a few frames behind, so
+ * the queue cannot grow without bound.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class DispatcherBenchmark {
+
+    /**
+     * Number of animators ticked every frame
+     */
+    private static final int ANIMATORS = 1000;
+
+    /**
+     * Number of frames the executor may fall behind before the loop waits
+     */
+    private static final int FRAMES_BEHIND = 4;
+
+    @Param ( { "inline", "queued", "executor" } )
+    public String dispatcher;
+
+    /**
+     * Work done by the watcher per event, in Blackhole.consumeCPU tokens
+     */
+    @Param ( { "0", "500" } )
+    public long watcherCost;
+
+    private ImageAnimator[] animators;
+    private QueuedEventDispatcher queue;
+    private ExecutorService executor;
+    private AtomicLong delivered = new AtomicLong ( );
+    private long dispatched = 0;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        // A single image, so every tick reaches the end of the sequence and loops
+        ImageHolder holder = new ImageHolder ( );
+        holder.addImage ( "frame.png", new BufferedImage ( 1, 1, BufferedImage.TYPE_INT_ARGB ) );
+        holder.seal ( );
+
+        EventDispatcher events;
+        if ( "queued".equals ( this.dispatcher ) ) {
+            this.queue = new QueuedEventDispatcher ( ANIMATORS );
+            events = this.queue;
+        } else if ( "executor".equals ( this.dispatcher ) ) {
+            this.executor = Executors.newSingleThreadExecutor ( );
+            events = new ExecutorEventDispatcher ( this.executor );
+        } else
+            events = InlineEventDispatcher.INSTANCE;
+
+        final long cost = this.watcherCost;
+        ImageWatcher watcher = new ImageWatcher ( ) {
+            @Override
+            public void sequenceEnded ( ImageAnimator animator ) {
+            }
+
+            @Override
+            public void sequenceLooped ( ImageAnimator animator ) {
+                Blackhole.consumeCPU ( cost );
+                DispatcherBenchmark.this.delivered.incrementAndGet ( );
+            }
+        };
+
+        this.animators = new ImageAnimator[ANIMATORS];
+        for ( int i = 0; i < ANIMATORS; i++ ) {
+            // Timers are never started; the benchmark delivers their events
+            this.animators[i] = new ImageAnimator ( holder, 16 );
+            this.animators[i].setRepeating ( true );
+            this.animators[i].setEventDispatcher ( events );
+            this.animators[i].addWatcher ( watcher );
+        }
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) {
+        for ( ImageAnimator animator : this.animators )
+            animator.destroy ( );
+        if ( this.executor != null )
+            this.executor.shutdown ( );
+    }
+
+    @Benchmark
+    public void frame ( ) {
+        for ( ImageAnimator animator : this.animators )
+            animator.actionPerformed ( null );
+        this.dispatched += ANIMATORS;
+
+        if ( this.queue != null )
+            this.queue.drain ( );
+        else if ( this.executor != null ) {
+            while ( this.dispatched - this.delivered.get ( ) > FRAMES_BEHIND * ANIMATORS )
+                Thread.yield ( );
+        }
+    }
+}
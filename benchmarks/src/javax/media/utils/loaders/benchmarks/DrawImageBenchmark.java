@@ -0,0 +1,90 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.images.ImageLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures drawImage throughput of a sprite in the formats decoders commonly return,
+ * before and after ImageLoader normalizes it to TYPE_INT_ARGB_PRE (TYPE_INT_RGB for opaque sprites).
+ * Sprites are drawn onto a TYPE_INT_RGB back buffer.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class DrawImageBenchmark {
+
+    /**
+     * Format the sprite is decoded to
+     */
+    @Param ( { "3BYTE_BGR", "4BYTE_ABGR", "BYTE_INDEXED", "INT_ARGB" } )
+    public String format;
+
+    /**
+     * Width and height of the sprite
+     */
+    @Param ( { "64" } )
+    public int size;
+
+    private BufferedImage original;
+    private BufferedImage normalized;
+    private BufferedImage backBuffer;
+    private Graphics2D gc;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        int type;
+        if ( "3BYTE_BGR".equals ( this.format ) )
+            type = BufferedImage.TYPE_3BYTE_BGR;
+        else if ( "4BYTE_ABGR".equals ( this.format ) )
+            type = BufferedImage.TYPE_4BYTE_ABGR;
+        else if ( "BYTE_INDEXED".equals ( this.format ) )
+            type = BufferedImage.TYPE_BYTE_INDEXED;
+        else
+            type = BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage sprite = Fixtures.sprite ( this.size, this.size, 16, 0 );
+        this.original = new BufferedImage ( this.size, this.size, type );
+        Graphics2D spriteGc = this.original.createGraphics ( );
+        spriteGc.drawImage ( sprite, 0, 0, null );
+        spriteGc.dispose ( );
+
+        this.normalized = ImageLoader.convertImage ( this.original, BufferedImage.TYPE_INT_ARGB_PRE );
+        this.backBuffer = new BufferedImage ( 640, 480, BufferedImage.TYPE_INT_RGB );
+        this.gc = this.backBuffer.createGraphics ( );
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) {
+        this.gc.dispose ( );
+    }
+
+    @Benchmark
+    public boolean drawOriginal ( ) {
+        return this.gc.drawImage ( this.original, 100, 100, null );
+    }
+
+    @Benchmark
+    public boolean drawNormalized ( ) {
+        return this.gc.drawImage ( this.normalized, 100, 100, null );
+    }
+}
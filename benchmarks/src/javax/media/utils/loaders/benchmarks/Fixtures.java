@@ -0,0 +1,140 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.media.utils.loaders.AssetBundle;
+import javax.media.utils.loaders.AssetBundleCompiler;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Generates the images, sounds and asset bundles the benchmarks run on, so they need no
+ * assets on disk and run headless.
+ */
+public final class Fixtures {
+
+    private Fixtures ( ) {
+    }
+
+    /**
+     * Returns a sprite of the given size: a few opaque rectangles in at most the given number
+     * of colors, on a transparent background with a transparent border
+     *
+     * @param width Width of the sprite
+     * @param height Height of the sprite
+     * @param colors Number of distinct opaque colors to use
+     * @param seed Seed of the random layout, so every run gets the same sprite
+     * @return the generated sprite, of TYPE_INT_ARGB
+     */
+    public static BufferedImage sprite ( int width, int height, int colors, long seed ) {
+        Random random = new Random ( seed );
+        Color[] palette = new Color[Math.max ( 1, colors )];
+        for ( int i = 0; i < palette.length; i++ )
+            palette[i] = new Color ( random.nextInt ( 0x1000000 ) );
+
+        BufferedImage image = new BufferedImage ( width, height, BufferedImage.TYPE_INT_ARGB );
+        Graphics2D gc = image.createGraphics ( );
+        int border = Math.min ( width, height ) / 8;
+        for ( int i = 0; i < 24; i++ ) {
+            int w = 1 + random.nextInt ( Math.max ( 1, width - 2 * border ) );
+            int h = 1 + random.nextInt ( Math.max ( 1, height - 2 * border ) );
+            gc.setColor ( palette[random.nextInt ( palette.length )] );
+            gc.fillRect ( border + random.nextInt ( Math.max ( 1, width - 2 * border - w + 1 ) ),
+                    border + random.nextInt ( Math.max ( 1, height - 2 * border - h + 1 ) ), w, h );
+        }
+        gc.dispose ( );
+        return image;
+    }
+
+    /**
+     * Returns the given image encoded as PNG
+     *
+     * @param image Image to encode
+     * @return the PNG file contents
+     */
+    public static byte[] png ( BufferedImage image ) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream ( );
+            ImageIO.write ( image, "png", out );
+            return out.toByteArray ( );
+        } catch ( IOException e ) {
+            throw new UncheckedIOException ( e );
+        }
+    }
+
+    /**
+     * Returns a WAV file holding a sine tone in the given sample format
+     *
+     * @param sampleRate Samples per second
+     * @param bits Bits per sample, 8 or 16
+     * @param channels Number of channels
+     * @param bigEndian True to store 16 bit samples big endian, which clips have to convert
+     * @param seconds Length of the tone
+     * @return the WAV file contents
+     */
+    public static byte[] wav ( float sampleRate, int bits, int channels, boolean bigEndian, double seconds ) {
+        AudioFormat format = new AudioFormat ( sampleRate, bits, channels, true, bigEndian );
+        int frames = (int) ( sampleRate * seconds );
+        ByteBuffer samples = ByteBuffer.allocate ( frames * format.getFrameSize ( ) )
+                .order ( bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN );
+        for ( int i = 0; i < frames; i++ ) {
+            double value = Math.sin ( 2 * Math.PI * 440 * i / sampleRate );
+            for ( int channel = 0; channel < channels; channel++ ) {
+                if ( bits == 8 )
+                    samples.put ( (byte) ( value * 127 ) );
+                else
+                    samples.putShort ( (short) ( value * 32767 ) );
+            }
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream ( );
+            AudioSystem.write ( new AudioInputStream ( new ByteArrayInputStream ( samples.array ( ) ), format, frames ),
+                    AudioFileFormat.Type.WAVE, out );
+            return out.toByteArray ( );
+        } catch ( IOException e ) {
+            throw new UncheckedIOException ( e );
+        }
+    }
+
+    /**
+     * Writes an asset bundle holding the given image configuration and resources to a temporary file, and opens it
+     * The file is deleted when the JVM exits.
+     *
+     * @param imageConfiguration Image configuration file, or null
+     * @param resources Resources by the name the configuration refers to them
+     * @return the opened bundle
+     */
+    public static AssetBundle bundle ( String imageConfiguration, Map<String, byte[]> resources ) {
+        try {
+            AssetBundleCompiler compiler = new AssetBundleCompiler ( );
+            if ( imageConfiguration != null )
+                compiler.addEntry ( AssetBundle.IMAGE_CONFIGURATION, imageConfiguration.getBytes ( StandardCharsets.UTF_8 ) );
+            for ( Map.Entry<String, byte[]> resource : resources.entrySet ( ) )
+                compiler.addEntry ( resource.getKey ( ), resource.getValue ( ) );
+
+            Path file = Files.createTempFile ( "benchmark", ".bundle" );
+            file.toFile ( ).deleteOnExit ( );
+            compiler.write ( file );
+            return new AssetBundle ( file );
+        } catch ( IOException e ) {
+            throw new UncheckedIOException ( e );
+        }
+    }
+}
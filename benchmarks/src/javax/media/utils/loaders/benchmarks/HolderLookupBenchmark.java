@@ -0,0 +1,82 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.images.GroupImageHolder;
+import javax.media.utils.loaders.images.ImageHolder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures looking up frames by index in an ImageHolder and by name in a GroupImageHolder,
+ * the calls renderers make for every sprite on every frame.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.NANOSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class HolderLookupBenchmark {
+
+    /**
+     * Number of images in each holder
+     */
+    @Param ( { "16", "256" } )
+    public int images;
+
+    private ImageHolder holder;
+    private GroupImageHolder group;
+    private String[] names;
+    private int next = 0;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        BufferedImage image = new BufferedImage ( 1, 1, BufferedImage.TYPE_INT_ARGB );
+        this.holder = new ImageHolder ( );
+        this.group = new GroupImageHolder ( );
+        this.names = new String[this.images];
+        for ( int i = 0; i < this.images; i++ ) {
+            this.names[i] = "image" + i;
+            this.holder.addImage ( this.names[i] + ".png", image );
+            this.group.addImage ( this.names[i] + ".png", image );
+        }
+
+        // Holders loaded from a configuration file are sealed
+        this.holder.seal ( );
+        this.group.seal ( );
+    }
+
+    private int nextIndex ( ) {
+        int index = this.next;
+        this.next = index + 1 == this.images ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public BufferedImage getImage ( ) {
+        return this.holder.getImage ( this.nextIndex ( ) );
+    }
+
+    @Benchmark
+    public int countImages ( ) {
+        return this.holder.countImages ( );
+    }
+
+    @Benchmark
+    public BufferedImage getImageByName ( ) {
+        return this.group.getImage ( this.names[this.nextIndex ( )] );
+    }
+}
@@ -0,0 +1,113 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.AssetBundle;
+import javax.media.utils.loaders.BadConfigurationLineException;
+import javax.media.utils.loaders.images.ImageLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures manifest parsing, loading a whole manifest with its images from an asset bundle,
+ * and slicing a strip into frames.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class ImageLoaderBenchmark {
+
+    /**
+     * Number of frames of the sequence and the strip in the manifest
+     */
+    @Param ( { "8", "64" } )
+    public int frames;
+
+    /**
+     * Width and height of every frame
+     */
+    @Param ( { "64" } )
+    public int size;
+
+    private byte[] manifest;
+    private AssetBundle bundle;
+    private BufferedImage strip;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        Map<String, byte[]> resources = new HashMap<String, byte[]> ( );
+        StringBuilder config = new StringBuilder ( );
+
+        resources.put ( "single.png", Fixtures.png ( Fixtures.sprite ( this.size, this.size, 16, 0 ) ) );
+        config.append ( "o single.png\n" );
+
+        for ( int i = 0; i < this.frames; i++ )
+            resources.put ( "walk" + i + ".png", Fixtures.png ( Fixtures.sprite ( this.size, this.size, 16, i + 1 ) ) );
+        config.append ( "n walk*.png " ).append ( this.frames ).append ( '\n' );
+
+        this.strip = Fixtures.sprite ( this.size * this.frames, this.size, 16, -1 );
+        resources.put ( "run.png", Fixtures.png ( this.strip ) );
+        config.append ( "s run.png " ).append ( this.frames ).append ( '\n' );
+
+        config.append ( "g icons" );
+        for ( int i = 0; i < 4; i++ ) {
+            resources.put ( "icon" + i + ".png", Fixtures.png ( Fixtures.sprite ( this.size / 2, this.size / 2, 4, 100 + i ) ) );
+            config.append ( " icon" ).append ( i ).append ( ".png" );
+        }
+        config.append ( '\n' );
+
+        this.manifest = config.toString ( ).getBytes ( StandardCharsets.UTF_8 );
+        this.bundle = Fixtures.bundle ( config.toString ( ), resources );
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) throws IOException {
+        this.bundle.close ( );
+    }
+
+    /**
+     * Parses the manifest without decoding any image
+     */
+    @Benchmark
+    public List<String> parseManifest ( ) throws IOException, BadConfigurationLineException {
+        return ImageLoader.getConfigResources ( new ByteArrayInputStream ( this.manifest ) );
+    }
+
+    /**
+     * Parses the manifest and decodes all of its images from the bundle
+     */
+    @Benchmark
+    public ImageLoader loadManifest ( ) throws IOException, BadConfigurationLineException {
+        return new ImageLoader ( this.bundle );
+    }
+
+    /**
+     * Slices the decoded strip into its frames
+     */
+    @Benchmark
+    public BufferedImage[] sliceStrip ( ) {
+        return ImageLoader.sliceSheet ( this.strip, this.frames, 1, 0, 0 );
+    }
+}
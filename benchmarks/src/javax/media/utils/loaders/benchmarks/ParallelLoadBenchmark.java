@@ -0,0 +1,80 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.AssetBundle;
+import javax.media.utils.loaders.BadConfigurationLineException;
+import javax.media.utils.loaders.images.ImageLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how loading a manifest of many frames scales with the number of threads decoding them.
+ * Scaling can only show up to the number of cores of the host running the benchmark.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MILLISECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class ParallelLoadBenchmark {
+
+    /**
+     * Parallelism of the load pool, or 0 to decode on the loading thread without a pool
+     */
+    @Param ( { "0", "1", "2", "4", "8" } )
+    public int threads;
+
+    /**
+     * Number of frames in the manifest, split over sequences of 16 frames
+     */
+    @Param ( { "256" } )
+    public int frames;
+
+    private AssetBundle bundle;
+    private ForkJoinPool pool;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        Map<String, byte[]> resources = new HashMap<String, byte[]> ( );
+        StringBuilder config = new StringBuilder ( );
+        for ( int sequence = 0; sequence * 16 < this.frames; sequence++ ) {
+            int count = Math.min ( 16, this.frames - sequence * 16 );
+            for ( int i = 0; i < count; i++ )
+                resources.put ( "sprite" + sequence + "_" + i + ".png", Fixtures.png ( Fixtures.sprite ( 64, 64, 16, sequence * 16 + i ) ) );
+            config.append ( "n sprite" ).append ( sequence ).append ( "_*.png " ).append ( count ).append ( '\n' );
+        }
+
+        this.bundle = Fixtures.bundle ( config.toString ( ), resources );
+        this.pool = this.threads > 0 ? new ForkJoinPool ( this.threads ) : null;
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) throws IOException {
+        if ( this.pool != null )
+            this.pool.shutdown ( );
+        this.bundle.close ( );
+    }
+
+    @Benchmark
+    public ImageLoader load ( ) throws IOException, BadConfigurationLineException {
+        return new ImageLoader ( this.bundle, this.pool );
+    }
+}
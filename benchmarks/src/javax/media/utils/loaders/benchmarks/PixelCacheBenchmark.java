@@ -0,0 +1,79 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.images.ImageLoader;
+import javax.media.utils.loaders.images.PixelCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the per-frame cost of a cold start, decoding the PNG, against a warm start,
+ * which hashes the PNG and maps the decoded pixels back from the PixelCache.
+ * Both are the steps ImageLoader.loadImageFromResource takes after reading the resource.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class PixelCacheBenchmark {
+
+    /**
+     * Width and height of the frame
+     */
+    @Param ( { "64", "512" } )
+    public int size;
+
+    private ByteBuffer png;
+    private ImageLoader loader;
+    private Path directory;
+    private PixelCache cache;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) throws IOException {
+        this.png = ByteBuffer.wrap ( Fixtures.png ( Fixtures.sprite ( this.size, this.size, 64, 0 ) ) );
+        this.loader = new ImageLoader ( );
+
+        this.directory = Files.createTempDirectory ( "pixelcache" );
+        this.cache = new PixelCache ( this.directory );
+        BufferedImage image = ImageLoader.convertImage ( this.loader.loadImageFromBuffer ( this.png ), BufferedImage.TYPE_INT_ARGB );
+        this.cache.put ( "sprite.png", PixelCache.digest ( this.png ), image );
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) {
+        for ( File file : this.directory.toFile ( ).listFiles ( ) )
+            file.delete ( );
+        this.directory.toFile ( ).delete ( );
+    }
+
+    @Benchmark
+    public BufferedImage cold ( ) throws IOException {
+        return this.loader.loadImageFromBuffer ( this.png );
+    }
+
+    @Benchmark
+    public BufferedImage warm ( ) {
+        return this.cache.get ( "sprite.png", PixelCache.digest ( this.png ) );
+    }
+}
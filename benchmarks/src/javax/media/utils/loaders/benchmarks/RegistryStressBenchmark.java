@@ -0,0 +1,227 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.media.utils.loaders.AssetBundle;
+import javax.media.utils.loaders.BadConfigurationLineException;
+import javax.media.utils.loaders.images.ImageHolder;
+import javax.media.utils.loaders.images.ImageLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Stresses the image registry: several threads load the same holders from configuration lines at once,
+ * while another thread looks them up by name and by handle.
+ *
+ * Holders are loaded in generations of fresh names, so every writer keeps racing the others for new
+ * names instead of failing on names that are already loaded.
+ *
+ * After every iteration the registry is checked for lost or torn entries: every holder a writer
+ * loaded must be registered, exactly one writer must have won every name, and the reader must never
+ * have seen a holder missing frames or a handle resolving to another holder. A failed check fails
+ * the run, so the scores only matter once it passes.
+ */
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.MILLISECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Group )
+public class RegistryStressBenchmark {
+
+    /**
+     * Number of holders in every generation
+     */
+    private static final int HOLDERS = 64;
+
+    /**
+     * Maximum number of generations loaded in one iteration
+     */
+    private static final int GENERATIONS = 1 << 16;
+
+    /**
+     * Number of frames of every holder
+     */
+    private static final int FRAMES = 4;
+
+    private AssetBundle bundle;
+    private String frames;
+
+    private ImageLoader loader;
+
+    /**
+     * Generations of names started this iteration, created by the first thread reaching them
+     */
+    private AtomicReferenceArray<Generation> generations;
+
+    /**
+     * Latest generation started, looked up by the reader
+     */
+    private volatile int latest;
+
+    /**
+     * Number of loads that succeeded, and number of holders the reader saw torn, this iteration
+     */
+    private AtomicInteger loaded = new AtomicInteger ( );
+    private AtomicInteger torn = new AtomicInteger ( );
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        Map<String, byte[]> resources = new HashMap<String, byte[]> ( );
+        StringBuilder frames = new StringBuilder ( );
+        for ( int i = 0; i < FRAMES; i++ ) {
+            resources.put ( "frame" + i + ".png", Fixtures.png ( Fixtures.sprite ( 16, 16, 4, i ) ) );
+            frames.append ( " frame" ).append ( i ).append ( ".png" );
+        }
+        this.frames = frames.toString ( );
+
+        // The writers load every holder themselves
+        this.bundle = Fixtures.bundle ( "// No holders\n", resources );
+    }
+
+    @TearDown ( Level.Trial )
+    public void tearDown ( ) throws IOException {
+        this.bundle.close ( );
+    }
+
+    @Setup ( Level.Iteration )
+    public void createLoader ( ) throws IOException, BadConfigurationLineException {
+        this.loader = new ImageLoader ( this.bundle );
+        this.generations = new AtomicReferenceArray<Generation> ( GENERATIONS );
+        this.latest = 0;
+        this.loaded.set ( 0 );
+        this.torn.set ( 0 );
+    }
+
+    @TearDown ( Level.Iteration )
+    public void checkLoader ( ) {
+        if ( this.torn.get ( ) > 0 )
+            throw new IllegalStateException ( "Reader saw " + this.torn.get ( ) + " torn holders" );
+        if ( this.loaded.get ( ) == 0 )
+            throw new IllegalStateException ( "No load succeeded" );
+
+        // A name is loaded once some writer tried it; exactly one load of it must have succeeded
+        int registered = 0;
+        for ( int g = 0; g < GENERATIONS && this.generations.get ( g ) != null; g++ ) {
+            for ( String name : this.generations.get ( g ).names ) {
+                if ( !this.loader.isLoaded ( name ) )
+                    continue;
+                if ( !this.isComplete ( name, this.loader.getHolder ( name ) ) )
+                    throw new IllegalStateException ( "Holder " + name + " is torn" );
+                registered++;
+            }
+        }
+        if ( registered != this.loaded.get ( ) )
+            throw new IllegalStateException ( this.loaded.get ( ) + " loads succeeded for " + registered + " registered holders" );
+    }
+
+    /**
+     * Returns the given generation of names, creating it if no thread has yet
+     */
+    private Generation getGeneration ( int generation ) {
+        if ( generation >= GENERATIONS )
+            throw new IllegalStateException ( "More than " + GENERATIONS + " generations loaded in one iteration" );
+
+        Generation current = this.generations.get ( generation );
+        if ( current != null )
+            return current;
+        Generation created = new Generation ( generation, this.frames );
+        if ( !this.generations.compareAndSet ( generation, null, created ) )
+            return this.generations.get ( generation );
+        if ( generation > this.latest )
+            this.latest = generation;
+        return created;
+    }
+
+    /**
+     * Returns true if the given holder has all of its frames, and its handle resolves to it
+     */
+    private boolean isComplete ( String name, ImageHolder holder ) {
+        return holder.countImages ( ) == FRAMES && this.loader.getHolder ( this.loader.getHandle ( name ) ) == holder;
+    }
+
+    /**
+     * Names of the holders of a generation, and the configuration lines loading them
+     */
+    private static class Generation {
+        private String[] names = new String[HOLDERS];
+        private byte[][] lines = new byte[HOLDERS][];
+
+        Generation ( int generation, String frames ) {
+            for ( int i = 0; i < HOLDERS; i++ ) {
+                this.names[i] = "unit" + generation + "_" + i;
+                this.lines[i] = ( "g " + this.names[i] + frames + "\n" ).getBytes ( StandardCharsets.UTF_8 );
+            }
+        }
+    }
+
+    /**
+     * Position of a thread in the sequence of holders
+     */
+    @State ( Scope.Thread )
+    public static class Cursor {
+        int next = 0;
+
+        @Setup ( Level.Iteration )
+        public void reset ( ) {
+            this.next = 0;
+        }
+    }
+
+    @Benchmark
+    @Group ( "registry" )
+    @GroupThreads ( 3 )
+    public boolean load ( Cursor cursor ) throws IOException {
+        int next = cursor.next++;
+        byte[] line = this.getGeneration ( next / HOLDERS ).lines[next % HOLDERS];
+        try {
+            this.loader.loadImagesFromConfig ( new ByteArrayInputStream ( line ) );
+        } catch ( BadConfigurationLineException e ) {
+            // Another writer loaded the holder first
+            return false;
+        }
+        this.loaded.incrementAndGet ( );
+        return true;
+    }
+
+    @Benchmark
+    @Group ( "registry" )
+    @GroupThreads ( 1 )
+    public ImageHolder lookup ( Cursor cursor ) {
+        Generation generation = this.generations.get ( this.latest );
+        if ( generation == null )
+            return null; // No generation started yet
+        String name = generation.names[cursor.next++ % HOLDERS];
+        ImageHolder holder;
+        try {
+            holder = this.loader.getHolder ( name );
+        } catch ( NoSuchElementException e ) {
+            // Not loaded yet
+            return null;
+        }
+        if ( !this.isComplete ( name, holder ) )
+            this.torn.incrementAndGet ( );
+        return holder;
+    }
+}
@@ -0,0 +1,81 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.images.ImageHolder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading frames of one holder shared by several threads, such as a render thread,
+ * animation timers and game logic, with the holder sealed and unsealed.
+ * An unsealed holder takes the monitor of its image list on every read, as all holders did before sealing.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.NANOSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@Threads ( 4 )
+@State ( Scope.Benchmark )
+public class SealedHolderBenchmark {
+
+    /**
+     * True to seal the holder after adding its images
+     */
+    @Param ( { "false", "true" } )
+    public boolean sealed;
+
+    private ImageHolder holder;
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        this.holder = new ImageHolder ( );
+        for ( int i = 0; i < 16; i++ )
+            this.holder.addImage ( "frame" + i + ".png", new BufferedImage ( 1, 1, BufferedImage.TYPE_INT_ARGB ) );
+        if ( this.sealed )
+            this.holder.seal ( );
+    }
+
+    /**
+     * Position of the reading thread in the sequence
+     */
+    @State ( Scope.Thread )
+    public static class Cursor {
+        int frame = 0;
+    }
+
+    @Benchmark
+    public BufferedImage getImage ( Cursor cursor ) {
+        cursor.frame = ( cursor.frame + 1 ) & 15;
+        return this.holder.getImage ( cursor.frame );
+    }
+
+    @Benchmark
+    public int countImages ( ) {
+        return this.holder.countImages ( );
+    }
+
+    /**
+     * The reads of one animation tick: count the images to find the next one, then get it
+     */
+    @Benchmark
+    public BufferedImage tick ( Cursor cursor ) {
+        int count = this.holder.countImages ( );
+        cursor.frame = ( cursor.frame + 1 ) % count;
+        return this.holder.getImage ( cursor.frame );
+    }
+}
@@ -0,0 +1,74 @@
+package javax.media.utils.loaders.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.utils.loaders.sound.ClipSoundHolder;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversion ClipSoundHolder.loadStream applies to every sound before opening a clip.
+ * Opening the clip itself needs an audio device, so the benchmark stops at the converted samples.
+ */
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 3, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+@State ( Scope.Benchmark )
+public class SoundBenchmark {
+
+    /**
+     * Sample format of the WAV file: bits per sample, and byte order for 16 bit samples
+     * 16le is already in the clip format, the others have to be converted
+     */
+    @Param ( { "16le", "16be", "8" } )
+    public String format;
+
+    /**
+     * Length of the sound in seconds
+     */
+    @Param ( { "1" } )
+    public double seconds;
+
+    private byte[] wav;
+    private byte[] buffer = new byte[8192];
+
+    @Setup ( Level.Trial )
+    public void setup ( ) {
+        int bits = this.format.startsWith ( "16" ) ? 16 : 8;
+        this.wav = Fixtures.wav ( 44100, bits, 2, this.format.endsWith ( "be" ), this.seconds );
+    }
+
+    /**
+     * Parses the WAV header, converts to the clip format and reads all converted samples
+     */
+    @Benchmark
+    public long convert ( ) throws UnsupportedAudioFileException, IOException {
+        AudioInputStream stream = ClipSoundHolder.getPcmStream ( new ByteArrayInputStream ( this.wav ) );
+        try {
+            long total = 0;
+            int read;
+            while ( ( read = stream.read ( this.buffer ) ) > 0 )
+                total += read;
+            return total;
+        } finally {
+            stream.close ( );
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package javax.media.utils.loaders;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single file containing many assets, mapped into memory as a whole.
+ * Bundles are created by {@link AssetBundleCompiler}, and can be given to
+ * the image and sound loaders in place of their configuration files.
+ *
+ * The file layout is (all numbers big endian):
+ *
+ * <pre>
+ * int magic            // 0x4A4D5542
+ * int version
+ * int entryCount
+ * int reserved
+ * entryCount times:    // table of contents
+ *   short nameLength
+ *   byte name[nameLength] // UTF-8
+ *   long offset        // from the start of the file, a multiple of ALIGNMENT
+ *   long length
+ * payloads
+ * </pre>
+ *
+ * The configuration files the bundle was compiled from are stored as the entries
+ * {@link #IMAGE_CONFIGURATION} and {@link #SOUND_CONFIGURATION}, and all other entries
+ * are named by the resource name used in those files.
+ * Since the whole file is mapped at once, bundles are limited to 2GB.
+ */
+public class AssetBundle implements Closeable {
+    static final int MAGIC = 0x4A4D5542;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Payloads start at multiples of this many bytes
+     */
+    public static final int ALIGNMENT = 16;
+
+    /**
+     * Name of the entry holding the image configuration file
+     */
+    public static final String IMAGE_CONFIGURATION = "#images";
+
+    /**
+     * Name of the entry holding the sound configuration file
+     */
+    public static final String SOUND_CONFIGURATION = "#sounds";
+
+    private FileChannel channel;
+    private MappedByteBuffer data;
+
+    /**
+     * Offset and length of every entry, by name
+     */
+    private Map<String, long[]> entries;
+
+    /**
+     * Opens and maps the given bundle file
+     *
+     * @param file Bundle file to open
+     * @throws IOException if the file could not be read or is not a valid bundle
+     */
+    public AssetBundle ( Path file ) throws IOException {
+        this.channel = FileChannel.open ( file, StandardOpenOption.READ );
+        try {
+            if ( this.channel.size ( ) > Integer.MAX_VALUE )
+                throw new IOException ( "Asset bundle " + file + " is larger than 2GB" );
+
+            this.data = this.channel.map ( FileChannel.MapMode.READ_ONLY, 0, this.channel.size ( ) );
+            this.data.order ( ByteOrder.BIG_ENDIAN );
+            this.entries = new LinkedHashMap<String, long[]> ( );
+            this.readTableOfContents ( file );
+        } catch ( IOException e ) {
+            this.channel.close ( );
+            throw e;
+        } catch ( RuntimeException e ) {
+            this.channel.close ( );
+            throw new IOException ( "Asset bundle " + file + " is corrupt", e );
+        }
+    }
+
+    private void readTableOfContents ( Path file ) throws IOException {
+        ByteBuffer toc = this.data.duplicate ( );
+        if ( toc.remaining ( ) < HEADER_SIZE || toc.getInt ( ) != MAGIC )
+            throw new IOException ( file + " is not an asset bundle" );
+        if ( toc.getInt ( ) != VERSION )
+            throw new IOException ( "Unsupported asset bundle version in " + file );
+
+        int count = toc.getInt ( );
+        toc.getInt ( ); // reserved
+
+        for ( int i = 0; i < count; i++ ) {
+            byte[] name = new byte[toc.getShort ( ) & 0xFFFF];
+            toc.get ( name );
+            long offset = toc.getLong ( );
+            long length = toc.getLong ( );
+            if ( offset < 0 || length < 0 || offset + length > this.data.capacity ( ) )
+                throw new IOException ( "Entry " + i + " of asset bundle " + file + " is out of bounds" );
+            this.entries.put ( new String ( name, StandardCharsets.UTF_8 ), new long[] { offset, length } );
+        }
+    }
+
+    /**
+     * Returns true if the bundle contains an entry by the given name
+     *
+     * @param name Name of entry
+     * @return true if the bundle contains an entry by the given name
+     */
+    public boolean contains ( String name ) {
+        return this.entries.containsKey ( name );
+    }
+
+    /**
+     * Returns the names of all entries in the bundle, in file order
+     *
+     * @return the names of all entries in the bundle
+     */
+    public Set<String> getNames ( ) {
+        return Collections.unmodifiableSet ( this.entries.keySet ( ) );
+    }
+
+    /**
+     * Returns a read-only view of the given entry's data, or null if there is no such entry
+     * The view shares the mapped memory of the bundle, so no data is copied
+     *
+     * @param name Name of entry
+     * @return a view of the entry's data, or null
+     */
+    public ByteBuffer get ( String name ) {
+        long[] entry = this.entries.get ( name );
+        if ( entry == null )
+            return null;
+
+        ByteBuffer view = this.data.asReadOnlyBuffer ( );
+        view.position ( (int) entry[0] );
+        view.limit ( (int) ( entry[0] + entry[1] ) );
+        return view.slice ( );
+    }
+
+    /**
+     * Returns a stream reading the given entry, or null if there is no such entry
+     *
+     * @param name Name of entry
+     * @return a stream reading the given entry, or null
+     */
+    public InputStream openStream ( String name ) {
+        ByteBuffer view = this.get ( name );
+        if ( view == null )
+            return null;
+        return new ByteBufferInputStream ( view );
+    }
+
+    /**
+     * Closes the underlying file
+     * The mapped data stays valid until it is garbage collected
+     */
+    @Override
+    public void close ( ) throws IOException {
+        this.channel.close ( );
+    }
+}
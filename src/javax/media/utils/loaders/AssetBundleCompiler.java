@@ -0,0 +1,185 @@
+package javax.media.utils.loaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.media.utils.loaders.images.ImageLoader;
+import javax.media.utils.loaders.sound.SoundLoader;
+
+/**
+ * Compiles image and sound configuration files, and every resource they refer to,
+ * into a single {@link AssetBundle}.
+ *
+ * Resources are looked up the same way the loaders look them up, so the assets must
+ * be on the classpath of the compiler. Usage:
+ *
+ * <pre>
+ * java javax.media.utils.loaders.AssetBundleCompiler [-i IMAGECONFIG] [-s SOUNDCONFIG] OUTPUT
+ * </pre>
+ */
+public class AssetBundleCompiler {
+
+    /**
+     * Entries to write, by name
+     */
+    private Map<String, byte[]> entries = new LinkedHashMap<String, byte[]> ( );
+
+    /**
+     * Adds the given image configuration file, and all images it refers to
+     *
+     * @param configurationFile Image configuration file
+     * @throws IOException if the configuration file or an image could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     */
+    public void addImageConfiguration ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        byte[] configuration = AssetBundleCompiler.readFully ( configurationFile );
+        this.entries.put ( AssetBundle.IMAGE_CONFIGURATION, configuration );
+        for ( String resource : ImageLoader.getConfigResources ( new ByteArrayInputStream ( configuration ) ) )
+            this.addResource ( ImageLoader.class, resource );
+    }
+
+    /**
+     * Adds the given sound configuration file, and all sounds it refers to
+     *
+     * @param configurationFile Sound configuration file
+     * @throws IOException if the configuration file or a sound could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     */
+    public void addSoundConfiguration ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        byte[] configuration = AssetBundleCompiler.readFully ( configurationFile );
+        this.entries.put ( AssetBundle.SOUND_CONFIGURATION, configuration );
+        for ( String resource : SoundLoader.getConfigResources ( new ByteArrayInputStream ( configuration ) ) )
+            this.addResource ( SoundLoader.class, resource );
+    }
+
+    /**
+     * Adds an entry with the given contents, for resources that are generated rather than read from the classpath
+     * An entry that was already added under the same name is replaced.
+     *
+     * @param name Name of the entry, as the configuration files refer to it
+     * @param data Contents of the entry
+     */
+    public void addEntry ( String name, byte[] data ) {
+        this.entries.put ( name, data );
+    }
+
+    /**
+     * Adds the given resource, resolved relative to the given loader class
+     */
+    private void addResource ( Class<?> loader, String resource ) throws IOException {
+        if ( this.entries.containsKey ( resource ) )
+            return;
+
+        InputStream stream = loader.getResourceAsStream ( resource );
+        if ( stream == null )
+            throw new IOException ( String.format ( "Failed to read resource '%s'", resource ) );
+        try {
+            this.entries.put ( resource, AssetBundleCompiler.readFully ( stream ) );
+        } finally {
+            stream.close ( );
+        }
+    }
+
+    /**
+     * Writes all added entries to the given bundle file
+     *
+     * @param output File to write
+     * @throws IOException if the file could not be written, or an entry name is too long to store
+     */
+    public void write ( Path output ) throws IOException {
+        // Table of contents size decides where the first payload goes
+        long tocEnd = AssetBundle.HEADER_SIZE;
+        for ( String name : this.entries.keySet ( ) ) {
+            int length = name.getBytes ( StandardCharsets.UTF_8 ).length;
+            // Name lengths are stored as an unsigned short
+            if ( length > 0xFFFF )
+                throw new IOException ( "Entry name is longer than " + 0xFFFF + " bytes: " + name.substring ( 0, 64 ) + "..." );
+            tocEnd += 2 + length + 16;
+        }
+
+        ByteBuffer toc = ByteBuffer.allocate ( (int) tocEnd ).order ( ByteOrder.BIG_ENDIAN );
+        toc.putInt ( AssetBundle.MAGIC ).putInt ( AssetBundle.VERSION ).putInt ( this.entries.size ( ) ).putInt ( 0 );
+
+        long offset = tocEnd;
+        for ( Map.Entry<String, byte[]> entry : this.entries.entrySet ( ) ) {
+            byte[] name = entry.getKey ( ).getBytes ( StandardCharsets.UTF_8 );
+            offset = AssetBundleCompiler.align ( offset );
+            toc.putShort ( (short) name.length ).put ( name ).putLong ( offset ).putLong ( entry.getValue ( ).length );
+            offset += entry.getValue ( ).length;
+        }
+        toc.flip ( );
+
+        try ( FileChannel channel = FileChannel.open ( output,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+            while ( toc.hasRemaining ( ) )
+                channel.write ( toc );
+
+            for ( byte[] payload : this.entries.values ( ) ) {
+                channel.position ( AssetBundleCompiler.align ( channel.position ( ) ) );
+                ByteBuffer buffer = ByteBuffer.wrap ( payload );
+                while ( buffer.hasRemaining ( ) )
+                    channel.write ( buffer );
+            }
+        }
+    }
+
+    private static long align ( long offset ) {
+        return ( offset + AssetBundle.ALIGNMENT - 1 ) / AssetBundle.ALIGNMENT * AssetBundle.ALIGNMENT;
+    }
+
+    private static byte[] readFully ( InputStream stream ) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream ( );
+        byte[] buffer = new byte[8192];
+        int read;
+        while ( ( read = stream.read ( buffer ) ) > 0 )
+            out.write ( buffer, 0, read );
+        return out.toByteArray ( );
+    }
+
+    public static void main ( String[] args ) throws IOException {
+        AssetBundleCompiler compiler = new AssetBundleCompiler ( );
+        Path output = null;
+
+        try {
+            for ( int i = 0; i < args.length; i++ ) {
+                if ( args[i].equals ( "-i" ) && i + 1 < args.length ) {
+                    try ( InputStream configurationFile = Files.newInputStream ( Paths.get ( args[++i] ) ) ) {
+                        compiler.addImageConfiguration ( configurationFile );
+                    }
+                } else if ( args[i].equals ( "-s" ) && i + 1 < args.length ) {
+                    try ( InputStream configurationFile = Files.newInputStream ( Paths.get ( args[++i] ) ) ) {
+                        compiler.addSoundConfiguration ( configurationFile );
+                    }
+                } else if ( output == null )
+                    output = Paths.get ( args[i] );
+                else {
+                    output = null;
+                    break;
+                }
+            }
+        } catch ( BadConfigurationLineException e ) {
+            System.err.println ( "Line " + e.getLineNumber ( ) + ": " + e.getMessage ( ) + ": " + e.getLine ( ) );
+            System.exit ( 1 );
+        }
+
+        if ( output == null ) {
+            System.err.println ( "Usage: AssetBundleCompiler [-i IMAGECONFIG] [-s SOUNDCONFIG] OUTPUT" );
+            System.exit ( 1 );
+        }
+
+        compiler.write ( output );
+        System.out.println ( "Wrote " + compiler.entries.size ( ) + " entries to " + output );
+    }
+}
@@ -0,0 +1,55 @@
+package javax.media.utils.loaders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An ImageInputStream reading from a ByteBuffer without copying it
+ * Unlike the streams ImageIO creates for an InputStream, nothing is buffered or cached,
+ * since the whole buffer can be read and seeked directly.
+ * The position of the buffer is left unchanged.
+ */
+public class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    /**
+     * View of the buffer starting at its position when this stream was created
+     */
+    private ByteBuffer buffer;
+
+    public ByteBufferImageInputStream ( ByteBuffer buffer ) {
+        this.buffer = buffer.slice ( );
+    }
+
+    @Override
+    public int read ( ) throws IOException {
+        this.checkClosed ( );
+        if ( this.streamPos >= this.buffer.limit ( ) )
+            return -1;
+        this.bitOffset = 0;
+        return this.buffer.get ( (int) this.streamPos++ ) & 0xFF;
+    }
+
+    @Override
+    public int read ( byte[] b, int off, int len ) throws IOException {
+        this.checkClosed ( );
+        if ( off < 0 || len < 0 || off + len > b.length || off + len < 0 )
+            throw new IndexOutOfBoundsException ( );
+        if ( len == 0 )
+            return 0;
+        if ( this.streamPos >= this.buffer.limit ( ) )
+            return -1;
+
+        this.bitOffset = 0;
+        len = (int) Math.min ( len, this.buffer.limit ( ) - this.streamPos );
+        this.buffer.position ( (int) this.streamPos );
+        this.buffer.get ( b, off, len );
+        this.streamPos += len;
+        return len;
+    }
+
+    @Override
+    public long length ( ) {
+        return this.buffer.limit ( );
+    }
+}
@@ -0,0 +1,76 @@
+package javax.media.utils.loaders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+
+/**
+ * An InputStream reading from a ByteBuffer without copying it
+ * Reading advances the position of the buffer
+ */
+public class ByteBufferInputStream extends InputStream {
+    private ByteBuffer buffer;
+
+    public ByteBufferInputStream ( ByteBuffer buffer ) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the buffer this stream reads from
+     * 
+     * @return the buffer this stream reads from
+     */
+    public ByteBuffer getBuffer ( ) {
+        return this.buffer;
+    }
+
+    @Override
+    public int read ( ) {
+        if ( !this.buffer.hasRemaining ( ) )
+            return -1;
+        return this.buffer.get ( ) & 0xFF;
+    }
+
+    @Override
+    public int read ( byte[] b, int off, int len ) {
+        if ( len == 0 )
+            return 0;
+        if ( !this.buffer.hasRemaining ( ) )
+            return -1;
+        len = Math.min ( len, this.buffer.remaining ( ) );
+        this.buffer.get ( b, off, len );
+        return len;
+    }
+
+    @Override
+    public long skip ( long n ) {
+        int skipped = (int) Math.max ( 0, Math.min ( n, this.buffer.remaining ( ) ) );
+        this.buffer.position ( this.buffer.position ( ) + skipped );
+        return skipped;
+    }
+
+    @Override
+    public int available ( ) {
+        return this.buffer.remaining ( );
+    }
+
+    @Override
+    public boolean markSupported ( ) {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark ( int readlimit ) {
+        this.buffer.mark ( );
+    }
+
+    @Override
+    public synchronized void reset ( ) throws IOException {
+        try {
+            this.buffer.reset ( );
+        } catch ( InvalidMarkException e ) {
+            throw new IOException ( "Resetting to invalid mark" );
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package javax.media.utils.loaders;
+
+/**
+ * Decides on which thread, and when, watcher events are delivered.
+ * 
+ * Image animators and sound holders hand every watcher notification to their dispatcher
+ * instead of calling watchers directly, so that a slow watcher does not have to stall
+ * animation ticks or audio line events. Implementations must never block the calling thread.
+ * 
+ * @see InlineEventDispatcher
+ * @see QueuedEventDispatcher
+ * @see ExecutorEventDispatcher
+ */
+public interface EventDispatcher {
+    /**
+     * Delivers the given event, now or later
+     * 
+     * @param event Notification of watchers
+     */
+    void dispatch ( Runnable event );
+}
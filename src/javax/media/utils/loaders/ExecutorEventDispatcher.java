@@ -0,0 +1,63 @@
+package javax.media.utils.loaders;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers events on an executor, such as a thread pool or a virtual thread per task executor.
+ * 
+ * Events are queued, and a single task delivers every event queued by the time it runs,
+ * so events produced within one tick are delivered as one batch. Events are delivered in
+ * the order they were dispatched, and never by more than one thread at a time.
+ */
+public class ExecutorEventDispatcher implements EventDispatcher {
+    private Executor executor;
+    private Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable> ( );
+
+    /**
+     * True while a delivery task is scheduled or running
+     */
+    private AtomicBoolean scheduled = new AtomicBoolean ( false );
+
+    private Runnable deliver = new Runnable ( ) {
+        @Override
+        public void run ( ) {
+            ExecutorEventDispatcher.this.deliver ( );
+        }
+    };
+
+    /**
+     * Creates a dispatcher delivering events on the given executor
+     * 
+     * @param executor Executor to deliver events on
+     */
+    public ExecutorEventDispatcher ( Executor executor ) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void dispatch ( Runnable event ) {
+        this.queue.add ( event );
+        if ( this.scheduled.compareAndSet ( false, true ) )
+            this.executor.execute ( this.deliver );
+    }
+
+    private void deliver ( ) {
+        do {
+            Runnable event;
+            while ( ( event = this.queue.poll ( ) ) != null ) {
+                try {
+                    event.run ( );
+                } catch ( RuntimeException e ) {
+                    // A failing watcher must not keep the remaining events from being delivered
+                    System.err.println ( "Failed to deliver event " + event + ": " + e );
+                }
+            }
+            this.scheduled.set ( false );
+
+            // Events dispatched after the queue was emptied, but before scheduled was cleared, are ours to deliver
+        } while ( !this.queue.isEmpty ( ) && this.scheduled.compareAndSet ( false, true ) );
+    }
+}
@@ -0,0 +1,17 @@
+package javax.media.utils.loaders;
+
+/**
+ * Delivers events immediately on the thread producing them
+ * This is the default for animators and sound holders
+ */
+public class InlineEventDispatcher implements EventDispatcher {
+    /**
+     * Shared instance; the dispatcher has no state
+     */
+    public static final InlineEventDispatcher INSTANCE = new InlineEventDispatcher ( );
+
+    @Override
+    public void dispatch ( Runnable event ) {
+        event.run ( );
+    }
+}
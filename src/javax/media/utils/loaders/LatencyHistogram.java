@@ -0,0 +1,139 @@
+package javax.media.utils.loaders;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Counts latencies in power of two buckets, cheap enough to record on hot paths.
+ *
+ * Every bucket is a striped {@link LongAdder}, so concurrent recording threads do not
+ * contend on a single counter. Bucket 0 counts latencies of 0ns, and bucket i counts
+ * latencies from 2^(i-1) up to 2^i - 1 nanoseconds, so percentiles are reported as
+ * the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private LongAdder[] buckets = new LongAdder[BUCKETS];
+    private LongAdder total = new LongAdder ( );
+    private LongAccumulator max = new LongAccumulator ( new LongBinaryOperator ( ) {
+        @Override
+        public long applyAsLong ( long left, long right ) {
+            return Math.max ( left, right );
+        }
+    }, 0 );
+
+    public LatencyHistogram ( ) {
+        for ( int i = 0; i < BUCKETS; i++ )
+            this.buckets[i] = new LongAdder ( );
+    }
+
+    /**
+     * Records a single latency
+     *
+     * @param nanos Latency in nanoseconds, negative values are counted as 0
+     */
+    public void record ( long nanos ) {
+        if ( nanos < 0 )
+            nanos = 0;
+        this.buckets[64 - Long.numberOfLeadingZeros ( nanos )].increment ( );
+        this.total.add ( nanos );
+        this.max.accumulate ( nanos );
+    }
+
+    /**
+     * Returns the number of latencies recorded in each bucket
+     *
+     * @return the count of every bucket
+     */
+    public long[] getBuckets ( ) {
+        long[] counts = new long[BUCKETS];
+        for ( int i = 0; i < BUCKETS; i++ )
+            counts[i] = this.buckets[i].sum ( );
+        return counts;
+    }
+
+    /**
+     * Returns a summary of the latencies recorded so far
+     * Recording may continue while the snapshot is taken, so the figures are not exactly consistent
+     *
+     * @return a summary of the recorded latencies
+     */
+    public Snapshot getSnapshot ( ) {
+        long[] counts = this.getBuckets ( );
+        long count = 0;
+        for ( long c : counts )
+            count += c;
+
+        // Bucket bounds can exceed the largest latency actually recorded
+        long max = this.max.get ( );
+        return new Snapshot ( count,
+                count == 0 ? 0 : this.total.sum ( ) / count / 1000,
+                Math.min ( max, LatencyHistogram.percentile ( counts, count, 0.5 ) ) / 1000,
+                Math.min ( max, LatencyHistogram.percentile ( counts, count, 0.99 ) ) / 1000,
+                max / 1000 );
+    }
+
+    /**
+     * Returns the upper bound in ns of the bucket holding the given percentile
+     */
+    private static long percentile ( long[] counts, long count, double fraction ) {
+        long rank = (long) Math.ceil ( count * fraction );
+        long seen = 0;
+        for ( int i = 0; i < counts.length; i++ ) {
+            seen += counts[i];
+            if ( seen >= rank && seen > 0 )
+                return i == 0 ? 0 : ( i == 63 ? Long.MAX_VALUE : ( 1L << i ) - 1 );
+        }
+        return 0;
+    }
+
+    /**
+     * Summary of a histogram, in microseconds
+     * Exposed as composite data through the loader MXBeans
+     */
+    public static class Snapshot {
+        private long count;
+        private long meanMicros;
+        private long medianMicros;
+        private long p99Micros;
+        private long maxMicros;
+
+        @ConstructorProperties ( { "count", "meanMicros", "medianMicros", "p99Micros", "maxMicros" } )
+        public Snapshot ( long count, long meanMicros, long medianMicros, long p99Micros, long maxMicros ) {
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.medianMicros = medianMicros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount ( ) {
+            return this.count;
+        }
+
+        public long getMeanMicros ( ) {
+            return this.meanMicros;
+        }
+
+        public long getMedianMicros ( ) {
+            return this.medianMicros;
+        }
+
+        public long getP99Micros ( ) {
+            return this.p99Micros;
+        }
+
+        public long getMaxMicros ( ) {
+            return this.maxMicros;
+        }
+
+        @Override
+        public String toString ( ) {
+            return String.format ( "count=%d mean=%dus median<=%dus p99<=%dus max=%dus",
+                    this.count, this.meanMicros, this.medianMicros, this.p99Micros, this.maxMicros );
+        }
+    }
+}
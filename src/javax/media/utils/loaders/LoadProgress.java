@@ -0,0 +1,95 @@
+package javax.media.utils.loaders;
+
+/**
+ * Snapshot of the progress of a {@link LoadScheduler}
+ * Entries and bytes count everything submitted so far, so totals grow as more manifests are submitted.
+ */
+public class LoadProgress {
+    private long totalEntries;
+    private long finishedEntries;
+    private long failedEntries;
+    private long totalBytes;
+    private long finishedBytes;
+
+    public LoadProgress ( long totalEntries, long finishedEntries, long failedEntries, long totalBytes, long finishedBytes ) {
+        this.totalEntries = totalEntries;
+        this.finishedEntries = finishedEntries;
+        this.failedEntries = failedEntries;
+        this.totalBytes = totalBytes;
+        this.finishedBytes = finishedBytes;
+    }
+
+    /**
+     * Returns the number of entries submitted
+     *
+     * @return the number of entries submitted
+     */
+    public long getTotalEntries ( ) {
+        return this.totalEntries;
+    }
+
+    /**
+     * Returns the number of entries that finished loading, including those that failed
+     *
+     * @return the number of finished entries
+     */
+    public long getFinishedEntries ( ) {
+        return this.finishedEntries;
+    }
+
+    /**
+     * Returns the number of entries that failed to load
+     *
+     * @return the number of failed entries
+     */
+    public long getFailedEntries ( ) {
+        return this.failedEntries;
+    }
+
+    /**
+     * Returns the size in bytes of the resources of all submitted entries
+     * Resources whose size cannot be determined without reading them count as 0 bytes
+     *
+     * @return the number of bytes submitted
+     */
+    public long getTotalBytes ( ) {
+        return this.totalBytes;
+    }
+
+    /**
+     * Returns the size in bytes of the resources of all finished entries
+     *
+     * @return the number of bytes finished
+     */
+    public long getFinishedBytes ( ) {
+        return this.finishedBytes;
+    }
+
+    /**
+     * Returns the fraction of work done, by bytes if sizes are known and by entries otherwise
+     *
+     * @return a value from 0 to 1, or 1 if nothing was submitted
+     */
+    public double getFraction ( ) {
+        if ( this.totalBytes > 0 )
+            return (double) this.finishedBytes / this.totalBytes;
+        if ( this.totalEntries > 0 )
+            return (double) this.finishedEntries / this.totalEntries;
+        return 1;
+    }
+
+    /**
+     * Returns true if every submitted entry has finished loading
+     *
+     * @return true if nothing is left to load
+     */
+    public boolean isDone ( ) {
+        return this.finishedEntries == this.totalEntries;
+    }
+
+    @Override
+    public String toString ( ) {
+        return String.format ( "%d of %d entries (%d failed), %d of %d bytes, %.0f%%",
+                this.finishedEntries, this.totalEntries, this.failedEntries, this.finishedBytes, this.totalBytes, this.getFraction ( ) * 100 );
+    }
+}
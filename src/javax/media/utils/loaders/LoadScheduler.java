@@ -0,0 +1,267 @@
+package javax.media.utils.loaders;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads assets in the background, highest priority first.
+ *
+ * Loaders submit one task per asset, keyed by a name that is unique across loaders, and
+ * get a {@link CompletableFuture} completing once the asset is loaded. Tasks of equal priority
+ * run in the order they were submitted. The priority of a waiting task can be raised at any
+ * time, and a task can be taken out of the queue and run on the calling thread when its asset
+ * is needed right away, so a loading screen only waits for the assets the first scene needs.
+ *
+ * A single scheduler can be shared by an ImageLoader and a SoundLoader, so their progress
+ * is reported together.
+ */
+public class LoadScheduler implements Closeable {
+
+    /**
+     * Priority of tasks submitted without a priority
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
+    /**
+     * Waiting tasks, highest priority first
+     * Its lock guards the priorities of waiting tasks
+     */
+    private PriorityQueue<Task<?>> queue = new PriorityQueue<Task<?>> ( );
+
+    /**
+     * Tasks that have not finished yet, by key
+     */
+    private Map<String, Task<?>> tasks = new ConcurrentHashMap<String, Task<?>> ( );
+
+    private Thread[] workers;
+    private volatile boolean closed = false;
+
+    /**
+     * Number of tasks submitted so far, used to keep submission order among equal priorities
+     */
+    private long submitted = 0;
+
+    private AtomicLong totalEntries = new AtomicLong ( );
+    private AtomicLong finishedEntries = new AtomicLong ( );
+    private AtomicLong failedEntries = new AtomicLong ( );
+    private AtomicLong totalBytes = new AtomicLong ( );
+    private AtomicLong finishedBytes = new AtomicLong ( );
+
+    /**
+     * Creates and starts a scheduler loading on the given number of daemon threads
+     *
+     * @param threads Number of threads to load on, at least 1
+     */
+    public LoadScheduler ( int threads ) {
+        this.workers = new Thread[Math.max ( 1, threads )];
+        for ( int i = 0; i < this.workers.length; i++ ) {
+            this.workers[i] = new Thread ( new Runnable ( ) {
+                @Override
+                public void run ( ) {
+                    LoadScheduler.this.work ( );
+                }
+            }, "LoadScheduler-" + i );
+            this.workers[i].setDaemon ( true );
+            this.workers[i].start ( );
+        }
+    }
+
+    /**
+     * Submits a task loading an asset.
+     * If a task with the same key has not finished yet, no new task is submitted; the waiting task
+     * is raised to the given priority if it is lower, and its future is returned.
+     *
+     * @param key Name of the asset, unique across all loaders sharing this scheduler
+     * @param priority Priority of the task, higher priorities load first
+     * @param bytes Size of the resources of the asset, used to report progress, or 0 if unknown
+     * @param work Loads the asset, and returns the loaded asset
+     * @return a future completing with the result of the task, or exceptionally if it throws
+     * @throws IllegalStateException if the scheduler is closed
+     */
+    @SuppressWarnings ( "unchecked" )
+    public <T> CompletableFuture<T> submit ( String key, int priority, long bytes, Callable<T> work ) {
+        if ( this.closed )
+            throw new IllegalStateException ( "Load scheduler is closed" );
+
+        synchronized ( this.queue ) {
+            Task<?> existing = this.tasks.get ( key );
+            if ( existing != null ) {
+                this.raise ( existing, priority );
+                return (CompletableFuture<T>) existing.future;
+            }
+
+            Task<T> task = new Task<T> ( key, priority, this.submitted++, Math.max ( 0, bytes ), work );
+            this.tasks.put ( key, task );
+            this.totalEntries.incrementAndGet ( );
+            this.totalBytes.addAndGet ( task.bytes );
+            this.queue.add ( task );
+            this.queue.notify ( );
+            return task.future;
+        }
+    }
+
+    /**
+     * Raises the priority of the task with the given key, if it is waiting and its priority is lower
+     *
+     * @param key Name of the asset
+     * @param priority New priority of the task
+     * @return true if the task is still waiting, whether or not its priority changed
+     */
+    public boolean prioritize ( String key, int priority ) {
+        synchronized ( this.queue ) {
+            Task<?> task = this.tasks.get ( key );
+            return task != null && this.raise ( task, priority );
+        }
+    }
+
+    /**
+     * Runs the task with the given key on the calling thread if it is still waiting,
+     * and returns its future. If another thread is already running the task, its future
+     * is returned right away, and completes once that thread is done.
+     *
+     * @param key Name of the asset
+     * @return the future of the task, or null if there is no unfinished task with the given key
+     */
+    public CompletableFuture<?> expedite ( String key ) {
+        Task<?> task;
+        synchronized ( this.queue ) {
+            task = this.tasks.get ( key );
+            if ( task == null )
+                return null;
+            if ( !this.queue.remove ( task ) )
+                return task.future;
+        }
+        this.run ( task );
+        return task.future;
+    }
+
+    /**
+     * Returns true if the task with the given key has not finished yet
+     *
+     * @param key Name of the asset
+     * @return true if the task is waiting or running
+     */
+    public boolean isPending ( String key ) {
+        return this.tasks.containsKey ( key );
+    }
+
+    /**
+     * Returns the progress of all tasks submitted so far
+     *
+     * @return a snapshot of the progress
+     */
+    public LoadProgress getProgress ( ) {
+        return new LoadProgress ( this.totalEntries.get ( ), this.finishedEntries.get ( ), this.failedEntries.get ( ),
+                this.totalBytes.get ( ), this.finishedBytes.get ( ) );
+    }
+
+    /**
+     * Stops the worker threads once their current tasks are done
+     * Waiting tasks are cancelled
+     */
+    @Override
+    public void close ( ) {
+        this.closed = true;
+        synchronized ( this.queue ) {
+            Task<?> task;
+            while ( ( task = this.queue.poll ( ) ) != null ) {
+                this.tasks.remove ( task.key );
+                task.future.cancel ( false );
+            }
+            this.queue.notifyAll ( );
+        }
+    }
+
+    /**
+     * Raises the priority of the given task if it is waiting and its priority is lower
+     * Must be called while holding the queue lock
+     *
+     * @return true if the task is waiting
+     */
+    private boolean raise ( Task<?> task, int priority ) {
+        if ( !this.queue.remove ( task ) )
+            return false;
+        task.priority = Math.max ( task.priority, priority );
+        this.queue.add ( task );
+        return true;
+    }
+
+    /**
+     * Runs tasks until the scheduler is closed
+     */
+    private void work ( ) {
+        while ( true ) {
+            Task<?> task;
+            synchronized ( this.queue ) {
+                while ( !this.closed && this.queue.isEmpty ( ) ) {
+                    try {
+                        this.queue.wait ( );
+                    } catch ( InterruptedException e ) {
+                        return;
+                    }
+                }
+                if ( this.closed )
+                    return;
+                task = this.queue.poll ( );
+            }
+            this.run ( task );
+        }
+    }
+
+    /**
+     * Runs the given task, which must already be taken out of the queue
+     */
+    private <T> void run ( Task<T> task ) {
+        try {
+            T result = task.work.call ( );
+            this.finish ( task, false );
+            task.future.complete ( result );
+        } catch ( Throwable t ) {
+            this.finish ( task, true );
+            task.future.completeExceptionally ( t );
+        }
+    }
+
+    /**
+     * Counts the given task as finished, before its future completes so progress is never behind
+     */
+    private void finish ( Task<?> task, boolean failed ) {
+        this.tasks.remove ( task.key );
+        this.finishedBytes.addAndGet ( task.bytes );
+        if ( failed )
+            this.failedEntries.incrementAndGet ( );
+        this.finishedEntries.incrementAndGet ( );
+    }
+
+    /**
+     * A submitted task, ordered by descending priority, then by submission order
+     */
+    private static class Task<T> implements Comparable<Task<?>> {
+        private String key;
+        private int priority;
+        private long sequence;
+        private long bytes;
+        private Callable<T> work;
+        private CompletableFuture<T> future = new CompletableFuture<T> ( );
+
+        Task ( String key, int priority, long sequence, long bytes, Callable<T> work ) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.bytes = bytes;
+            this.work = work;
+        }
+
+        @Override
+        public int compareTo ( Task<?> other ) {
+            if ( this.priority != other.priority )
+                return this.priority > other.priority ? -1 : 1;
+            return Long.compare ( this.sequence, other.sequence );
+        }
+    }
+}
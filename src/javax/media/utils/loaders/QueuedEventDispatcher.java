@@ -0,0 +1,88 @@
+package javax.media.utils.loaders;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Queues events in a fixed size ring buffer until the consumer calls {@link #drain()},
+ * typically once per iteration of a game loop.
+ * 
+ * Any number of threads may dispatch events, but only a single thread may drain them.
+ * Dispatching never blocks and never allocates: if the buffer is full, the event is dropped
+ * and counted in {@link #getDroppedEvents()}.
+ */
+public class QueuedEventDispatcher implements EventDispatcher {
+    private AtomicReferenceArray<Runnable> slots;
+    private int mask;
+
+    /**
+     * Sequence number of the next slot to be claimed by a producer
+     */
+    private AtomicLong tail = new AtomicLong ( );
+
+    /**
+     * Sequence number of the next slot to be consumed; only written by the consumer
+     */
+    private volatile long head = 0;
+
+    private AtomicLong dropped = new AtomicLong ( );
+
+    /**
+     * Creates a dispatcher queueing at most the given number of events
+     * 
+     * @param capacity Maximum number of queued events, rounded up to a power of two
+     */
+    public QueuedEventDispatcher ( int capacity ) {
+        int size = Integer.highestOneBit ( Math.max ( 2, capacity ) - 1 ) << 1;
+        this.slots = new AtomicReferenceArray<Runnable> ( size );
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void dispatch ( Runnable event ) {
+        long claimed;
+        do {
+            claimed = this.tail.get ( );
+            if ( claimed - this.head >= this.slots.length ( ) ) {
+                this.dropped.incrementAndGet ( );
+                return;
+            }
+        } while ( !this.tail.compareAndSet ( claimed, claimed + 1 ) );
+
+        this.slots.set ( (int) ( claimed & this.mask ), event );
+    }
+
+    /**
+     * Delivers all queued events on the calling thread
+     * Must only be called from one thread at a time
+     * 
+     * @return the number of events delivered
+     */
+    public int drain ( ) {
+        int delivered = 0;
+        long next = this.head;
+        Runnable event;
+
+        while ( ( event = this.slots.get ( (int) ( next & this.mask ) ) ) != null ) {
+            this.slots.set ( (int) ( next & this.mask ), null );
+            this.head = ++next;
+            delivered++;
+            try {
+                event.run ( );
+            } catch ( RuntimeException e ) {
+                // A failing watcher must not keep the remaining events from being delivered
+                System.err.println ( "Failed to deliver event " + event + ": " + e );
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer was full
+     * 
+     * @return the number of dropped events
+     */
+    public long getDroppedEvents ( ) {
+        return this.dropped.get ( );
+    }
+}
@@ -0,0 +1,331 @@
+package javax.media.utils.loaders;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a set of files for changes, and reports them to a listener in batches.
+ *
+ * The directories containing the watched files are registered with a {@link WatchService},
+ * and a single background thread collects the events for watched files. Editors and build
+ * tools often write a file several times in a row, so changes are only reported once no
+ * further events have arrived for the debounce delay, and every changed file is reported
+ * once per batch.
+ *
+ * Loaders watch the resources they loaded through {@link #ResourceWatcher(long, String, Class, Path, Reloader)},
+ * which keeps track of the resources read from every file, and hands changed resources and a changed
+ * configuration file to a {@link Reloader}.
+ */
+public class ResourceWatcher implements Closeable {
+
+    /**
+     * Receives batches of changed files
+     */
+    public interface Listener {
+        /**
+         * Called on the watcher thread once the given files have stopped changing
+         *
+         * @param files Changed files, in the order they first changed
+         */
+        public void filesChanged ( Set<Path> files );
+    }
+
+    /**
+     * Reloads the configuration file and resources of a loader
+     */
+    public interface Reloader {
+        /**
+         * Called on the watcher thread when the configuration file changed
+         *
+         * @param configurationFile Contents of the changed configuration file
+         * @return the resources loaded by the configuration file that are not watched yet
+         * @throws IOException if the configuration file or a resource could not be read
+         * @throws BadConfigurationLineException if the configuration file contains invalid lines
+         */
+        public List<String> reloadConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException;
+
+        /**
+         * Called on the watcher thread when the file of a resource changed
+         *
+         * @param resource Name of the changed resource
+         * @throws IOException if the resource could not be read
+         * @throws BadConfigurationLineException if the resource no longer fits its configuration line
+         */
+        public void reloadResource ( String resource ) throws IOException, BadConfigurationLineException;
+    }
+
+    private WatchService service;
+    private Listener listener;
+    private long debounce;
+
+    /**
+     * Absolute paths of all watched files
+     */
+    private Set<Path> files = Collections.synchronizedSet ( new HashSet<Path> ( ) );
+
+    /**
+     * Watched directories by watch key
+     */
+    private Map<WatchKey, Path> directories = Collections.synchronizedMap ( new HashMap<WatchKey, Path> ( ) );
+
+    private Thread thread;
+
+    /**
+     * Kind of resources reloaded, used in messages
+     */
+    private String kind;
+
+    /**
+     * Class the resources are read with, or null if they are not read from the classpath
+     */
+    private Class<?> resourceClass;
+
+    /**
+     * Absolute path of the watched configuration file, or null
+     */
+    private Path configurationFile;
+
+    private Reloader reloader;
+
+    /**
+     * Resources read from every watched resource file
+     */
+    private Map<Path, List<String>> resourceFiles = new HashMap<Path, List<String>> ( );
+
+    /**
+     * Creates and starts a watcher reporting changes to the given listener
+     *
+     * @param debounce Time in ms without events before changes are reported
+     * @param listener Listener to report changes to
+     * @throws IOException if the file system cannot be watched
+     */
+    public ResourceWatcher ( long debounce, Listener listener ) throws IOException {
+        this.listener = listener;
+        this.start ( debounce );
+    }
+
+    /**
+     * Creates and starts a watcher reloading changed resources and the given configuration file
+     * with the given reloader. Resources are added with {@link #watchResources(Collection)}.
+     *
+     * Resources are watched where the class loader finds them, so only resources in directories
+     * on the classpath can be watched; resources inside jars or asset bundles are skipped.
+     *
+     * @param debounce Time in ms a file must be left alone before it is reloaded
+     * @param kind Kind of resources reloaded, such as "Image", used in messages
+     * @param resourceClass Class the resources are read with, or null if they are not read from the classpath
+     * @param configurationFile Configuration file to watch, or null
+     * @param reloader Reloader to hand changes to
+     * @throws IOException if the file system or the configuration file cannot be watched
+     */
+    public ResourceWatcher ( long debounce, String kind, Class<?> resourceClass, Path configurationFile, Reloader reloader ) throws IOException {
+        this.kind = kind;
+        this.resourceClass = resourceClass;
+        this.configurationFile = configurationFile == null ? null : configurationFile.toAbsolutePath ( ).normalize ( );
+        this.reloader = reloader;
+        this.listener = new Listener ( ) {
+            @Override
+            public void filesChanged ( Set<Path> files ) {
+                for ( Path file : files )
+                    ResourceWatcher.this.fileChanged ( file );
+            }
+        };
+        this.start ( debounce );
+
+        if ( this.configurationFile != null )
+            this.watch ( this.configurationFile );
+    }
+
+    /**
+     * Opens the watch service and starts the watcher thread
+     */
+    private void start ( long debounce ) throws IOException {
+        this.service = FileSystems.getDefault ( ).newWatchService ( );
+        this.debounce = Math.max ( 1, debounce );
+
+        this.thread = new Thread ( new Runnable ( ) {
+            @Override
+            public void run ( ) {
+                ResourceWatcher.this.run ( );
+            }
+        }, "ResourceWatcher" );
+        this.thread.setDaemon ( true );
+        this.thread.start ( );
+    }
+
+    /**
+     * Starts watching the given file
+     * Its directory must exist, but the file itself may be created later
+     *
+     * @param file File to watch
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public void watch ( Path file ) throws IOException {
+        file = file.toAbsolutePath ( ).normalize ( );
+        Path directory = file.getParent ( );
+        synchronized ( this.directories ) {
+            if ( !this.directories.containsValue ( directory ) )
+                this.directories.put ( directory.register ( this.service,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY ), directory );
+        }
+        this.files.add ( file );
+    }
+
+    /**
+     * Starts watching the files of the given resources, so they are handed to the reloader when they change
+     *
+     * @param resources Names of the resources to watch
+     * @throws IOException if the directory of a resource cannot be watched
+     * @throws IllegalStateException if this watcher has no reloader
+     */
+    public synchronized void watchResources ( Collection<String> resources ) throws IOException {
+        if ( this.reloader == null )
+            throw new IllegalStateException ( "Watcher has no reloader to reload resources with" );
+
+        for ( String resource : resources ) {
+            Path file = this.resourceClass == null ? null : ResourceWatcher.getResourceFile ( this.resourceClass, resource );
+            if ( file == null ) {
+                System.err.println ( this.kind + " resource " + resource + " is not a file, changes to it are not watched" );
+                continue;
+            }
+
+            file = file.toAbsolutePath ( ).normalize ( );
+            List<String> fileResources = this.resourceFiles.get ( file );
+            if ( fileResources == null ) {
+                fileResources = new ArrayList<String> ( );
+                this.resourceFiles.put ( file, fileResources );
+                this.watch ( file );
+            }
+            if ( !fileResources.contains ( resource ) )
+                fileResources.add ( resource );
+        }
+    }
+
+    /**
+     * Returns the file the given resource is read from by the given class, or null if it is not read from a file
+     *
+     * @param resourceClass Class the resource is read with
+     * @param resource Name of the resource
+     * @return the file of the resource, or null if it is not read from a file
+     */
+    public static Path getResourceFile ( Class<?> resourceClass, String resource ) {
+        URL url = resourceClass.getResource ( resource );
+        if ( url == null || !"file".equals ( url.getProtocol ( ) ) )
+            return null;
+        try {
+            return Paths.get ( url.toURI ( ) );
+        } catch ( URISyntaxException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Reloads whatever was read from the given changed file
+     * Called on the watcher thread
+     */
+    private synchronized void fileChanged ( Path file ) {
+        try {
+            if ( file.equals ( this.configurationFile ) ) {
+                System.out.println ( "Reloading " + this.kind.toLowerCase ( ) + " configuration file: " + file );
+                try ( InputStream stream = Files.newInputStream ( file ) ) {
+                    this.watchResources ( this.reloader.reloadConfig ( stream ) );
+                }
+                return;
+            }
+
+            List<String> resources = this.resourceFiles.get ( file );
+            if ( resources == null )
+                return;
+            for ( String resource : resources ) {
+                System.out.println ( "Reloading " + this.kind.toLowerCase ( ) + " resource: " + resource );
+                this.reloader.reloadResource ( resource );
+            }
+        } catch ( BadConfigurationLineException e ) {
+            System.err.println ( "Failed to reload " + file + ", line " + e.getLineNumber ( ) + ": " + e.getMessage ( ) );
+        } catch ( IOException e ) {
+            System.err.println ( "Failed to reload " + file + ": " + e.getMessage ( ) );
+        }
+    }
+
+    /**
+     * Returns true if the given file is watched
+     *
+     * @param file File to check
+     * @return true if the given file is watched
+     */
+    public boolean isWatched ( Path file ) {
+        return this.files.contains ( file.toAbsolutePath ( ).normalize ( ) );
+    }
+
+    /**
+     * Collects events and reports them once they stop arriving
+     */
+    private void run ( ) {
+        Set<Path> changed = new LinkedHashSet<Path> ( );
+        try {
+            while ( true ) {
+                WatchKey key = changed.isEmpty ( ) ? this.service.take ( ) : this.service.poll ( this.debounce, TimeUnit.MILLISECONDS );
+                if ( key == null ) {
+                    // Quiet for the whole debounce delay
+                    this.report ( changed );
+                    changed = new LinkedHashSet<Path> ( );
+                    continue;
+                }
+
+                Path directory = this.directories.get ( key );
+                for ( WatchEvent<?> event : key.pollEvents ( ) ) {
+                    if ( directory == null || event.kind ( ) == StandardWatchEventKinds.OVERFLOW )
+                        continue;
+                    Path file = directory.resolve ( (Path) event.context ( ) );
+                    if ( this.files.contains ( file ) )
+                        changed.add ( file );
+                }
+                key.reset ( );
+            }
+        } catch ( InterruptedException e ) {
+            // Closed
+        } catch ( ClosedWatchServiceException e ) {
+            // Closed
+        }
+    }
+
+    private void report ( Set<Path> changed ) {
+        try {
+            this.listener.filesChanged ( Collections.unmodifiableSet ( changed ) );
+        } catch ( RuntimeException e ) {
+            // Don't let a failed reload stop watching
+            System.err.println ( "Failed to reload " + changed + ": " + e );
+        }
+    }
+
+    /**
+     * Stops watching all files
+     */
+    @Override
+    public void close ( ) throws IOException {
+        this.service.close ( );
+        this.thread.interrupt ( );
+    }
+}
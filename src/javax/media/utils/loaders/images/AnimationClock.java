@@ -0,0 +1,109 @@
+package javax.media.utils.loaders.images;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single clock driving many {@link ImageAnimator}s.
+ *
+ * Instead of every animator running its own Swing timer, running animators register
+ * with a clock, which advances every animator that is due in one pass per tick on a
+ * single background thread. The clock does not use Swing or AWT, so it works headless.
+ *
+ * Animators are advanced on the clock's thread, so watchers are notified on that thread.
+ */
+public class AnimationClock {
+
+    /**
+     * Currently registered animators
+     * Replaced (never modified) on registration, so ticks can iterate it without locking or allocating
+     */
+    private volatile ImageAnimator[] animators = new ImageAnimator[0];
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates and starts a clock that checks for due animators at the given interval
+     * The resolution should be no larger than the shortest frame duration of the animators using it
+     *
+     * @param resolution Time between ticks in ms
+     */
+    public AnimationClock ( long resolution ) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor ( new ThreadFactory ( ) {
+            @Override
+            public Thread newThread ( Runnable r ) {
+                Thread thread = new Thread ( r, "AnimationClock" );
+                thread.setDaemon ( true );
+                return thread;
+            }
+        } );
+        this.scheduler.scheduleAtFixedRate ( new Runnable ( ) {
+            @Override
+            public void run ( ) {
+                AnimationClock.this.tick ( System.nanoTime ( ) );
+            }
+        }, resolution, resolution, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Advances every registered animator that is due at the given time
+     *
+     * @param now Current System.nanoTime
+     */
+    public void tick ( long now ) {
+        for ( ImageAnimator animator : this.animators ) {
+            try {
+                animator.clockTick ( now );
+            } catch ( RuntimeException e ) {
+                // Don't let a single failing animator or watcher stop the clock
+                System.err.println ( "Failed to advance animator " + animator + ": " + e );
+            }
+        }
+    }
+
+    /**
+     * Returns the number of animators currently registered
+     *
+     * @return the number of animators currently registered
+     */
+    public int countAnimators ( ) {
+        return this.animators.length;
+    }
+
+    /**
+     * Called by animators when they start
+     */
+    synchronized void register ( ImageAnimator animator ) {
+        ImageAnimator[] current = this.animators;
+        ImageAnimator[] updated = Arrays.copyOf ( current, current.length + 1 );
+        updated[current.length] = animator;
+        this.animators = updated;
+    }
+
+    /**
+     * Called by animators when they stop
+     */
+    synchronized void unregister ( ImageAnimator animator ) {
+        ImageAnimator[] current = this.animators;
+        for ( int i = 0; i < current.length; i++ ) {
+            if ( current[i] == animator ) {
+                ImageAnimator[] updated = new ImageAnimator[current.length - 1];
+                System.arraycopy ( current, 0, updated, 0, i );
+                System.arraycopy ( current, i + 1, updated, i, current.length - i - 1 );
+                this.animators = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the clock thread
+     * Registered animators are no longer advanced
+     */
+    public void shutdown ( ) {
+        this.scheduler.shutdown ( );
+    }
+}
@@ -0,0 +1,321 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Animates a large number of image sequences without an object per animation.
+ *
+ * The state of every animation is kept in parallel primitive arrays, addressed by int handles,
+ * and all animations are advanced together by {@link #update(long)} in a single loop over those
+ * arrays. There are no timers and no watchers: callers advance the pool from their own loop and
+ * poll {@link #isFinished(int)} where needed.
+ *
+ * The pool is not thread safe; it should be updated and queried from a single thread.
+ */
+public class AnimatorPool {
+    private static final byte USED = 1;
+    private static final byte RUNNING = 2;
+    private static final byte REPEATING = 4;
+    private static final byte FINISHED = 8;
+
+    /**
+     * Number of animations below which a parallel update is not split further
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    private ImageHolder[] holders;
+    private int[] frames;
+    private int[] counts;
+    private long[] elapsed;
+    private long[] periods;
+    private byte[] flags;
+
+    /**
+     * Number of handles in use or freed; all arrays are valid up to this index
+     */
+    private int size = 0;
+
+    /**
+     * Handles that have been removed and can be reused
+     */
+    private int[] free;
+    private int freeCount = 0;
+
+    /**
+     * Creates a new pool with room for the given number of animations
+     * The pool grows as needed
+     *
+     * @param capacity Initial number of animations
+     */
+    public AnimatorPool ( int capacity ) {
+        capacity = Math.max ( 1, capacity );
+        this.holders = new ImageHolder[capacity];
+        this.frames = new int[capacity];
+        this.counts = new int[capacity];
+        this.elapsed = new long[capacity];
+        this.periods = new long[capacity];
+        this.flags = new byte[capacity];
+        this.free = new int[capacity];
+    }
+
+    /**
+     * Adds a new, stopped, animation of the given holder
+     *
+     * @param holder Holder of the images to animate
+     * @param tickrate Duration of each frame in ms
+     * @return the handle of the new animation
+     */
+    public int add ( ImageHolder holder, long tickrate ) {
+        int handle;
+        if ( this.freeCount > 0 ) {
+            handle = this.free[--this.freeCount];
+        } else {
+            if ( this.size == this.flags.length )
+                this.grow ( );
+            handle = this.size++;
+        }
+
+        this.holders[handle] = holder;
+        this.frames[handle] = 0;
+        this.counts[handle] = holder.countImages ( );
+        this.elapsed[handle] = 0;
+        this.periods[handle] = Math.max ( 0, tickrate ) * 1000000L;
+        this.flags[handle] = USED;
+        return handle;
+    }
+
+    /**
+     * Removes the given animation; its handle may be reused by later calls to {@link #add(ImageHolder, long)}
+     *
+     * @param handle Handle of animation
+     */
+    public void remove ( int handle ) {
+        this.check ( handle );
+        this.holders[handle] = null;
+        this.flags[handle] = 0;
+        this.free[this.freeCount++] = handle;
+    }
+
+    /**
+     * Returns the number of animations in the pool
+     *
+     * @return the number of animations in the pool
+     */
+    public int countAnimations ( ) {
+        return this.size - this.freeCount;
+    }
+
+    /**
+     * Starts or resumes the given animation
+     *
+     * @param handle Handle of animation
+     */
+    public void start ( int handle ) {
+        this.refresh ( handle );
+        this.flags[handle] = (byte) ( ( this.flags[handle] | RUNNING ) & ~FINISHED );
+    }
+
+    /**
+     * Stops the given animation, keeping its position
+     *
+     * @param handle Handle of animation
+     */
+    public void stop ( int handle ) {
+        this.check ( handle );
+        this.flags[handle] &= ~RUNNING;
+    }
+
+    /**
+     * Restarts the given animation at the given image
+     *
+     * @param handle Handle of animation
+     * @param position Image to restart at
+     */
+    public void restartAt ( int handle, int position ) {
+        this.refresh ( handle );
+        if ( position < 0 || position >= this.counts[handle] )
+            return;
+        this.frames[handle] = position;
+        this.elapsed[handle] = this.periods[handle] * position;
+        this.start ( handle );
+    }
+
+    /**
+     * Reads the number of images of the holder of the given animation again
+     * The pool reads it when an animation is added, started or restarted; call this after images were
+     * added to or removed from a holder while its animations run. An animation past the new last image
+     * continues from the last image.
+     *
+     * @param handle Handle of animation
+     */
+    public void refresh ( int handle ) {
+        this.check ( handle );
+        int count = this.holders[handle].countImages ( );
+        this.counts[handle] = count;
+        if ( this.frames[handle] >= count ) {
+            this.frames[handle] = Math.max ( 0, count - 1 );
+            this.elapsed[handle] = this.periods[handle] * this.frames[handle];
+        }
+    }
+
+    /**
+     * Enable/Disable looping of the given animation
+     *
+     * @param handle Handle of animation
+     * @param shouldRepeat True to enable, false to disable
+     */
+    public void setRepeating ( int handle, boolean shouldRepeat ) {
+        this.check ( handle );
+        if ( shouldRepeat )
+            this.flags[handle] |= REPEATING;
+        else
+            this.flags[handle] &= ~REPEATING;
+    }
+
+    /**
+     * Returns true if the given animation is running
+     *
+     * @param handle Handle of animation
+     * @return true if the given animation is running
+     */
+    public boolean isRunning ( int handle ) {
+        this.check ( handle );
+        return ( this.flags[handle] & RUNNING ) != 0;
+    }
+
+    /**
+     * Returns true if the given animation has reached its last image, and will not repeat
+     *
+     * @param handle Handle of animation
+     * @return true if the given animation has finished
+     */
+    public boolean isFinished ( int handle ) {
+        this.check ( handle );
+        return ( this.flags[handle] & FINISHED ) != 0;
+    }
+
+    /**
+     * Returns the position of the given animation in its sequence
+     *
+     * @param handle Handle of animation
+     * @return the position of the given animation in its sequence
+     */
+    public int getCurrentPosition ( int handle ) {
+        this.check ( handle );
+        return this.frames[handle];
+    }
+
+    /**
+     * Returns the current image of the given animation
+     *
+     * @param handle Handle of animation
+     * @return the current image of the given animation
+     * @see ImageHolder#getLoadedImage(int)
+     */
+    public BufferedImage getCurrentImage ( int handle ) {
+        this.check ( handle );
+        return this.holders[handle].getLoadedImage ( this.frames[handle] );
+    }
+
+    /**
+     * Advances every running animation by the given time
+     *
+     * @param delta Time passed since the last update, in nanoseconds
+     */
+    public void update ( long delta ) {
+        this.update ( delta, 0, this.size );
+    }
+
+    /**
+     * Advances every running animation by the given time, splitting the work across the given pool
+     *
+     * @param delta Time passed since the last update, in nanoseconds
+     * @param pool Pool to update animations on
+     */
+    public void update ( long delta, ForkJoinPool pool ) {
+        if ( this.size < PARALLEL_THRESHOLD )
+            this.update ( delta, 0, this.size );
+        else
+            pool.invoke ( new UpdateTask ( delta, 0, this.size ) );
+    }
+
+    /**
+     * Advances the running animations with handles in the given range
+     */
+    private void update ( long delta, int from, int to ) {
+        final int[] frames = this.frames;
+        final int[] counts = this.counts;
+        final long[] elapsed = this.elapsed;
+        final long[] periods = this.periods;
+        final byte[] flags = this.flags;
+
+        for ( int i = from; i < to; i++ ) {
+            int flag = flags[i];
+            long period = periods[i];
+            int count = counts[i];
+            if ( ( flag & RUNNING ) == 0 || period == 0 || count == 0 )
+                continue;
+
+            long time = elapsed[i] + delta;
+            long last = period * ( count - 1 );
+            if ( ( flag & REPEATING ) != 0 ) {
+                time %= period * count;
+            } else if ( time >= last ) {
+                time = last;
+                flags[i] = (byte) ( ( flag & ~RUNNING ) | FINISHED );
+            }
+
+            elapsed[i] = time;
+            frames[i] = (int) ( time / period );
+        }
+    }
+
+    private void check ( int handle ) {
+        if ( handle < 0 || handle >= this.size || ( this.flags[handle] & USED ) == 0 )
+            throw new NoSuchElementException ( "No animation with handle " + handle );
+    }
+
+    private void grow ( ) {
+        int capacity = this.flags.length * 2;
+        this.holders = Arrays.copyOf ( this.holders, capacity );
+        this.frames = Arrays.copyOf ( this.frames, capacity );
+        this.counts = Arrays.copyOf ( this.counts, capacity );
+        this.elapsed = Arrays.copyOf ( this.elapsed, capacity );
+        this.periods = Arrays.copyOf ( this.periods, capacity );
+        this.flags = Arrays.copyOf ( this.flags, capacity );
+        this.free = Arrays.copyOf ( this.free, capacity );
+    }
+
+    /**
+     * Updates a range of animations, splitting it in half until it is small enough
+     */
+    @SuppressWarnings ( "serial" )
+    private class UpdateTask extends RecursiveAction {
+        private long delta;
+        private int from;
+        private int to;
+
+        UpdateTask ( long delta, int from, int to ) {
+            this.delta = delta;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute ( ) {
+            if ( this.to - this.from <= PARALLEL_THRESHOLD ) {
+                AnimatorPool.this.update ( this.delta, this.from, this.to );
+                return;
+            }
+
+            int middle = ( this.from + this.to ) >>> 1;
+            RecursiveAction.invokeAll (
+                    new UpdateTask ( this.delta, this.from, middle ),
+                    new UpdateTask ( this.delta, middle, this.to ) );
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package javax.media.utils.loaders.images;
+
+/**
+ * Describes the result of packing images into an {@link ImageAtlas}
+ */
+public class AtlasReport {
+    private int pages;
+    private int packedImages;
+    private int skippedImages;
+    private long packedArea;
+    private long pageArea;
+    private long bytesBefore;
+    private long bytesAfter;
+
+    public AtlasReport ( int pages, int packedImages, int skippedImages, long packedArea, long pageArea, long bytesBefore, long bytesAfter ) {
+        this.pages = pages;
+        this.packedImages = packedImages;
+        this.skippedImages = skippedImages;
+        this.packedArea = packedArea;
+        this.pageArea = pageArea;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+    }
+
+    /**
+     * Returns the number of atlas pages created
+     *
+     * @return the number of atlas pages created
+     */
+    public int getPages ( ) {
+        return this.pages;
+    }
+
+    /**
+     * Returns the number of images that were packed into pages
+     *
+     * @return the number of images that were packed into pages
+     */
+    public int getPackedImages ( ) {
+        return this.packedImages;
+    }
+
+    /**
+     * Returns the number of images that were too large to be packed
+     *
+     * @return the number of images that were too large to be packed
+     */
+    public int getSkippedImages ( ) {
+        return this.skippedImages;
+    }
+
+    /**
+     * Returns the fraction of the page area covered by packed images (0 - 1)
+     *
+     * @return the fraction of the page area covered by packed images
+     */
+    public double getEfficiency ( ) {
+        if ( this.pageArea == 0 )
+            return 0;
+        return (double) this.packedArea / this.pageArea;
+    }
+
+    /**
+     * Returns the decoded size in bytes of all images before packing
+     *
+     * @return the decoded size in bytes of all images before packing
+     */
+    public long getBytesBefore ( ) {
+        return this.bytesBefore;
+    }
+
+    /**
+     * Returns the decoded size in bytes of the pages and any images left unpacked
+     *
+     * @return the decoded size in bytes after packing
+     */
+    public long getBytesAfter ( ) {
+        return this.bytesAfter;
+    }
+
+    /**
+     * Returns the number of bytes saved by packing (negative if packing used more memory)
+     *
+     * @return the number of bytes saved by packing
+     */
+    public long getBytesSaved ( ) {
+        return this.bytesBefore - this.bytesAfter;
+    }
+
+    @Override
+    public String toString ( ) {
+        return String.format ( "%d images packed into %d pages (%d skipped), %.1f%% efficiency, %d -> %d bytes (%d saved)",
+                this.packedImages, this.pages, this.skippedImages, this.getEfficiency ( ) * 100,
+                this.bytesBefore, this.bytesAfter, this.getBytesSaved ( ) );
+    }
+}
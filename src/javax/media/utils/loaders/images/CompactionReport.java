@@ -0,0 +1,116 @@
+package javax.media.utils.loaders.images;
+
+/**
+ * Describes the result of {@link ImageLoader#compactColors(String, int)}
+ */
+public class CompactionReport {
+    private String name;
+    private int images;
+    private int indexed;
+    private boolean sharedPalette;
+    private long bytesBefore;
+    private long bytesAfter;
+    private long blitNanosBefore;
+    private long blitNanosAfter;
+
+    public CompactionReport ( String name, int images, int indexed, boolean sharedPalette, long bytesBefore, long bytesAfter,
+            long blitNanosBefore, long blitNanosAfter ) {
+        this.name = name;
+        this.images = images;
+        this.indexed = indexed;
+        this.sharedPalette = sharedPalette;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+        this.blitNanosBefore = blitNanosBefore;
+        this.blitNanosAfter = blitNanosAfter;
+    }
+
+    /**
+     * Returns the name of the compacted holder
+     *
+     * @return the name of the holder
+     */
+    public String getName ( ) {
+        return this.name;
+    }
+
+    /**
+     * Returns the number of images in the holder
+     *
+     * @return the number of images in the holder
+     */
+    public int getImages ( ) {
+        return this.images;
+    }
+
+    /**
+     * Returns the number of images stored with a palette after compaction
+     *
+     * @return the number of indexed images
+     */
+    public int getIndexed ( ) {
+        return this.indexed;
+    }
+
+    /**
+     * Returns true if all images of the holder share a single palette
+     *
+     * @return true if all images share a palette
+     */
+    public boolean isSharedPalette ( ) {
+        return this.sharedPalette;
+    }
+
+    /**
+     * Returns the decoded size in bytes of the images of the holder before compaction
+     *
+     * @return the decoded size in bytes before compaction
+     */
+    public long getBytesBefore ( ) {
+        return this.bytesBefore;
+    }
+
+    /**
+     * Returns the decoded size in bytes of the images of the holder after compaction
+     *
+     * @return the decoded size in bytes after compaction
+     */
+    public long getBytesAfter ( ) {
+        return this.bytesAfter;
+    }
+
+    /**
+     * Returns the number of bytes reclaimed by compaction
+     *
+     * @return the number of bytes reclaimed
+     */
+    public long getBytesSaved ( ) {
+        return this.bytesBefore - this.bytesAfter;
+    }
+
+    /**
+     * Returns the average time taken to draw an image of the holder before compaction
+     * Images are drawn into an off-screen TYPE_INT_ARGB_PRE image, so on-screen costs may differ
+     *
+     * @return the average time in ns to draw an image before compaction
+     */
+    public long getBlitNanosBefore ( ) {
+        return this.blitNanosBefore;
+    }
+
+    /**
+     * Returns the average time taken to draw an image of the holder after compaction
+     *
+     * @return the average time in ns to draw an image after compaction
+     */
+    public long getBlitNanosAfter ( ) {
+        return this.blitNanosAfter;
+    }
+
+    @Override
+    public String toString ( ) {
+        return String.format ( "%s: %d of %d images indexed%s, %d -> %d bytes (%d saved), blit %dns -> %dns",
+                this.name, this.indexed, this.images, this.sharedPalette ? " with a shared palette" : "",
+                this.bytesBefore, this.bytesAfter, this.getBytesSaved ( ), this.blitNanosBefore, this.blitNanosAfter );
+    }
+}
@@ -0,0 +1,70 @@
+package javax.media.utils.loaders.images;
+
+/**
+ * Describes the result of {@link ImageLoader#deduplicate()}
+ */
+public class DedupReport {
+    private int images;
+    private int duplicates;
+    private long bytesBefore;
+    private long bytesAfter;
+
+    public DedupReport ( int images, int duplicates, long bytesBefore, long bytesAfter ) {
+        this.images = images;
+        this.duplicates = duplicates;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+    }
+
+    /**
+     * Returns the number of images that were compared
+     *
+     * @return the number of images that were compared
+     */
+    public int getImages ( ) {
+        return this.images;
+    }
+
+    /**
+     * Returns the number of images replaced by an identical image
+     *
+     * @return the number of duplicate images
+     */
+    public int getDuplicates ( ) {
+        return this.duplicates;
+    }
+
+    /**
+     * Returns the decoded size in bytes of all images before deduplication
+     *
+     * @return the decoded size in bytes of all images before deduplication
+     */
+    public long getBytesBefore ( ) {
+        return this.bytesBefore;
+    }
+
+    /**
+     * Returns the decoded size in bytes of all images after deduplication
+     *
+     * @return the decoded size in bytes of all images after deduplication
+     */
+    public long getBytesAfter ( ) {
+        return this.bytesAfter;
+    }
+
+    /**
+     * Returns the number of bytes reclaimed by deduplication
+     * Images sliced from a strip only free memory once every image of the strip has been replaced
+     *
+     * @return the number of bytes reclaimed
+     */
+    public long getBytesSaved ( ) {
+        return this.bytesBefore - this.bytesAfter;
+    }
+
+    @Override
+    public String toString ( ) {
+        return String.format ( "%d of %d images were duplicates, %d -> %d bytes (%d saved)",
+                this.duplicates, this.images, this.bytesBefore, this.bytesAfter, this.getBytesSaved ( ) );
+    }
+}
@@ -0,0 +1,63 @@
+package javax.media.utils.loaders.images;
+
+/**
+ * Position of a trimmed image within the canvas it was cropped from.
+ * Drawing the trimmed image at the given offset from where the canvas would be drawn
+ * gives the same result as drawing the whole canvas.
+ *
+ * @see ImageLoader#setTrimTransparentBorders(boolean)
+ */
+public class FrameOffset {
+    private int x;
+    private int y;
+    private int canvasWidth;
+    private int canvasHeight;
+
+    public FrameOffset ( int x, int y, int canvasWidth, int canvasHeight ) {
+        this.x = x;
+        this.y = y;
+        this.canvasWidth = canvasWidth;
+        this.canvasHeight = canvasHeight;
+    }
+
+    /**
+     * Returns the horizontal position of the trimmed image within the canvas
+     *
+     * @return the left edge of the trimmed image, in canvas pixels
+     */
+    public int getX ( ) {
+        return this.x;
+    }
+
+    /**
+     * Returns the vertical position of the trimmed image within the canvas
+     *
+     * @return the top edge of the trimmed image, in canvas pixels
+     */
+    public int getY ( ) {
+        return this.y;
+    }
+
+    /**
+     * Returns the width of the image before it was trimmed
+     *
+     * @return the width of the canvas
+     */
+    public int getCanvasWidth ( ) {
+        return this.canvasWidth;
+    }
+
+    /**
+     * Returns the height of the image before it was trimmed
+     *
+     * @return the height of the canvas
+     */
+    public int getCanvasHeight ( ) {
+        return this.canvasHeight;
+    }
+
+    @Override
+    public String toString ( ) {
+        return String.format ( "(%d, %d) in %dx%d", this.x, this.y, this.canvasWidth, this.canvasHeight );
+    }
+}
@@ -11,6 +11,11 @@ public class GroupImageAnimator extends ImageAnimator {
         this.group = source;
     }
 
+    public GroupImageAnimator ( GroupImageHolder source, long tickrate, AnimationClock clock ) {
+        super ( source, tickrate, clock );
+        this.group = source;
+    }
+
     /**
      * Sets the current image to the one with the given name
      * 
@@ -24,6 +29,18 @@ public class GroupImageAnimator extends ImageAnimator {
         this.currentImage = index;
     }
 
+    /**
+     * Sets the current image to the one at the given index
+     * 
+     * @param index Index of image to set current image to, as returned by {@link GroupImageHolder#getIndexOf(String)}
+     * @throws IndexOutOfBoundsException if the given index is not in this group
+     */
+    public void setCurrentImage ( int index ) throws IndexOutOfBoundsException {
+        if ( index < 0 || index >= this.group.countImages ( ) )
+            throw new IndexOutOfBoundsException ( "No image at index " + index + " in current image group: " + this.group );
+        this.currentImage = index;
+    }
+
     /**
      * Returns the name of the current image
      * 
@@ -2,14 +2,22 @@ package javax.media.utils.loaders.images;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class GroupImageHolder extends ImageHolder {
     private List<String> imageNames;
 
+    /**
+     * Map from image name to the index of the first image by that name
+     */
+    private Map<String, Integer> imageIndices;
+
     public GroupImageHolder ( ) {
         super ( );
         this.imageNames = new ArrayList<String> ( );
+        this.imageIndices = new HashMap<String, Integer> ( );
     }
 
     @Override
@@ -19,7 +27,10 @@ public class GroupImageHolder extends ImageHolder {
             return;
 
         super.addImage ( imageName, image );
-        this.imageNames.add ( ImageLoader.getResourceIndex ( imageName ) );
+        String name = ImageLoader.getResourceIndex ( imageName );
+        if ( !this.imageIndices.containsKey ( name ) )
+            this.imageIndices.put ( name, this.imageNames.size ( ) );
+        this.imageNames.add ( name );
     }
 
     /**
@@ -29,19 +40,23 @@ public class GroupImageHolder extends ImageHolder {
      * @return The image with the given name or null
      */
     public BufferedImage getImage ( String name ) {
-        if ( !this.imageNames.contains ( name ) )
+        Integer index = this.imageIndices.get ( name );
+        if ( index == null )
             return null;
-        return this.images.get ( this.imageNames.indexOf ( name ) );
+        return this.getImage ( index );
     }
 
     /**
-     * Returns the index of the image with the given name
+     * Returns the index of the image with the given name, or -1 if there is none.
+     * Indices never change once assigned, so they can be resolved once and then
+     * used with {@link #getImage(int)} to avoid looking up names on every access.
      * 
      * @param name
      * @return the index of the image with the given name
      */
     public int getIndexOf ( String name ) {
-        return this.imageNames.indexOf ( name );
+        Integer index = this.imageIndices.get ( name );
+        return index == null ? -1 : index;
     }
 
     /**
@@ -64,6 +79,18 @@ public class GroupImageHolder extends ImageHolder {
         return new GroupImageAnimator ( this, tickrate );
     }
 
+    /**
+     * Returns a new animator for this image group, driven by the given clock.
+     * If the clock is null, the animator is driven by calling {@link ImageAnimator#update(long)}.
+     * 
+     * @param tickrate Duration of each frame
+     * @param clock Clock to drive the animator, or null
+     * @return a new animator for this image group
+     */
+    public GroupImageAnimator getGroupAnimator ( long tickrate, AnimationClock clock ) {
+        return new GroupImageAnimator ( this, tickrate, clock );
+    }
+
     @Override
     public String toString ( ) {
         return this.imageNames.toString ( );
@@ -3,27 +3,109 @@ package javax.media.utils.loaders.images;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.media.utils.loaders.EventDispatcher;
+import javax.media.utils.loaders.InlineEventDispatcher;
+import javax.media.utils.loaders.LatencyHistogram;
 import javax.swing.Timer;
 
 public class ImageAnimator implements ActionListener {
     private Set<ImageWatcher> watchers;
-    private boolean isRepeating = false;
-    protected int currentImage = 0;
+    /**
+     * Dispatcher delivering watcher notifications
+     */
+    private EventDispatcher dispatcher = InlineEventDispatcher.INSTANCE;
+    /**
+     * Reusable watcher notifications, so that ticks do not allocate
+     */
+    private Runnable endedEvent = new Runnable ( ) {
+        @Override
+        public void run ( ) {
+            Set<ImageWatcher> watchers = ImageAnimator.this.watchers;
+            if ( watchers != null )
+                for ( ImageWatcher iw : watchers )
+                    iw.sequenceEnded ( ImageAnimator.this );
+            ImageAnimator.dispatchLatency.record ( System.nanoTime ( ) - ImageAnimator.this.endedRaised );
+        }
+    };
+    private Runnable loopedEvent = new Runnable ( ) {
+        @Override
+        public void run ( ) {
+            Set<ImageWatcher> watchers = ImageAnimator.this.watchers;
+            if ( watchers != null )
+                for ( ImageWatcher iw : watchers )
+                    iw.sequenceLooped ( ImageAnimator.this );
+            ImageAnimator.dispatchLatency.record ( System.nanoTime ( ) - ImageAnimator.this.loopedRaised );
+        }
+    };
+    /**
+     * System.nanoTime at which each event was last raised
+     * If an event is raised again before it was delivered, only the latest is measured
+     */
+    private volatile long endedRaised;
+    private volatile long loopedRaised;
+
+    /**
+     * Number of running animators in this JVM
+     */
+    private static LongAdder activeAnimators = new LongAdder ( );
+    /**
+     * Time from raising an event until all watchers were notified, for all animators in this JVM
+     */
+    private static LatencyHistogram dispatchLatency = new LatencyHistogram ( );
+    /**
+     * Animation state below is advanced by the timer, clock or game loop thread and read by render threads,
+     * so fields written while the animation runs are volatile
+     */
+    private volatile boolean isRepeating = false;
+    protected volatile int currentImage = 0;
     private ImageHolder source;
+    /**
+     * Image last returned by {@link #getCurrentImage()}, shown while the current image is being decoded
+     */
+    private volatile BufferedImage shownImage = null;
 
+    /**
+     * Timer driving this animator, or null if it is driven by a shared clock
+     */
     private Timer timer;
+    /**
+     * Shared clock driving this animator, or null if it is driven by its own timer or by update
+     */
+    private AnimationClock clock;
+    /**
+     * True while this animator is registered with its clock, or accepts updates
+     */
+    private volatile boolean running = false;
+    /**
+     * System.nanoTime at which the clock should next advance this animator
+     */
+    private long nextTick;
+    /**
+     * Time passed to update at which frame 0 would have been shown, or UNSET if update has
+     * not been called since the animation was (re)started
+     */
+    private long startTime = UNSET;
+    private static final long UNSET = Long.MIN_VALUE;
+    /**
+     * Number of times update has notified watchers that the end of the sequence was reached since startTime
+     */
+    private long endsNotified = 0;
     /**
      * Time between ticks in ms
      */
-    private long tickPeriod;
+    private volatile long tickPeriod;
     /**
      * How long the animation has gone on for in ms
      */
-    private long animationTime = 0;
+    private volatile long animationTime = 0;
+    /**
+     * True while this animator holds a pin on its image holder
+     */
+    private boolean pinned = false;
 
     /**
      * Create a new image animator from the given source image holder
@@ -33,11 +115,27 @@ public class ImageAnimator implements ActionListener {
      */
     public ImageAnimator ( ImageHolder source, long tickrate ) {
         this.source = source;
-        this.watchers = Collections.synchronizedSet ( new HashSet<ImageWatcher> ( ) );
+        this.watchers = new CopyOnWriteArraySet<ImageWatcher> ( );
         this.timer = new Timer ( 0, this );
         this.setAnimationPeriod ( tickrate );
     }
 
+    /**
+     * Create a new image animator from the given source image holder,
+     * driven by the given shared clock instead of its own timer.
+     * If the clock is null, the animator is driven by calling {@link #update(long)}.
+     * 
+     * @param source Source image
+     * @param tickrate Duration of each frame
+     * @param clock Clock to advance this animator, or null
+     */
+    public ImageAnimator ( ImageHolder source, long tickrate, AnimationClock clock ) {
+        this.source = source;
+        this.watchers = new CopyOnWriteArraySet<ImageWatcher> ( );
+        this.clock = clock;
+        this.setAnimationPeriod ( tickrate );
+    }
+
     /**
      * Returns this animators image holder
      * 
@@ -56,6 +154,25 @@ public class ImageAnimator implements ActionListener {
         this.watchers.add ( watcher );
     }
 
+    /**
+     * Removes the given watcher
+     * 
+     * @param watcher The watcher to remove
+     */
+    public void removeWatcher ( ImageWatcher watcher ) {
+        this.watchers.remove ( watcher );
+    }
+
+    /**
+     * Sets the dispatcher used to notify watchers
+     * By default, watchers are notified inline on the thread advancing the animation
+     * 
+     * @param dispatcher Dispatcher to deliver notifications
+     */
+    public void setEventDispatcher ( EventDispatcher dispatcher ) {
+        this.dispatcher = dispatcher != null ? dispatcher : InlineEventDispatcher.INSTANCE;
+    }
+
     /**
      * Enable/Disable looping of this animation
      * 
@@ -74,7 +191,8 @@ public class ImageAnimator implements ActionListener {
     public void setAnimationPeriod ( long tickPeriod ) {
         if ( tickPeriod >= 0 )
             this.tickPeriod = tickPeriod;
-        this.timer.setDelay ( (int) this.tickPeriod );
+        if ( this.timer != null )
+            this.timer.setDelay ( (int) this.tickPeriod );
     }
 
     /**
@@ -82,41 +200,163 @@ public class ImageAnimator implements ActionListener {
      * Should only be called by this ImageHolder's Timer
      */
     public void actionPerformed ( ActionEvent e ) {
-        if ( this.source.countImages ( ) > 1 && this.tickPeriod > 0 ) {
+        this.tick ( );
+    }
+
+    /**
+     * Advances this animator if it is due at the given time
+     * Should only be called by this animator's AnimationClock
+     * 
+     * @param now Current System.nanoTime
+     */
+    void clockTick ( long now ) {
+        if ( !this.running || now - this.nextTick < 0 )
+            return;
+
+        // Like a coalescing Timer, skip ticks we are too late for rather than catching up
+        long period = this.tickPeriod * 1000000L;
+        this.nextTick += period;
+        if ( now - this.nextTick >= 0 )
+            this.nextTick = now + period;
+
+        this.tick ( );
+    }
+
+    /**
+     * Moves the animation to the frame that should be shown at the given time.
+     * Only applies to animators created without a timer or clock, and only while they are started.
+     * 
+     * The time at the first call after the animation is started (or resumed) is taken as the time
+     * the current frame started showing; later frames are computed from the time passed since.
+     * If a call skips past the end of the sequence several times, watchers are notified once for
+     * every time the end was passed.
+     * 
+     * @param now Current time in nanoseconds, for example System.nanoTime or the game loop's frame time
+     */
+    public void update ( long now ) {
+        if ( !this.running || this.timer != null || this.clock != null )
+            return;
+
+        int count = this.source.countImages ( );
+        if ( count == 0 )
+            return; // Nothing to animate
+
+        long period = this.tickPeriod * 1000000L;
+        if ( this.startTime == UNSET ) {
+            long time = this.animationTime;
+            // Like tick, move on from the last image to the first, so an ended animation plays again
+            if ( !this.isRepeating && this.currentImage >= count - 1 && this.tickPeriod > 0 )
+                time = ( this.animationTime + this.tickPeriod ) % ( this.tickPeriod * count );
+            this.startTime = now - time * 1000000L;
+            this.endsNotified = 0;
+        }
+
+        long frame = period > 0 ? ( now - this.startTime ) / period : 0;
+        if ( frame < 0 )
+            frame = 0;
+
+        // Number of times the last image has been reached since startTime
+        long ends = frame < count - 1 ? 0 : ( frame - ( count - 1 ) ) / count + 1;
+
+        if ( !this.isRepeating && ends > 0 ) {
+            this.currentImage = count - 1;
+            this.animationTime = this.tickPeriod * this.currentImage;
+            if ( this.endsNotified == 0 ) {
+                this.endsNotified = 1;
+                this.stopTicking ( );
+                this.setPinned ( false );
+                this.endedRaised = System.nanoTime ( );
+                this.dispatcher.dispatch ( this.endedEvent );
+            }
+            return;
+        }
+
+        this.currentImage = (int) ( frame % count );
+        this.animationTime = this.tickPeriod * this.currentImage;
+        while ( this.endsNotified < ends ) {
+            this.endsNotified++;
+            this.loopedRaised = System.nanoTime ( );
+            this.dispatcher.dispatch ( this.loopedEvent );
+        }
+    }
+
+    /**
+     * Moves the animation one frame ahead
+     */
+    private void tick ( ) {
+        int count = this.source.countImages ( );
+        if ( count > 1 && this.tickPeriod > 0 ) {
             /**
              * Total animation time is the current animation time, add the time since last tick,
              * modulo the length of the sequence
              */
-            this.animationTime = ( this.animationTime + this.tickPeriod ) % ( this.tickPeriod * this.source.countImages ( ) );
+            this.animationTime = ( this.animationTime + this.tickPeriod ) % ( this.tickPeriod * count );
 
             this.currentImage = (int) ( this.animationTime / this.tickPeriod );
         } else
             this.currentImage = 0;
 
-        if ( this.currentImage == this.source.countImages ( ) - 1 ) {
+        if ( this.currentImage == count - 1 ) {
             // We're at the end of the sequence
 
             if ( !this.isRepeating ) {
-                this.timer.stop ( );
-
-                for ( ImageWatcher iw : this.watchers ) {
-                    iw.sequenceEnded ( this );
-                }
+                this.stopTicking ( );
+                this.setPinned ( false );
+                this.endedRaised = System.nanoTime ( );
+                this.dispatcher.dispatch ( this.endedEvent );
             } else {
-                for ( ImageWatcher iw : this.watchers ) {
-                    iw.sequenceLooped ( this );
-                }
+                this.loopedRaised = System.nanoTime ( );
+                this.dispatcher.dispatch ( this.loopedEvent );
             }
         }
     }
 
     /**
      * Returns the current image in the animation sequence
+     * If the holder has not decoded the current image yet, the image this animator returned last is returned
      * 
      * @return the current image in the animation sequence
+     * @see ImageHolder#getLoadedImage(int, BufferedImage)
      */
     public BufferedImage getCurrentImage ( ) {
-        return this.source.getImage ( this.currentImage );
+        BufferedImage image = this.source.getLoadedImage ( this.currentImage, this.shownImage );
+        if ( image != this.shownImage )
+            this.shownImage = image;
+        return image;
+    }
+
+    /**
+     * Returns the horizontal distance from where the untrimmed current image would be drawn
+     * to where {@link #getCurrentImage()} must be drawn
+     * 
+     * @return the horizontal offset of the current image, 0 if it is not trimmed
+     * @see ImageHolder#getOffsetX(int)
+     */
+    public int getCurrentOffsetX ( ) {
+        return this.source.getOffsetX ( this.currentImage );
+    }
+
+    /**
+     * Returns the vertical distance from where the untrimmed current image would be drawn
+     * to where {@link #getCurrentImage()} must be drawn
+     * 
+     * @return the vertical offset of the current image, 0 if it is not trimmed
+     * @see ImageHolder#getOffsetY(int)
+     */
+    public int getCurrentOffsetY ( ) {
+        return this.source.getOffsetY ( this.currentImage );
+    }
+
+    /**
+     * Returns the position of the current image within the canvas it was trimmed from
+     * The animation may advance, and the holder may be reloaded, between two calls, so when either happens
+     * on another thread, read {@link #getCurrentPosition()} once and get the image and its offset together
+     * from {@link ImageHolder#getFrame(int)}
+     * 
+     * @return the offset of the current image, or null if it is not trimmed
+     */
+    public FrameOffset getCurrentOffset ( ) {
+        return this.source.getOffset ( this.currentImage );
     }
 
     /**
@@ -132,14 +372,16 @@ public class ImageAnimator implements ActionListener {
      * Starts the animation
      */
     public void start ( ) {
-        this.timer.start ( );
+        this.setPinned ( true );
+        this.startTicking ( );
     }
 
     /**
      * Stops the animation
      */
     public void stop ( ) {
-        this.timer.stop ( );
+        this.stopTicking ( );
+        this.setPinned ( false );
     }
 
     /**
@@ -148,9 +390,25 @@ public class ImageAnimator implements ActionListener {
      * @return true if the animation is currently stopped
      */
     public boolean isStopped ( ) {
+        if ( this.timer == null )
+            return !this.running;
         return !this.timer.isRunning ( );
     }
 
+    /**
+     * Returns the current image of the animation scaled, mirrored and rotated
+     * Unlike {@link #getCurrentImage()}, this waits for lazily loaded images to be decoded
+     * 
+     * @param scale Scale factor, larger than 0
+     * @param flip True to mirror the image horizontally
+     * @param quarterTurns Number of clockwise quarter turns
+     * @return the transformed current image
+     * @see ImageHolder#getVariant(int, double, boolean, int)
+     */
+    public BufferedImage getCurrentImage ( double scale, boolean flip, int quarterTurns ) {
+        return this.source.getVariant ( this.currentImage, scale, flip, quarterTurns );
+    }
+
     /**
      * Returns true if the current animation is at the last image, and will not repeat
      * 
@@ -172,14 +430,96 @@ public class ImageAnimator implements ActionListener {
 
         this.currentImage = position;
         this.animationTime = this.tickPeriod * position;
-        this.timer.start ( );
+        this.startTime = UNSET;
+        this.setPinned ( true );
+        this.startTicking ( );
     }
 
     /**
      * Resume animation from where it was previously stopped
      */
     public void resume ( ) {
-        this.timer.start ( );
+        this.setPinned ( true );
+        this.startTicking ( );
+    }
+
+    /**
+     * Starts the timer, registers with the clock driving this animator, or starts accepting updates
+     */
+    private void startTicking ( ) {
+        if ( this.timer != null ) {
+            if ( !this.running ) {
+                this.running = true;
+                ImageAnimator.activeAnimators.increment ( );
+            }
+            this.timer.start ( );
+            return;
+        }
+
+        if ( this.running )
+            return;
+        this.startTime = UNSET;
+        this.nextTick = System.nanoTime ( ) + this.tickPeriod * 1000000L;
+        this.running = true;
+        ImageAnimator.activeAnimators.increment ( );
+        if ( this.clock != null )
+            this.clock.register ( this );
+    }
+
+    /**
+     * Stops the timer, unregisters from the clock driving this animator, or stops accepting updates
+     */
+    private void stopTicking ( ) {
+        if ( this.timer != null ) {
+            if ( this.running ) {
+                this.running = false;
+                ImageAnimator.activeAnimators.decrement ( );
+            }
+            this.timer.stop ( );
+            return;
+        }
+
+        if ( !this.running )
+            return;
+        this.running = false;
+        ImageAnimator.activeAnimators.decrement ( );
+        if ( this.clock != null )
+            this.clock.unregister ( this );
+    }
+
+    /**
+     * Pins or unpins the images of this animator's holder, so that
+     * they are not evicted from a cache while the animation is running
+     * 
+     * @param pin True to pin, false to unpin
+     */
+    private void setPinned ( boolean pin ) {
+        if ( this.pinned == pin )
+            return;
+        this.pinned = pin;
+        if ( pin )
+            this.source.pin ( );
+        else
+            this.source.unpin ( );
+    }
+
+    /**
+     * Returns the number of animators currently running in this JVM
+     * 
+     * @return the number of running animators
+     */
+    public static long getActiveAnimators ( ) {
+        return ImageAnimator.activeAnimators.sum ( );
+    }
+
+    /**
+     * Returns the time from an animation event being raised until all watchers were notified,
+     * for all animators in this JVM
+     * 
+     * @return the watcher dispatch latency histogram
+     */
+    public static LatencyHistogram getDispatchLatency ( ) {
+        return ImageAnimator.dispatchLatency;
     }
 
     /**
@@ -188,9 +528,13 @@ public class ImageAnimator implements ActionListener {
      * Only call this if you're never going to use this animator again!
      */
     public void destroy ( ) {
-        this.timer.stop ( );
-        this.timer.removeActionListener ( this );
+        this.stopTicking ( );
+        this.setPinned ( false );
+        if ( this.timer != null )
+            this.timer.removeActionListener ( this );
         this.timer = null;
+        this.clock = null;
         this.watchers = null;
+        this.shownImage = null;
     }
 }
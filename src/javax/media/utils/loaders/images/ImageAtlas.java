@@ -0,0 +1,282 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs many small images into a few large atlas pages using skyline bin packing.
+ * After packing, each packed image can be replaced by a region view into its page,
+ * which shares the page's pixel data.
+ *
+ * Pages keep the pixel format of the images on them: images are only packed together
+ * if they share their image type, or their palette for indexed images, and their pixels
+ * are copied as they are, so premultiplied or indexed images stay premultiplied or indexed.
+ *
+ * Images that do not fit on an empty page are left as they are.
+ */
+public class ImageAtlas {
+
+    /**
+     * Maximum width and height of each page
+     */
+    private int pageSize;
+
+    /**
+     * Pages that have been filled, and the region view for every packed image
+     */
+    private List<BufferedImage> pages;
+    private Map<BufferedImage, BufferedImage> regions;
+
+    private AtlasReport report;
+
+    /**
+     * Creates a new atlas with pages of at most the given size
+     *
+     * @param pageSize Maximum width and height of each page in pixels
+     */
+    public ImageAtlas ( int pageSize ) {
+        if ( pageSize <= 0 )
+            throw new IllegalArgumentException ( "Page size must be > 0" );
+        this.pageSize = pageSize;
+        this.pages = new ArrayList<BufferedImage> ( );
+        this.regions = new IdentityHashMap<BufferedImage, BufferedImage> ( );
+    }
+
+    /**
+     * Packs the given images into atlas pages
+     * Images given more than once are only packed once
+     *
+     * @param images Images to pack
+     * @return a report of how well the images were packed
+     */
+    public AtlasReport pack ( Collection<BufferedImage> images ) {
+        // Tallest images first gives a flatter skyline
+        List<BufferedImage> sorted = new ArrayList<BufferedImage> ( );
+        Map<BufferedImage, Boolean> seen = new IdentityHashMap<BufferedImage, Boolean> ( );
+        for ( BufferedImage image : images )
+            if ( image != null && seen.put ( image, Boolean.TRUE ) == null )
+                sorted.add ( image );
+        Collections.sort ( sorted, new Comparator<BufferedImage> ( ) {
+            @Override
+            public int compare ( BufferedImage a, BufferedImage b ) {
+                if ( a.getHeight ( ) != b.getHeight ( ) )
+                    return b.getHeight ( ) - a.getHeight ( );
+                return b.getWidth ( ) - a.getWidth ( );
+            }
+        } );
+
+        List<Skyline> skylines = new ArrayList<Skyline> ( );
+        List<Object> formats = new ArrayList<Object> ( );
+        List<List<BufferedImage>> placed = new ArrayList<List<BufferedImage>> ( );
+        Map<BufferedImage, int[]> positions = new IdentityHashMap<BufferedImage, int[]> ( );
+        long bytesBefore = 0;
+        long packedArea = 0;
+        int skipped = 0;
+
+        for ( BufferedImage image : sorted ) {
+            bytesBefore += ImageLoader.getImageSize ( image );
+
+            Object format = ImageAtlas.getFormat ( image );
+            int[] position = null;
+            int page;
+            for ( page = 0; page < skylines.size ( ) && position == null; page++ )
+                if ( formats.get ( page ).equals ( format ) )
+                    position = skylines.get ( page ).insert ( image.getWidth ( ), image.getHeight ( ) );
+
+            if ( position == null ) {
+                Skyline skyline = new Skyline ( this.pageSize );
+                position = skyline.insert ( image.getWidth ( ), image.getHeight ( ) );
+                if ( position == null ) {
+                    // Larger than a page
+                    skipped++;
+                    continue;
+                }
+                skylines.add ( skyline );
+                formats.add ( format );
+                placed.add ( new ArrayList<BufferedImage> ( ) );
+                page = skylines.size ( );
+            }
+
+            placed.get ( page - 1 ).add ( image );
+            positions.put ( image, position );
+            packedArea += (long) image.getWidth ( ) * image.getHeight ( );
+        }
+
+        // Allocate each page only as large as the area actually used, in the format of its images, and copy images into it
+        long pageArea = 0;
+        long pageBytes = 0;
+        for ( int page = 0; page < skylines.size ( ); page++ ) {
+            Skyline skyline = skylines.get ( page );
+            BufferedImage first = placed.get ( page ).get ( 0 );
+            ColorModel model = first.getColorModel ( );
+            WritableRaster raster = Raster.createWritableRaster (
+                    first.getSampleModel ( ).createCompatibleSampleModel ( skyline.getUsedWidth ( ), skyline.getUsedHeight ( ) ), null );
+            BufferedImage pageImage = new BufferedImage ( model, raster, model.isAlphaPremultiplied ( ), null );
+            pageArea += (long) pageImage.getWidth ( ) * pageImage.getHeight ( );
+            pageBytes += ImageLoader.getImageSize ( pageImage );
+
+            for ( BufferedImage image : placed.get ( page ) ) {
+                int[] position = positions.get ( image );
+                raster.setRect ( position[0], position[1], image.getRaster ( ) );
+                this.regions.put ( image, pageImage.getSubimage ( position[0], position[1], image.getWidth ( ), image.getHeight ( ) ) );
+            }
+            this.pages.add ( pageImage );
+        }
+
+        long unpackedBytes = 0;
+        for ( BufferedImage image : sorted )
+            if ( !this.regions.containsKey ( image ) )
+                unpackedBytes += ImageLoader.getImageSize ( image );
+
+        this.report = new AtlasReport ( this.pages.size ( ), this.regions.size ( ), skipped,
+                packedArea, pageArea, bytesBefore, pageBytes + unpackedBytes );
+        return this.report;
+    }
+
+    /**
+     * Returns the region view of the given image, or the image itself if it was not packed
+     *
+     * @param image An image given to {@link #pack(Collection)}
+     * @return the region view of the given image, or the image itself
+     */
+    public BufferedImage getRegion ( BufferedImage image ) {
+        BufferedImage region = this.regions.get ( image );
+        return region != null ? region : image;
+    }
+
+    /**
+     * Returns the atlas pages
+     *
+     * @return the atlas pages
+     */
+    public List<BufferedImage> getPages ( ) {
+        return Collections.unmodifiableList ( this.pages );
+    }
+
+    /**
+     * Returns the report of the last call to {@link #pack(Collection)}, or null
+     *
+     * @return the report of the last packing, or null
+     */
+    public AtlasReport getReport ( ) {
+        return this.report;
+    }
+
+    /**
+     * Returns a key that is equal for images that can share a page without converting their pixels:
+     * the image type for standard types, and the color model for indexed and custom images
+     */
+    private static Object getFormat ( BufferedImage image ) {
+        int type = image.getType ( );
+        if ( type == BufferedImage.TYPE_CUSTOM || image.getColorModel ( ) instanceof IndexColorModel )
+            return image.getColorModel ( );
+        return Integer.valueOf ( type );
+    }
+
+    /**
+     * Skyline of a single page: a list of horizontal segments, each given as { x, y, width },
+     * ordered by x and covering the full page width. Images are placed on top of the skyline
+     * at the lowest possible position.
+     */
+    private static class Skyline {
+        private int size;
+        private List<int[]> segments;
+        private int usedWidth = 0;
+        private int usedHeight = 0;
+
+        Skyline ( int size ) {
+            this.size = size;
+            this.segments = new ArrayList<int[]> ( );
+            this.segments.add ( new int[] { 0, 0, size } );
+        }
+
+        /**
+         * Finds the lowest position for a rectangle of the given size, and raises the skyline accordingly
+         *
+         * @return the position as { x, y }, or null if the rectangle does not fit
+         */
+        int[] insert ( int width, int height ) {
+            int best = -1;
+            int bestY = Integer.MAX_VALUE;
+            for ( int i = 0; i < this.segments.size ( ); i++ ) {
+                int y = this.fit ( i, width, height );
+                if ( y >= 0 && y < bestY ) {
+                    best = i;
+                    bestY = y;
+                }
+            }
+            if ( best < 0 )
+                return null;
+
+            int x = this.segments.get ( best )[0];
+            this.segments.add ( best, new int[] { x, bestY + height, width } );
+
+            // Shrink or remove the segments now covered by the new one
+            for ( int i = best + 1; i < this.segments.size ( ); i++ ) {
+                int[] segment = this.segments.get ( i );
+                int overlap = x + width - segment[0];
+                if ( overlap <= 0 )
+                    break;
+                if ( overlap < segment[2] ) {
+                    segment[0] += overlap;
+                    segment[2] -= overlap;
+                    break;
+                }
+                this.segments.remove ( i-- );
+            }
+
+            // Merge neighbours of equal height
+            for ( int i = 0; i < this.segments.size ( ) - 1; i++ ) {
+                int[] segment = this.segments.get ( i );
+                int[] next = this.segments.get ( i + 1 );
+                if ( segment[1] == next[1] ) {
+                    segment[2] += next[2];
+                    this.segments.remove ( i-- + 1 );
+                }
+            }
+
+            this.usedWidth = Math.max ( this.usedWidth, x + width );
+            this.usedHeight = Math.max ( this.usedHeight, bestY + height );
+            return new int[] { x, bestY };
+        }
+
+        /**
+         * Returns the y position a rectangle would get if placed at the left edge of the given segment,
+         * or -1 if it does not fit there
+         */
+        private int fit ( int segment, int width, int height ) {
+            int x = this.segments.get ( segment )[0];
+            if ( x + width > this.size )
+                return -1;
+
+            int y = 0;
+            int remaining = width;
+            for ( int i = segment; remaining > 0; i++ ) {
+                int[] s = this.segments.get ( i );
+                y = Math.max ( y, s[1] );
+                if ( y + height > this.size )
+                    return -1;
+                remaining -= s[2];
+            }
+            return y;
+        }
+
+        int getUsedWidth ( ) {
+            return this.usedWidth;
+        }
+
+        int getUsedHeight ( ) {
+            return this.usedHeight;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package javax.media.utils.loaders.images;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the decoded images of {@link LazyImageHolder}s within a byte budget.
+ * When the budget is exceeded, the least recently used images are evicted from
+ * their holders, which decode them again from their resource when next requested.
+ *
+ * Holders can be pinned (for example while an animator is running) so that their
+ * images are never evicted.
+ *
+ * Requests for decoded images only stamp the image with the current time in its holder,
+ * without locking or allocating; images are ordered by those stamps when evicting.
+ */
+public class ImageCache {
+
+    /**
+     * Maximum number of bytes of decoded images to keep
+     */
+    private long budget;
+
+    /**
+     * Number of bytes of decoded images currently kept
+     */
+    private long size = 0;
+
+    /**
+     * Size of every cached image
+     */
+    private Map<Key, Long> entries;
+
+    /**
+     * Number of pins on each pinned holder
+     */
+    private Map<ImageHolder, Integer> pins;
+
+    private AtomicLong hits = new AtomicLong ( );
+    private AtomicLong misses = new AtomicLong ( );
+    private AtomicLong evictions = new AtomicLong ( );
+
+    /**
+     * Creates a new cache with the given budget
+     *
+     * @param budget Maximum number of bytes of decoded images to keep
+     */
+    public ImageCache ( long budget ) {
+        this.budget = budget;
+        this.entries = new HashMap<Key, Long> ( );
+        this.pins = new IdentityHashMap<ImageHolder, Integer> ( );
+    }
+
+    /**
+     * Sets the maximum number of bytes of decoded images to keep,
+     * evicting images if the new budget is exceeded
+     *
+     * @param budget Maximum number of bytes of decoded images to keep
+     */
+    public synchronized void setBudget ( long budget ) {
+        this.budget = budget;
+        this.evict ( );
+    }
+
+    public synchronized long getBudget ( ) {
+        return this.budget;
+    }
+
+    /**
+     * Returns the number of bytes of decoded images currently kept
+     *
+     * @return the number of bytes of decoded images currently kept
+     */
+    public synchronized long getSize ( ) {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of requests for an image that was already decoded
+     *
+     * @return the number of cache hits
+     */
+    public long getHits ( ) {
+        return this.hits.get ( );
+    }
+
+    /**
+     * Returns the number of requests for an image that had to be decoded
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses ( ) {
+        return this.misses.get ( );
+    }
+
+    /**
+     * Returns the number of images evicted to stay within the budget
+     *
+     * @return the number of evicted images
+     */
+    public long getEvictions ( ) {
+        return this.evictions.get ( );
+    }
+
+    /**
+     * Prevents the images of the given holder from being evicted until it is unpinned
+     * A holder pinned several times must be unpinned as many times
+     *
+     * @param holder Holder to pin
+     */
+    public synchronized void pin ( ImageHolder holder ) {
+        Integer count = this.pins.get ( holder );
+        this.pins.put ( holder, count == null ? 1 : count + 1 );
+    }
+
+    /**
+     * Removes a pin from the given holder, evicting images if the budget is exceeded
+     *
+     * @param holder Holder to unpin
+     */
+    public synchronized void unpin ( ImageHolder holder ) {
+        Integer count = this.pins.get ( holder );
+        if ( count == null )
+            return;
+        if ( count <= 1 )
+            this.pins.remove ( holder );
+        else
+            this.pins.put ( holder, count - 1 );
+        this.evict ( );
+    }
+
+    /**
+     * Called by holders when an already decoded image is requested
+     */
+    void touch ( LazyImageHolder holder, int image ) {
+        this.hits.incrementAndGet ( );
+        holder.access ( image, System.nanoTime ( ) );
+    }
+
+    /**
+     * Called by holders when an image has been decoded
+     *
+     * @param requested True if the image was decoded because it was requested, false if it was prefetched
+     */
+    synchronized void added ( LazyImageHolder holder, int image, long bytes, boolean requested ) {
+        if ( requested )
+            this.misses.incrementAndGet ( );
+
+        holder.access ( image, System.nanoTime ( ) );
+        Long previous = this.entries.put ( new Key ( holder, image ), bytes );
+        if ( previous != null )
+            this.size -= previous;
+        this.size += bytes;
+        this.evict ( );
+    }
+
+    /**
+     * Evicts least recently used images of unpinned holders until the budget is met
+     */
+    private void evict ( ) {
+        if ( this.size <= this.budget )
+            return;
+
+        // Holders keep stamping their images while this runs, so sort on a snapshot of the stamps
+        List<Key> candidates = new ArrayList<Key> ( this.entries.size ( ) );
+        for ( Key key : this.entries.keySet ( ) ) {
+            if ( this.pins.containsKey ( key.holder ) )
+                continue;
+            key.accessed = key.holder.getAccessTime ( key.image );
+            candidates.add ( key );
+        }
+        Collections.sort ( candidates, new Comparator<Key> ( ) {
+            @Override
+            public int compare ( Key a, Key b ) {
+                return Long.compare ( a.accessed, b.accessed );
+            }
+        } );
+
+        for ( int i = 0; this.size > this.budget && i < candidates.size ( ); i++ ) {
+            Key key = candidates.get ( i );
+            this.size -= this.entries.remove ( key );
+            this.evictions.incrementAndGet ( );
+            key.holder.evict ( key.image );
+        }
+    }
+
+    @Override
+    public synchronized String toString ( ) {
+        return String.format ( "%d of %d bytes used, %d hits, %d misses, %d evictions",
+                this.size, this.budget, this.getHits ( ), this.getMisses ( ), this.getEvictions ( ) );
+    }
+
+    /**
+     * Identifies a single image of a holder
+     */
+    private static class Key {
+        private LazyImageHolder holder;
+        private int image;
+
+        /**
+         * Access time of the image when eviction last sorted it
+         */
+        private long accessed;
+
+        Key ( LazyImageHolder holder, int image ) {
+            this.holder = holder;
+            this.image = image;
+        }
+
+        @Override
+        public int hashCode ( ) {
+            return System.identityHashCode ( this.holder ) * 31 + this.image;
+        }
+
+        @Override
+        public boolean equals ( Object o ) {
+            if ( !( o instanceof Key ) )
+                return false;
+            Key other = (Key) o;
+            return this.holder == other.holder && this.image == other.image;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes encoded image data into images.
+ *
+ * An {@link ImageLoader} asks its decoders in turn, so a decoder for a specific format
+ * only needs to recognize its own data and return null for anything else.
+ * Decoders are called concurrently when images are loaded in parallel, so they must be thread safe.
+ *
+ * @see ImageLoader#addDecoder(ImageDecoder)
+ */
+public interface ImageDecoder {
+
+    /**
+     * Decodes the given data
+     *
+     * @param data Encoded image, from its position to its limit; may be a read-only view of mapped memory
+     * @return the decoded image, or null if this decoder does not recognize the data
+     * @throws IOException if the data is recognized but could not be decoded
+     */
+    public BufferedImage decode ( ByteBuffer data ) throws IOException;
+}
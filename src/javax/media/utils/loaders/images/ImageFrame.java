@@ -0,0 +1,60 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An image of a holder together with its position within the canvas it was trimmed from.
+ * Holders replace both at once, so an image read from a frame is always drawn at its own offset.
+ *
+ * @see ImageHolder#getFrame(int)
+ */
+public class ImageFrame {
+    private BufferedImage image;
+    private FrameOffset offset;
+
+    public ImageFrame ( BufferedImage image, FrameOffset offset ) {
+        this.image = image;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the image of this frame
+     *
+     * @return the image of this frame
+     */
+    public BufferedImage getImage ( ) {
+        return this.image;
+    }
+
+    /**
+     * Returns the position of the image within the canvas it was trimmed from
+     *
+     * @return the offset of the image, or null if it is not trimmed
+     */
+    public FrameOffset getOffset ( ) {
+        return this.offset;
+    }
+
+    /**
+     * Returns the horizontal distance from where the untrimmed image would be drawn to where the image must be drawn
+     *
+     * @return the horizontal offset of the image, 0 if it is not trimmed
+     */
+    public int getOffsetX ( ) {
+        return this.offset == null ? 0 : this.offset.getX ( );
+    }
+
+    /**
+     * Returns the vertical distance from where the untrimmed image would be drawn to where the image must be drawn
+     *
+     * @return the vertical offset of the image, 0 if it is not trimmed
+     */
+    public int getOffsetY ( ) {
+        return this.offset == null ? 0 : this.offset.getY ( );
+    }
+
+    @Override
+    public String toString ( ) {
+        return this.offset == null ? String.valueOf ( this.image ) : this.image + " at " + this.offset;
+    }
+}
@@ -2,6 +2,7 @@ package javax.media.utils.loaders.images;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -19,6 +20,23 @@ public class ImageHolder {
 
     protected List<BufferedImage> images;
 
+    /**
+     * Immutable snapshot of images paired with their offsets, published once this holder is sealed
+     * Never modified after publication; changes replace the whole array, so every image is read with its own offset
+     */
+    private volatile ImageFrame[] sealed = null;
+
+    /**
+     * Positions of trimmed images within their canvas, null for images that are not trimmed,
+     * or null if no image is trimmed. Guarded by the lock of images; sealed holders are read from their frames
+     */
+    private FrameOffset[] offsets = null;
+
+    /**
+     * Cache of transformed images, or null to transform images on every request
+     */
+    private VariantCache variants = null;
+
     /**
      * Initializes data storage needed for this image holder
      */
@@ -37,7 +55,250 @@ public class ImageHolder {
      * @param image the buffered representation of the image
      */
     public void addImage ( String imageName, BufferedImage image ) {
-        this.images.add ( image );
+        synchronized ( this.images ) {
+            this.images.add ( image );
+            if ( this.offsets != null )
+                this.offsets = Arrays.copyOf ( this.offsets, this.offsets.length + 1 );
+            this.republish ( );
+        }
+    }
+
+    /**
+     * Replaces the image at the given index, keeping its offset
+     * 
+     * @param image Index of image
+     * @param replacement the image to store at the given index
+     */
+    public void setImage ( int image, BufferedImage replacement ) {
+        synchronized ( this.images ) {
+            this.images.set ( image, replacement );
+            this.republish ( );
+        }
+    }
+
+    /**
+     * Replaces the image at the given index and its offset at once
+     * Once this holder is sealed, readers of {@link #getFrame(int)} see either the old or the new image, each with its own offset
+     * 
+     * @param image Index of image
+     * @param replacement the image to store at the given index
+     * @param offset Offset of the replacement, or null if it is not trimmed
+     */
+    public void setImage ( int image, BufferedImage replacement, FrameOffset offset ) {
+        synchronized ( this.images ) {
+            this.images.set ( image, replacement );
+            this.storeOffset ( image, offset );
+            this.republish ( );
+        }
+    }
+
+    /**
+     * Replaces all images of this holder at once, keeping their offsets
+     * Once this holder is sealed, readers see either all old or all new images
+     * 
+     * @param replacements the images to store, one for every image in this holder
+     * @throws IllegalArgumentException if the number of images differs from the number of images in this holder
+     */
+    public void setImages ( BufferedImage[] replacements ) throws IllegalArgumentException {
+        synchronized ( this.images ) {
+            if ( replacements.length != this.images.size ( ) )
+                throw new IllegalArgumentException ( "Expected " + this.images.size ( ) + " images, got " + replacements.length );
+            for ( int i = 0; i < replacements.length; i++ )
+                this.images.set ( i, replacements[i] );
+            this.republish ( );
+        }
+    }
+
+    /**
+     * Replaces all images of this holder and their offsets at once
+     * Once this holder is sealed, readers see either all old or all new images, each with its own offset
+     * 
+     * @param replacements the images to store, one for every image in this holder
+     * @param offsets Offset of every replacement, with null for images that are not trimmed,
+     *            or null if no image is trimmed
+     * @throws IllegalArgumentException if the number of images or offsets differs from the number of images in this holder
+     */
+    public void setImages ( BufferedImage[] replacements, FrameOffset[] offsets ) throws IllegalArgumentException {
+        synchronized ( this.images ) {
+            if ( replacements.length != this.images.size ( ) )
+                throw new IllegalArgumentException ( "Expected " + this.images.size ( ) + " images, got " + replacements.length );
+            if ( offsets != null && offsets.length != this.images.size ( ) )
+                throw new IllegalArgumentException ( "Expected " + this.images.size ( ) + " offsets, got " + offsets.length );
+            for ( int i = 0; i < replacements.length; i++ )
+                this.images.set ( i, replacements[i] );
+            this.offsets = offsets == null ? null : offsets.clone ( );
+            this.republish ( );
+        }
+    }
+
+    /**
+     * Sets the positions of trimmed images within the canvas they were cropped from
+     * 
+     * @param offsets Offset of every image in this holder, with null for images that are not trimmed,
+     *            or null if no image is trimmed
+     * @throws IllegalArgumentException if the number of offsets differs from the number of images in this holder
+     * @see ImageLoader#setTrimTransparentBorders(boolean)
+     */
+    public void setOffsets ( FrameOffset[] offsets ) throws IllegalArgumentException {
+        synchronized ( this.images ) {
+            if ( offsets != null && offsets.length != this.images.size ( ) )
+                throw new IllegalArgumentException ( "Expected " + this.images.size ( ) + " offsets, got " + offsets.length );
+            this.offsets = offsets == null ? null : offsets.clone ( );
+            this.republish ( );
+        }
+    }
+
+    /**
+     * Sets the position of the image at the given index within the canvas it was cropped from
+     * To replace an image together with its offset, use {@link #setImage(int, BufferedImage, FrameOffset)}
+     * 
+     * @param image Index of image
+     * @param offset Offset of the image, or null if it is not trimmed
+     */
+    public void setOffset ( int image, FrameOffset offset ) {
+        synchronized ( this.images ) {
+            this.storeOffset ( image, offset );
+            this.republish ( );
+        }
+    }
+
+    /**
+     * Stores the offset of the image at the given index
+     * Must be called while holding the lock of images
+     */
+    private void storeOffset ( int image, FrameOffset offset ) {
+        if ( this.offsets == null && offset == null )
+            return;
+        if ( this.offsets == null )
+            this.offsets = new FrameOffset[this.images.size ( )];
+        this.offsets[image] = offset;
+    }
+
+    /**
+     * Publishes a new snapshot of the images and offsets if this holder is sealed
+     * Frames that did not change are kept, so only changed images allocate
+     * Must be called while holding the lock of images
+     */
+    private void republish ( ) {
+        if ( this.sealed != null )
+            this.sealed = this.snapshot ( this.sealed );
+    }
+
+    /**
+     * Returns the images of this holder paired with their offsets, reusing the given frames where they still match
+     * Must be called while holding the lock of images
+     */
+    private ImageFrame[] snapshot ( ImageFrame[] current ) {
+        ImageFrame[] frames = new ImageFrame[this.images.size ( )];
+        for ( int i = 0; i < frames.length; i++ ) {
+            BufferedImage image = this.images.get ( i );
+            FrameOffset offset = this.offsets == null ? null : this.offsets[i];
+            ImageFrame frame = i < current.length ? current[i] : null;
+            frames[i] = frame != null && frame.getImage ( ) == image && frame.getOffset ( ) == offset ? frame : new ImageFrame ( image, offset );
+        }
+        return frames;
+    }
+
+    /**
+     * Returns the image at the given index together with its offset
+     * Unlike calling {@link #getImage(int)} and {@link #getOffset(int)} in turn, the offset
+     * always belongs to the image, even while another thread replaces both.
+     * 
+     * @param image Index of image
+     * @return the image at the given index and its offset
+     */
+    public ImageFrame getFrame ( int image ) {
+        ImageFrame[] sealed = this.sealed;
+        if ( sealed != null )
+            return sealed[image];
+        synchronized ( this.images ) {
+            return new ImageFrame ( this.images.get ( image ), this.offsets == null ? null : this.offsets[image] );
+        }
+    }
+
+    /**
+     * Returns the position of the image at the given index within the canvas it was cropped from
+     * 
+     * @param image Index of image
+     * @return the offset of the image, or null if it is not trimmed
+     */
+    public FrameOffset getOffset ( int image ) {
+        ImageFrame[] sealed = this.sealed;
+        if ( sealed != null )
+            return sealed[image].getOffset ( );
+        synchronized ( this.images ) {
+            return this.offsets == null ? null : this.offsets[image];
+        }
+    }
+
+    /**
+     * Returns the horizontal distance from where the untrimmed image would be drawn to where
+     * the image at the given index must be drawn
+     * 
+     * @param image Index of image
+     * @return the horizontal offset of the image, 0 if it is not trimmed
+     */
+    public int getOffsetX ( int image ) {
+        FrameOffset offset = this.getOffset ( image );
+        return offset == null ? 0 : offset.getX ( );
+    }
+
+    /**
+     * Returns the vertical distance from where the untrimmed image would be drawn to where
+     * the image at the given index must be drawn
+     * 
+     * @param image Index of image
+     * @return the vertical offset of the image, 0 if it is not trimmed
+     */
+    public int getOffsetY ( int image ) {
+        FrameOffset offset = this.getOffset ( image );
+        return offset == null ? 0 : offset.getY ( );
+    }
+
+    /**
+     * Returns the width of the image at the given index before it was trimmed
+     * 
+     * @param image Index of image
+     * @return the width of the untrimmed image
+     */
+    public int getCanvasWidth ( int image ) {
+        FrameOffset offset = this.getOffset ( image );
+        return offset == null ? this.getLoadedImage ( image ).getWidth ( ) : offset.getCanvasWidth ( );
+    }
+
+    /**
+     * Returns the height of the image at the given index before it was trimmed
+     * 
+     * @param image Index of image
+     * @return the height of the untrimmed image
+     */
+    public int getCanvasHeight ( int image ) {
+        FrameOffset offset = this.getOffset ( image );
+        return offset == null ? this.getLoadedImage ( image ).getHeight ( ) : offset.getCanvasHeight ( );
+    }
+
+    /**
+     * Publishes the images of this holder as an immutable array.
+     * After this, reading images and counting them takes no locks.
+     * Images can still be added or replaced, but every change copies the array,
+     * so this should be called once loading is done.
+     * 
+     * The loader seals the holders it creates once a configuration file is loaded.
+     */
+    public void seal ( ) {
+        synchronized ( this.images ) {
+            if ( this.sealed == null )
+                this.sealed = this.snapshot ( new ImageFrame[0] );
+        }
+    }
+
+    /**
+     * Returns true if this holder has been sealed
+     * 
+     * @return true if this holder has been sealed
+     */
+    public boolean isSealed ( ) {
+        return this.sealed != null;
     }
 
     /**
@@ -47,18 +308,103 @@ public class ImageHolder {
      * @return the image at the given index
      */
     public BufferedImage getImage ( int image ) {
+        ImageFrame[] sealed = this.sealed;
+        if ( sealed != null )
+            return sealed[image].getImage ( );
         return this.images.get ( image );
     }
 
+    /**
+     * Returns the image at the given index if it is available without blocking
+     * Holders that decode images on demand may return a nearby image instead
+     * 
+     * @param image Index of image
+     * @return the image at the given index, or the closest available image
+     */
+    public BufferedImage getLoadedImage ( int image ) {
+        return this.getImage ( image );
+    }
+
+    /**
+     * Returns the image at the given index if it is available without blocking
+     * Holders that decode images on demand return the given fallback instead, if there is one,
+     * so a caller can keep showing the image it got last
+     * 
+     * @param image Index of image
+     * @param fallback Image to return if the image at the given index is not available, or null
+     * @return the image at the given index, the fallback, or the closest available image
+     */
+    public BufferedImage getLoadedImage ( int image, BufferedImage fallback ) {
+        return this.getLoadedImage ( image );
+    }
+
     /**
      * Returns the number of images in this image holder
      * 
      * @return the number of images in this image holder
      */
     public int countImages ( ) {
+        ImageFrame[] sealed = this.sealed;
+        if ( sealed != null )
+            return sealed.length;
         return this.images.size ( );
     }
     
+    /**
+     * Returns the image at the given index scaled, then mirrored horizontally, then rotated clockwise
+     * by the given number of quarter turns.
+     * If a variant cache is set, the variant is built once and kept in the cache,
+     * otherwise a new variant is built on every call.
+     * Variants are built from the trimmed image, so offsets of trimmed images do not apply to them.
+     * 
+     * @param image Index of image
+     * @param scale Scale factor, larger than 0
+     * @param flip True to mirror the image horizontally
+     * @param quarterTurns Number of clockwise quarter turns
+     * @return the transformed image
+     * @see VariantCache
+     */
+    public BufferedImage getVariant ( int image, double scale, boolean flip, int quarterTurns ) {
+        VariantCache variants = this.variants;
+        if ( variants != null )
+            return variants.get ( this, image, scale, flip, quarterTurns );
+        if ( scale == 1 && !flip && quarterTurns % 4 == 0 )
+            return this.getImage ( image );
+        return VariantCache.transform ( this.getImage ( image ), scale, flip, quarterTurns );
+    }
+
+    /**
+     * Sets the cache keeping transformed images of this holder
+     * 
+     * @param variants Cache to keep transformed images in, or null
+     */
+    public void setVariantCache ( VariantCache variants ) {
+        this.variants = variants;
+    }
+
+    /**
+     * Returns the cache keeping transformed images of this holder
+     * 
+     * @return the variant cache of this holder, or null
+     */
+    public VariantCache getVariantCache ( ) {
+        return this.variants;
+    }
+
+    /**
+     * Prevents the images of this holder from being released while it is in use,
+     * for example while an animator is running.
+     * Holders that keep all images in memory ignore this.
+     */
+    public void pin ( ) {
+    }
+
+    /**
+     * Releases a pin added by {@link #pin()}
+     */
+    public void unpin ( ) {
+    }
+
     /**
      * Returns a new animator for this image.
      * 
@@ -68,4 +414,16 @@ public class ImageHolder {
     public ImageAnimator getAnimator ( long tickrate ) {
         return new ImageAnimator ( this, tickrate );
     }
+
+    /**
+     * Returns a new animator for this image, driven by the given clock.
+     * If the clock is null, the animator is driven by calling {@link ImageAnimator#update(long)}.
+     * 
+     * @param tickrate Duration of each frame
+     * @param clock Clock to drive the animator, or null
+     * @return a new animator for this image.
+     */
+    public ImageAnimator getAnimator ( long tickrate, AnimationClock clock ) {
+        return new ImageAnimator ( this, tickrate, clock );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.media.utils.loaders.ByteBufferImageInputStream;
+
+/**
+ * Decodes images with ImageIO, reusing readers between images.
+ *
+ * {@link ImageIO#read(java.io.InputStream)} looks up a reader in the service registry,
+ * buffers the stream and disposes the reader for every image. This decoder instead reads
+ * straight from the buffer, and keeps the readers it has used on each thread, so decoding
+ * many small images of the same format only looks up a reader once per thread. The registry
+ * is only consulted for data none of the thread's readers recognize.
+ *
+ * Readers hold native and buffer resources until they are disposed. Readers of threads that
+ * have ended are disposed the next time a new thread decodes; {@link #close()} disposes all.
+ */
+public class ImageIODecoder implements ImageDecoder, Closeable {
+
+    /**
+     * Readers used by each thread, most recently added last
+     * Each list is locked while its thread decodes, so close never disposes a reader in use
+     */
+    private ThreadLocal<List<ImageReader>> readers = new ThreadLocal<List<ImageReader>> ( ) {
+        @Override
+        protected List<ImageReader> initialValue ( ) {
+            List<ImageReader> readers = new ArrayList<ImageReader> ( );
+            ImageIODecoder.this.register ( readers );
+            return readers;
+        }
+    };
+
+    /**
+     * Reader lists of every thread that has decoded with this decoder, guarded by itself
+     */
+    private Map<Thread, List<ImageReader>> threadReaders = new HashMap<Thread, List<ImageReader>> ( );
+
+    private volatile boolean closed = false;
+
+    private LongAdder lookups = new LongAdder ( );
+
+    /**
+     * Decodes the given data with the first ImageIO reader that recognizes it
+     *
+     * @param data Encoded image, from its position to its limit, which are left unchanged
+     * @return the decoded image, or null if no reader recognizes the data
+     * @throws IOException if the image could not be decoded
+     */
+    @Override
+    public BufferedImage decode ( ByteBuffer data ) throws IOException {
+        List<ImageReader> readers = this.readers.get ( );
+        synchronized ( readers ) {
+            if ( this.closed )
+                throw new IOException ( "Decoder is closed" );
+
+            ImageInputStream input = new ByteBufferImageInputStream ( data );
+            ImageReader reader = this.getReader ( readers, input );
+            if ( reader == null )
+                return null;
+
+            boolean failed = true;
+            try {
+                reader.setInput ( input, true, true );
+                BufferedImage image = reader.read ( 0, reader.getDefaultReadParam ( ) );
+                failed = false;
+                return image;
+            } finally {
+                // Drop readers that failed, in case they were left in a broken state
+                if ( failed ) {
+                    readers.remove ( reader );
+                    reader.dispose ( );
+                } else {
+                    reader.reset ( );
+                }
+                input.close ( );
+            }
+        }
+    }
+
+    /**
+     * Disposes the readers of all threads
+     * Decoding with this decoder afterwards fails with an IOException
+     */
+    @Override
+    public void close ( ) {
+        synchronized ( this.threadReaders ) {
+            this.closed = true;
+            for ( List<ImageReader> readers : this.threadReaders.values ( ) )
+                ImageIODecoder.dispose ( readers );
+            this.threadReaders.clear ( );
+        }
+    }
+
+    /**
+     * Returns the number of times a reader had to be looked up in the ImageIO registry
+     *
+     * @return the number of registry lookups
+     */
+    public long getRegistryLookups ( ) {
+        return this.lookups.sum ( );
+    }
+
+    /**
+     * Remembers the reader list of the current thread, and disposes the readers of threads that have ended
+     */
+    private void register ( List<ImageReader> readers ) {
+        synchronized ( this.threadReaders ) {
+            Iterator<Map.Entry<Thread, List<ImageReader>>> entries = this.threadReaders.entrySet ( ).iterator ( );
+            while ( entries.hasNext ( ) ) {
+                Map.Entry<Thread, List<ImageReader>> entry = entries.next ( );
+                if ( !entry.getKey ( ).isAlive ( ) ) {
+                    ImageIODecoder.dispose ( entry.getValue ( ) );
+                    entries.remove ( );
+                }
+            }
+            if ( !this.closed )
+                this.threadReaders.put ( Thread.currentThread ( ), readers );
+        }
+    }
+
+    /**
+     * Disposes and removes the given readers
+     */
+    private static void dispose ( List<ImageReader> readers ) {
+        synchronized ( readers ) {
+            for ( ImageReader reader : readers )
+                reader.dispose ( );
+            readers.clear ( );
+        }
+    }
+
+    /**
+     * Returns a reader of the current thread recognizing the given input, looking up a new one if needed
+     *
+     * @param readers Readers of the current thread
+     * @param input Input to find a reader for
+     * @return a reader for the input, or null if no reader recognizes it
+     * @throws IOException if the input could not be read
+     */
+    private ImageReader getReader ( List<ImageReader> readers, ImageInputStream input ) throws IOException {
+        for ( ImageReader reader : readers )
+            if ( reader.getOriginatingProvider ( ).canDecodeInput ( input ) )
+                return reader;
+
+        this.lookups.increment ( );
+        Iterator<ImageReader> found = ImageIO.getImageReaders ( input );
+        if ( !found.hasNext ( ) )
+            return null;
+        ImageReader reader = found.next ( );
+        readers.add ( reader );
+        return reader;
+    }
+}
@@ -1,32 +1,198 @@
 package javax.media.utils.loaders.images;
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
 import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-import javax.imageio.ImageIO;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.management.openmbean.KeyAlreadyExistsException;
+import javax.media.utils.loaders.AssetBundle;
 import javax.media.utils.loaders.BadConfigurationLineException;
+import javax.media.utils.loaders.ByteBufferInputStream;
+import javax.media.utils.loaders.LatencyHistogram;
+import javax.media.utils.loaders.LoadScheduler;
+import javax.media.utils.loaders.ResourceWatcher;
 
 /**
  * Provides access to image files (dynamic and static)
  * Images are addressed by group name (or file name - extension for single images)
  */
 public class ImageLoader {
+    /**
+     * Number of timed passes over the images of a holder when measuring drawing time
+     */
+    private static final int BLIT_PASSES = 16;
+
     /**
      * Map from image group name to the corresponding ImageHolder
+     * Read without locking; holders are added while holding the lock of the holders list
      */
     private Map<String, ImageHolder> imagesMap;
 
+    /**
+     * All holders in the order they were added, indexed by handle
+     * Its lock guards adding holders to all three registries together
+     */
+    private List<ImageHolder> holders;
+
+    /**
+     * Map from image group name to the handle of the corresponding ImageHolder
+     */
+    private Map<String, Integer> handles;
+
+    /**
+     * Pool to decode images on, or null to decode images on the loading thread
+     */
+    private ForkJoinPool loadPool = null;
+
+    /**
+     * If true, single images and sequences are decoded when first requested
+     */
+    private boolean lazyLoading = false;
+
+    /**
+     * Sequences with at least this many images are streamed, or 0 to never stream sequences
+     */
+    private int streamingThreshold = 0;
+
+    /**
+     * Number of images streaming holders keep decoded ahead of the current image
+     */
+    private int streamingWindow = 0;
+
+    /**
+     * Executor and number of images used by lazy holders to decode images ahead of time
+     */
+    private Executor prefetcher = null;
+    private int prefetchCount = 0;
+
+    /**
+     * If true, images sliced from strips are copied into accelerated images when a display is present
+     */
+    private boolean acceleratedStrips = false;
+
+    /**
+     * Type every decoded image is converted to, or TYPE_CUSTOM to keep images as decoded
+     */
+    private int pixelFormat = BufferedImage.TYPE_CUSTOM;
+
+    /**
+     * Largest number of colors of images repacked with a palette while loading, or 0 to keep full color
+     */
+    private int indexedColorLimit = 0;
+
+    /**
+     * If true, images are cropped to their non-transparent pixels while loading
+     */
+    private boolean trimBorders = false;
+
+    /**
+     * Cache that lazily loaded holders keep their decoded images in, or null
+     */
+    private ImageCache imageCache = null;
+
+    /**
+     * Cache of transformed images given to every holder, or null
+     */
+    private VariantCache variantCache = null;
+
+    /**
+     * On-disk cache of decoded images, or null
+     */
+    private PixelCache pixelCache = null;
+
+    /**
+     * Bundle that resources are read from, or null to read resources from the classpath
+     */
+    private AssetBundle bundle = null;
+
+    /**
+     * Decoders asked in turn to decode each image
+     */
+    private List<ImageDecoder> decoders = new CopyOnWriteArrayList<ImageDecoder> ( new ImageDecoder[] { new ImageIODecoder ( ) } );
+
+    /**
+     * Time taken by each configuration file load, and by each image read and decode
+     */
+    private LatencyHistogram loadLatency = new LatencyHistogram ( );
+    private LatencyHistogram decodeLatency = new LatencyHistogram ( );
+
+    /**
+     * Name this loader is registered with the platform MBean server under, or null
+     */
+    private ObjectName mbeanName = null;
+
+    /**
+     * Configuration entries that holders were loaded from, by holder name
+     * Used to find the frames to replace when a resource changes
+     */
+    private Map<String, ConfigEntry> configEntries;
+
+    /**
+     * Scheduler loading configuration files in the background, or null until first needed
+     */
+    private LoadScheduler scheduler = null;
+
+    /**
+     * Number of loaders created, and the prefix of the keys of the tasks of this loader in the load scheduler,
+     * so loaders sharing a scheduler never take each other's tasks for their own
+     */
+    private static AtomicInteger loaderCount = new AtomicInteger ( );
+    private String taskPrefix = "image" + ImageLoader.loaderCount.incrementAndGet ( ) + ":";
+
+    /**
+     * Holders scheduled to load in the background that are not loaded yet, by name
+     */
+    private Map<String, CompletableFuture<ImageHolder>> pendingHolders = new ConcurrentHashMap<String, CompletableFuture<ImageHolder>> ( );
+
+    /**
+     * Watcher reloading changed resources, or null
+     */
+    private ResourceWatcher watcher = null;
+
     /**
      * Sets up the current class and parses the given configuration file
      * 
@@ -39,351 +205,2203 @@ public class ImageLoader {
     }
 
     /**
-     * Initializes data structures for storing images
+     * Sets up the current class and parses the given configuration file,
+     * decoding images in parallel on the given pool
+     * 
+     * @param configFilePath Path to configuration file
+     * @param loadPool Pool to decode images on
+     * @see #loadImagesFromConfig(InputStream)
      */
-    public ImageLoader ( ) {
-        this.imagesMap = new HashMap<String, ImageHolder> ( );
+    public ImageLoader ( InputStream configurationFile, ForkJoinPool loadPool ) throws IOException, BadConfigurationLineException {
+        this ( );
+        this.setLoadPool ( loadPool );
+        loadImagesFromConfig ( configurationFile );
     }
 
     /**
-     * Reads in the given configuration file, and loads images according to these rules:
-     * 
-     * <pre>
-     * o FNM                // a single image file
-     * n FNM*.ext N         // a series of numbered image files, whose filenames use the numbers 0 - N-1
-     *                      // Note that the * must be the last character before the extension
-     * s FNM N              // a strip file containing a single row of number images
-     * g GROUP FNM [ FNM ]* // a group of files with different names; they are accessible via GROUP and position or FNM
-     * //                   // a comment line
-     * </pre>
-     * 
-     * Given that fnm is the file name without the extension, and n is the index of the image in the strip, sequence or
-     * group:
-     * Numbered image files can be accessed with [Loader].getHolder(fnm).getImage(n);
-     * Strips can be accessed with [Loader].getHolder(fnm).getImage(n);
-     * Single images can be accessed with [Loader].getHolder(fnm).getImage(0); or [Loader].getImage(fnm);
-     * Group images can be access with [Loader].getHolder(group_name).getImage(n); or
-     * [Loader].getGroupHolder(group).getImage(fnm);
+     * Sets up the current class and loads the image configuration stored in the given bundle.
+     * All images are read from the bundle rather than the classpath.
      * 
-     * Images are stored as BufferedImage objects so they are managed by the JVM when possible
-     * 
-     * @param configurationFile Path to configuration file
-     * @throws IOException if the configuration file could not be read
-     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     * @param bundle Bundle to load images from
+     * @throws IOException if the bundle contains no image configuration, or an image could not be read
+     * @see #loadImagesFromConfig(InputStream)
      */
-    private void loadImagesFromConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
-        System.out.println ( "Reading image configuration file: " + configurationFile );
+    public ImageLoader ( AssetBundle bundle ) throws IOException, BadConfigurationLineException {
+        this ( );
+        this.bundle = bundle;
 
-        BufferedReader br = new BufferedReader ( new InputStreamReader ( configurationFile ) );
-        String line;
-        int lineNumber = 0;
+        InputStream configurationFile = bundle.openStream ( AssetBundle.IMAGE_CONFIGURATION );
+        if ( configurationFile == null )
+            throw new IOException ( "Asset bundle contains no image configuration" );
+        loadImagesFromConfig ( configurationFile );
+    }
 
-        while ( ( line = br.readLine ( ) ) != null ) {
-            line = line.trim ( );
-            lineNumber++;
+    /**
+     * Sets up the current class and loads the image configuration stored in the given bundle,
+     * decoding images in parallel on the given pool
+     * 
+     * @param bundle Bundle to load images from
+     * @param loadPool Pool to decode images on
+     * @throws IOException if the bundle contains no image configuration, or an image could not be read
+     * @see #ImageLoader(AssetBundle)
+     */
+    public ImageLoader ( AssetBundle bundle, ForkJoinPool loadPool ) throws IOException, BadConfigurationLineException {
+        this ( );
+        this.bundle = bundle;
+        this.setLoadPool ( loadPool );
 
-            // Dummy statement for pretty layout of code
-            if ( line.length ( ) == 0 )
-                continue;
-            else if ( line.startsWith ( "//" ) )
-                continue; // Comment
+        InputStream configurationFile = bundle.openStream ( AssetBundle.IMAGE_CONFIGURATION );
+        if ( configurationFile == null )
+            throw new IOException ( "Asset bundle contains no image configuration" );
+        loadImagesFromConfig ( configurationFile );
+    }
 
-            // Tokenize and interpret line
-            StringTokenizer tokens = new StringTokenizer ( line );
-            tokens.nextToken ( ); // To skip the first character token
+    /**
+     * Initializes data structures for storing images
+     */
+    public ImageLoader ( ) {
+        this.imagesMap = new ConcurrentHashMap<String, ImageHolder> ( );
+        this.holders = new CopyOnWriteArrayList<ImageHolder> ( );
+        this.handles = new ConcurrentHashMap<String, Integer> ( );
+        this.configEntries = new ConcurrentHashMap<String, ConfigEntry> ( );
+    }
 
-            char ch = Character.toLowerCase ( line.charAt ( 0 ) );
-            try {
-                try {
-                    switch ( ch ) {
-                        // Single image
-                        case 'o':
-                            if ( tokens.countTokens ( ) != 1 )
-                                throw new BadConfigurationLineException ( "No image filename found for single image" );
-                            String name = tokens.nextToken ( );
-                            String index = ImageLoader.getResourceIndex ( name );
-                            this.loadImages ( index, new String[] { name }, new ImageHolder ( ) );
-                            break;
-                        // Sequence of images (filename pattern)
-                        case 'n':
-                            if ( tokens.countTokens ( ) == 0 )
-                                throw new BadConfigurationLineException ( "No image pattern or image number found" );
-                            if ( tokens.countTokens ( ) == 1 )
-                                throw new BadConfigurationLineException ( "No image count found" );
-                            if ( tokens.countTokens ( ) != 2 )
-                                throw new BadConfigurationLineException ( "Too many options for sequenced image" );
-
-                            String pattern = tokens.nextToken ( );
-                            int imagesInSequence = ImageLoader.intFromCommandToken ( tokens.nextToken ( ) );
-
-                            String[] parts = pattern.split ( "\\*", 0 );
-                            if ( parts.length != 2 || parts[0].length ( ) == 0 || parts[1].length ( ) == 0 )
-                                throw new BadConfigurationLineException ( "No * found in filename pattern" );
-
-                            if ( this.imagesMap.containsKey ( parts[0] ) )
-                                throw new BadConfigurationLineException ( "Sequence name " + parts[0] + " already defined" );
-
-                            String[] resources = new String[imagesInSequence];
-
-                            for ( int i = 0; i < imagesInSequence; i++ )
-                                resources[i] = parts[0] + i + parts[1];
-
-                            this.loadImages ( ImageLoader.getResourceIndex ( parts[0] ), resources, new ImageHolder ( ) );
-                            break;
-                        // Sequence of images in a single file
-                        case 's':
-
-                            if ( tokens.countTokens ( ) == 0 )
-                                throw new BadConfigurationLineException ( "No image or image count specified for strip" );
-                            if ( tokens.countTokens ( ) == 1 )
-                                throw new BadConfigurationLineException ( "No image count found" );
-                            if ( tokens.countTokens ( ) != 2 )
-                                throw new BadConfigurationLineException ( "Too many options for strip" );
-
-                            String stripFile = tokens.nextToken ( );
-                            String stripIndex = ImageLoader.getResourceIndex ( stripFile );
-                            int imagesInStrip = ImageLoader.intFromCommandToken ( tokens.nextToken ( ) );
-
-                            BufferedImage stripImage;
-                            try {
-                                stripImage = this.loadImageFromStream ( this.getClass ( ).getResourceAsStream ( stripFile ) );
-                            } catch ( NullPointerException e ) {
-                                throw new BadConfigurationLineException ( "Could not read strip file: " + stripFile );
-                            }
-
-                            int imWidth = (int) ( stripImage.getWidth ( ) / imagesInStrip );
-                            int imHeight = stripImage.getHeight ( );
-                            int transparency = stripImage.getColorModel ( ).getTransparency ( );
-
-                            BufferedImage[] strip = new BufferedImage[imagesInStrip];
-                            Graphics2D stripGC;
-
-                            // each BufferedImage from the strip file is stored in strip[]
-                            for ( int i = 0; i < imagesInStrip; i++ ) {
-                                strip[i] = GraphicsEnvironment.getLocalGraphicsEnvironment ( )
-                                                          .getDefaultScreenDevice ( )
-                                                          .getDefaultConfiguration ( )
-                                                          .createCompatibleImage ( imWidth, imHeight, transparency );
-
-                                // create a graphics context
-                                stripGC = strip[i].createGraphics ( );
-
-                                // copy image
-                                stripGC.drawImage (
-                                        stripImage,
-                                        0, 0, imWidth, imHeight,
-                                        i * imWidth, 0, ( i * imWidth ) + imWidth, imHeight,
-                                        null );
-                                stripGC.dispose ( );
-                            }
-
-                            this.loadImages ( stripIndex, null, strip, new ImageHolder ( ) );
-
-                            break;
-                        // Group of images
-                        case 'g':
-
-                            if ( tokens.countTokens ( ) == 0 )
-                                throw new BadConfigurationLineException ( "No group name given" );
-                            if ( tokens.countTokens ( ) == 1 )
-                                throw new BadConfigurationLineException ( "No images found in group" );
-
-                            String groupName = tokens.nextToken ( );
-
-                            String[] groupResources = new String[tokens.countTokens ( )];
-                            int i = 0;
-                            while ( tokens.hasMoreTokens ( ) )
-                                groupResources[i++] = tokens.nextToken ( );
-
-                            this.loadImages ( ImageLoader.getResourceIndex ( groupName ), groupResources, new GroupImageHolder ( ) );
-                            break;
-                        default:
-                            throw new BadConfigurationLineException ( "No image load command found! First character should be o, n, s or g" );
-                    }
-                } catch ( KeyAlreadyExistsException e ) {
-                    throw new BadConfigurationLineException ( e.getMessage ( ) );
-                }
-            } catch ( BadConfigurationLineException e ) {
-                // Recatch the exception to add additional debug information
-                e.setLineNumber ( lineNumber );
-                e.setLine ( line );
-                throw e;
-            }
-        }
-        br.close ( );
+    /**
+     * Sets the pool used to decode images when loading configuration files
+     * If null is given, images are decoded one at a time on the loading thread
+     * 
+     * @param loadPool Pool to decode images on, or null
+     */
+    public void setLoadPool ( ForkJoinPool loadPool ) {
+        this.loadPool = loadPool;
     }
 
     /**
-     * Loads the given images into the holder at the given index.
+     * Returns the pool used to decode images, or null if images are decoded serially
      * 
-     * @see #loadImage(String, String, BufferedImage, ImageHolder)
-     * @throws IOException if a given resource could not be read
+     * @return the pool used to decode images, or null
      */
-    public void loadImages ( String index, String[] resources, ImageHolder holder ) throws IOException {
-        for ( String resource : resources ) {
-            InputStream imageStream = this.getClass ( ).getResourceAsStream ( resource );
-            if ( imageStream == null )
-                throw new IOException ( String.format ( "Failed to read image file '%s'", resource ) );
+    public ForkJoinPool getLoadPool ( ) {
+        return this.loadPool;
+    }
 
-            BufferedImage image = this.loadImageFromStream ( imageStream );
-            this.loadImage ( index, resource, image, holder );
-        }
+    /**
+     * Enables or disables lazy loading of single images (o) and sequences (n).
+     * When enabled, only the locations of these images are recorded when a
+     * configuration file is loaded, and each image is decoded when first requested.
+     * Strips and groups are always decoded up front.
+     * 
+     * @param enable True to enable lazy loading, false otherwise
+     * @see LazyImageHolder
+     */
+    public void setLazyLoading ( boolean enable ) {
+        this.lazyLoading = enable;
     }
 
     /**
-     * Loads the given images into the holder at the given index
+     * Enables or disables streaming of long sequences (n).
+     * Sequences with at least the given number of images are loaded into a {@link StreamingImageHolder},
+     * which only keeps the given number of images following the current image decoded, and decodes them
+     * in the background as the sequence plays. This bounds the memory of a sequence by the window size,
+     * and applies whether or not lazy loading is enabled.
      * 
-     * @see #loadImage(String, String, BufferedImage, ImageHolder)
+     * Background decoding uses the executor set by {@link #setPrefetch(Executor, int)}, or the common pool.
+     * Streaming holders do not use the image cache, since they manage their own window.
+     * 
+     * @param minImages Number of images from which sequences are streamed, or 0 to never stream sequences
+     * @param window Number of images to keep decoded ahead of the current image, at least 1
      */
-    public void loadImages ( String index, String[] indexNames, BufferedImage[] images, ImageHolder holder ) throws KeyAlreadyExistsException {
-        for ( int i = 0; i < images.length; i++ )
-            if ( indexNames == null )
-                this.loadImage ( index, null, images[i], holder );
-            else
-                this.loadImage ( index, indexNames[i], images[i], holder );
+    public void setStreaming ( int minImages, int window ) {
+        if ( minImages > 0 && window < 1 )
+            throw new IllegalArgumentException ( "Streaming window must be at least 1 image" );
+        this.streamingThreshold = Math.max ( 0, minImages );
+        this.streamingWindow = window;
     }
 
     /**
-     * Loads the given image into a image holder at the given index.
+     * Sets the cache that lazily loaded holders keep their decoded images in.
+     * The cache evicts least recently used images once its byte budget is exceeded,
+     * and evicted images are decoded again from their resource when next requested.
+     * Only applies to holders loaded after this call.
      * 
-     * If no image holder exists at the given index, the given holder is used.
-     * If the given holder is null, a new ImageHolder object is used.
-     * If a different holder exists at the given index *and* a holder is given,
-     * a KeyAlreadyExistsException is thrown.
+     * @param imageCache Cache to use, or null to keep all decoded images
+     * @see #setLazyLoading(boolean)
+     */
+    public void setImageCache ( ImageCache imageCache ) {
+        this.imageCache = imageCache;
+    }
+
+    /**
+     * Returns the cache that lazily loaded holders keep their decoded images in, or null
      * 
-     * imageFile may be null as long as the ImageHolder is not a GroupImageHolder.
+     * @return the image cache, or null
+     */
+    public ImageCache getImageCache ( ) {
+        return this.imageCache;
+    }
+
+    /**
+     * Sets the cache that all holders of this loader keep their transformed images in,
+     * including holders that are already loaded.
+     * Variants named by v lines of a configuration file are only built if a variant cache is set.
      * 
-     * @param index The index to use
-     * @param imageFile A file associated with the given image
-     * @param image The image to add to the holder at the given index
-     * @param holder Holder to use if no holder exists at the given index
-     * @throws KeyAlreadyExistsException if a holder exists at the given index *and* a holder is given
+     * @param variantCache Cache to keep transformed images in, or null
+     * @see ImageHolder#getVariant(int, double, boolean, int)
      */
-    public void loadImage ( String index, String imageName, BufferedImage image, ImageHolder holder ) throws KeyAlreadyExistsException {
-        if ( !this.imagesMap.containsKey ( index ) ) {
-            if ( holder == null )
-                holder = new ImageHolder ( );
-            this.imagesMap.put ( index, holder );
-        } else if ( holder != null ) {
-            if ( holder != this.imagesMap.get ( index ) )
-                throw new KeyAlreadyExistsException ( "Attempted to create new image holder, but a holder is already present at the given index " + index );
+    public void setVariantCache ( VariantCache variantCache ) {
+        synchronized ( this.holders ) {
+            this.variantCache = variantCache;
+            for ( ImageHolder holder : this.holders )
+                holder.setVariantCache ( variantCache );
         }
+    }
 
-        System.out.println ( "Storing image by name " + imageName + " to holder indexed by " + index );
-        this.imagesMap.get ( index ).addImage ( imageName, image );
+    /**
+     * Returns the cache that holders keep their transformed images in
+     * 
+     * @return the variant cache, or null
+     */
+    public VariantCache getVariantCache ( ) {
+        return this.variantCache;
     }
 
     /**
-     * Parses the given token as an int, and throws a BadConfigurationLineException if the token is not a positive int
+     * Sets the on-disk cache of decoded images.
+     * When set, images are looked up in the cache by resource name and a digest of
+     * their encoded data before being decoded, and newly decoded images are stored in it.
+     * Decoded images are then always TYPE_INT_ARGB, or TYPE_INT_RGB if they are opaque,
+     * whether or not they were found in the cache, before {@link #setPixelFormat(int)} applies.
      * 
-     * @param token Token to parse
-     * @return token parsed as an integer
-     * @throws BadConfigurationLineException if the token is not a positive integer
+     * @param pixelCache Cache to use, or null to always decode images
      */
-    private static int intFromCommandToken ( String token ) throws BadConfigurationLineException {
-        int imageCount;
-        try {
-            imageCount = Integer.parseInt ( token );
-            if ( imageCount <= 0 )
-                throw new BadConfigurationLineException ( "Number of images must be > 0" );
-            return imageCount;
-        } catch ( NumberFormatException e ) {
-            throw new BadConfigurationLineException ( "Number of images must be an integer" );
-        }
+    public void setPixelCache ( PixelCache pixelCache ) {
+        this.pixelCache = pixelCache;
     }
 
     /**
-     * Returns the image holder associated with the given name
+     * Returns the on-disk cache of decoded images, or null
      * 
-     * @param name Name of the holder to retrieve
-     * @return The holder associated with the given name
-     * @throws NoSuchElementException if no image by the given name exists
+     * @return the on-disk cache of decoded images, or null
      */
-    public ImageHolder getHolder ( String name ) throws NoSuchElementException {
-        ImageHolder holder = this.imagesMap.get ( name );
-        if ( holder == null )
-            throw new NoSuchElementException ( "No such image: " + name );
-        return holder;
+    public PixelCache getPixelCache ( ) {
+        return this.pixelCache;
     }
 
     /**
-     * Returns the group image holder associated with the given name
-     * If the given name is not associated with a group holder, null is returned
+     * Enables or disables copying strip images into images compatible with the screen.
+     * By default, strip images share the pixels of the strip they were sliced from,
+     * which works headless and avoids copying. When enabled, and a display is present,
+     * each image is instead copied into an image that can be accelerated by the graphics device.
      * 
-     * @param name Name of the group holder to retrieve
-     * @return The group holder associated with the given name or null
-     * @throws NoSuchElementException if no image by the given group name exists
+     * @param enable True to copy strip images into accelerated images, false otherwise
      */
-    public GroupImageHolder getGroupHolder ( String name ) throws NoSuchElementException {
-        ImageHolder ih = this.getHolder ( name );
-        if ( ih != null && ih instanceof GroupImageHolder )
-            return (GroupImageHolder) ih;
-        return null;
+    public void setAcceleratedStrips ( boolean enable ) {
+        this.acceleratedStrips = enable;
     }
 
     /**
-     * Gets the first image of the image holder by the given name
+     * Sets the type every decoded image is converted to.
+     * ImageIO often decodes to types such as TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR or indexed types,
+     * which Java2D converts again on every draw. Converting once while loading lets every
+     * later draw use the fast loops for the given type. Opaque images are converted to
+     * TYPE_INT_RGB instead, since they have no alpha to store.
      * 
-     * @param name Name of the holder to get the first image of
-     * @return the first image of the image holder by the given name or null
-     * @throws NoSuchElementException if no image by the given group name exists
+     * Conversion happens on the thread decoding the image, so it runs on the load pool when
+     * one is set, and does not need a display.
+     * 
+     * While a pixel format is set, images are not repacked into indexed images while loading,
+     * even if {@link #setIndexedColorLimit(int)} is set, since that would undo the conversion.
+     * 
+     * TYPE_INT_RGB is not accepted, since translucent images would lose their alpha;
+     * opaque images get it anyway.
+     * 
+     * @param imageType TYPE_INT_ARGB_PRE or TYPE_INT_ARGB, or TYPE_CUSTOM to keep images as decoded
+     * @throws IllegalArgumentException if the type is not supported
+     * @see #convertImage(BufferedImage, int)
      */
-    public BufferedImage getImage ( String name ) throws NoSuchElementException {
-        return this.getHolder ( name ).getImage ( 0 );
+    public void setPixelFormat ( int imageType ) throws IllegalArgumentException {
+        switch ( imageType ) {
+            case BufferedImage.TYPE_CUSTOM:
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+            case BufferedImage.TYPE_INT_ARGB:
+                this.pixelFormat = imageType;
+                break;
+            default:
+                throw new IllegalArgumentException ( "Unsupported pixel format " + imageType );
+        }
     }
 
     /**
-     * Returns true if an image holder exists by the given name, false otherwise
+     * Returns the type every decoded image is converted to
      * 
-     * @param name Name of image holder
-     * @return true if an image holder exists by the given name, false otherwise
+     * @return the type images are converted to, or TYPE_CUSTOM if they are kept as decoded
      */
-    public boolean isLoaded ( String name ) {
-        return this.imagesMap.containsKey ( name );
+    public int getPixelFormat ( ) {
+        return this.pixelFormat;
     }
 
     /**
-     * Returns the number of images in the given image holder
-     * Returns 0 if the given image holder does not exist
+     * Sets the largest number of colors of images that are repacked into 8 bit indexed images while loading.
+     * Indexed images take a quarter of the memory of 32 bit images, but Java2D may draw them more slowly;
+     * use {@link #compactColors(String, int)} to measure both for a single holder.
      * 
-     * @param name Name of the image holder
-     * @return the number of images in the given image holder
+     * The images of a holder share a single palette when they use few enough colors together, and otherwise
+     * each image with few enough colors gets its own palette. Images with more colors keep full color.
+     * Lazily loaded holders are never compacted, and no holder is compacted while loading as long as
+     * a pixel format is set with {@link #setPixelFormat(int)}.
+     * 
+     * @param maxColors Largest number of colors, at most 256, or 0 to keep all images in full color
+     * @see PaletteCompactor
      */
-    public int numImages ( String name ) {
-        if ( !this.imagesMap.containsKey ( name ) )
-            return 0;
-        return this.imagesMap.get ( name ).countImages ( );
+    public void setIndexedColorLimit ( int maxColors ) {
+        if ( maxColors < 0 || maxColors > PaletteCompactor.MAX_COLORS )
+            throw new IllegalArgumentException ( "Color limit must be between 0 and " + PaletteCompactor.MAX_COLORS );
+        this.indexedColorLimit = maxColors;
     }
 
     /**
-     * Returns an appropriate name for the given resource
+     * Returns the largest number of colors of images repacked into indexed images while loading
      * 
-     * @param name Resource to get index for
-     * @return Name of file without extension
+     * @return the largest number of colors, or 0 if images keep full color
      */
-    public static String getResourceIndex ( String name ) {
-        
-        String base = name;
-        if ( name.contains ( "/" ) ) {
-            File f = new File ( name );
-            base = f.getName ( );
-            f = null;
-        }
-        
-        int index = base.lastIndexOf ( '.' );
-        if ( index > 0 && index <= base.length ( ) - 2 )
-            return base.substring ( 0, index );
-        return base;
+    public int getIndexedColorLimit ( ) {
+        return this.indexedColorLimit;
     }
 
     /**
-     * Load the given file name into a BufferedImage object
-     * that is compatible with the current graphics device.
+     * Enables or disables cropping images to the bounding box of their non-transparent pixels while loading.
+     * Sprites are often drawn on a canvas much larger than the sprite itself; trimming them saves
+     * the memory of the empty border, and the time spent drawing it.
      * 
-     * @param imageStream The input stream to load an image from
-     * @throws IOException If the given file could not be read
+     * The position of each trimmed image within its canvas is kept in its holder, so it can be drawn
+     * at the same spot as the untrimmed image; see {@link ImageHolder#getOffsetX(int)} and
+     * {@link ImageAnimator#getCurrentOffsetX()}. Lazily loaded holders are never trimmed.
+     * 
+     * @param enable True to trim images, false to keep them as they are
      */
-    public BufferedImage loadImageFromStream ( InputStream imageStream ) throws IOException {
-        return ImageIO.read ( imageStream );
+    public void setTrimTransparentBorders ( boolean enable ) {
+        this.trimBorders = enable;
+    }
+
+    /**
+     * Returns true if images are cropped to their non-transparent pixels while loading
+     * 
+     * @return true if images are trimmed
+     */
+    public boolean isTrimTransparentBorders ( ) {
+        return this.trimBorders;
+    }
+
+    /**
+     * Sets how lazily loaded holders decode images in the background.
+     * Whenever an image is requested, the given number of images following it
+     * are decoded on the given executor.
+     * 
+     * @param prefetcher Executor to decode images on, or null to use the common pool
+     * @param prefetchCount Number of images to decode ahead, or 0 to disable prefetching
+     */
+    public void setPrefetch ( Executor prefetcher, int prefetchCount ) {
+        this.prefetcher = prefetcher;
+        this.prefetchCount = prefetchCount;
+    }
+
+    /**
+     * Reads in the given configuration file, and loads images according to these rules:
+     * 
+     * <pre>
+     * o FNM                // a single image file
+     * n FNM*.ext N         // a series of numbered image files, whose filenames use the numbers 0 - N-1
+     *                      // Note that the * must be the last character before the extension
+     * s FNM N              // a strip file containing a single row of number images
+     * s FNM C R [P [M]]    // a sheet containing a grid of C columns and R rows of images, read row by row,
+     *                      // with P pixels of padding between images and a margin of M pixels around the grid
+     * g GROUP FNM [ FNM ]* // a group of files with different names; they are accessible via GROUP and position or FNM
+     * v NAME S [h] [R]     // builds the images of the previously loaded holder NAME scaled by S, mirrored if h is given,
+     *                      // and rotated clockwise by R quarter turns, ahead of time; requires a variant cache
+     * //                   // a comment line
+     * </pre>
+     * 
+     * Given that fnm is the file name without the extension, and n is the index of the image in the strip, sequence or
+     * group:
+     * Numbered image files can be accessed with [Loader].getHolder(fnm).getImage(n);
+     * Strips and sheets can be accessed with [Loader].getHolder(fnm).getImage(n);
+     * Single images can be accessed with [Loader].getHolder(fnm).getImage(0); or [Loader].getImage(fnm);
+     * Group images can be access with [Loader].getHolder(group_name).getImage(n); or
+     * [Loader].getGroupHolder(group).getImage(fnm);
+     * 
+     * The whole file is parsed before any image is decoded. If a load pool has been set,
+     * all images are then decoded in parallel on that pool, otherwise they are decoded
+     * one entry at a time. In both cases holders are filled in the order given by the
+     * configuration file, so frame order is the same regardless of how images are decoded.
+     * 
+     * Configuration files can be loaded on background threads while other threads use the holders
+     * that are already loaded. Each holder is filled and sealed before it is added, so a holder
+     * found by name or handle always has all its images.
+     * 
+     * Images are stored as BufferedImage objects so they are managed by the JVM when possible
+     * 
+     * @param configurationFile Path to configuration file
+     * @throws IOException if the configuration file or an image could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     * @see #setLoadPool(ForkJoinPool)
+     */
+    public void loadImagesFromConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        System.out.println ( "Reading image configuration file: " + configurationFile );
+
+        long start = System.nanoTime ( );
+        try {
+            this.loadEntries ( this.parseConfig ( configurationFile, false ) );
+        } finally {
+            this.loadLatency.record ( System.nanoTime ( ) - start );
+        }
+    }
+
+    /**
+     * Schedules the holders of the given configuration file to load in the background, and returns right away.
+     * The file itself is read and checked on the calling thread, so invalid lines are reported by this call.
+     * 
+     * Holders load in order of priority, then in file order, on the threads of the load scheduler.
+     * Each holder becomes available once it is fully loaded; until then {@link #getHolderAsync(String)}
+     * returns a future completing once it is loaded, and {@link #getHolder(String)} loads it right away
+     * on the calling thread instead of waiting for its turn. Variant lines (v) are applied once the holder
+     * they name is loaded.
+     * 
+     * @param configurationFile Configuration file to load, in the format of {@link #loadImagesFromConfig(InputStream)}
+     * @param priority Priority of all holders of the file, higher priorities load first
+     * @param priorities Priorities of individual holders by name, overriding the given priority, or null
+     * @return a future completing once all holders of the file are loaded, or exceptionally if any failed to load
+     * @throws IOException if the configuration file could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     * @see #setLoadScheduler(LoadScheduler)
+     * @see LoadScheduler#getProgress()
+     */
+    public CompletableFuture<Void> loadImagesAsync ( InputStream configurationFile, int priority, Map<String, Integer> priorities )
+            throws IOException, BadConfigurationLineException {
+        System.out.println ( "Scheduling image configuration file: " + configurationFile );
+
+        List<ConfigEntry> entries = this.parseConfig ( configurationFile, false );
+        for ( ConfigEntry entry : entries ) {
+            if ( entry.command == 'v' )
+                continue;
+
+            String problem = null;
+            if ( this.pendingHolders.containsKey ( entry.index ) )
+                problem = "Image name " + entry.index + " already scheduled";
+            else if ( this.imagesMap.containsKey ( entry.index ) )
+                problem = "Image name " + entry.index + " already defined";
+            if ( problem != null ) {
+                BadConfigurationLineException e = new BadConfigurationLineException ( problem );
+                e.setLineNumber ( entry.lineNumber );
+                e.setLine ( entry.line );
+                throw e;
+            }
+        }
+
+        LoadScheduler scheduler = this.getLoadScheduler ( );
+        List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>> ( );
+        for ( final ConfigEntry entry : entries ) {
+            if ( entry.command == 'v' ) {
+                futures.add ( this.getHolderAsync ( entry.index ).thenAccept ( new Consumer<ImageHolder> ( ) {
+                    @Override
+                    public void accept ( ImageHolder holder ) {
+                        try {
+                            ImageLoader.this.registerEntry ( entry );
+                        } catch ( IOException | BadConfigurationLineException e ) {
+                            throw new CompletionException ( e );
+                        }
+                    }
+                } ) );
+                continue;
+            }
+
+            Integer entryPriority = priorities != null ? priorities.get ( entry.index ) : null;
+            CompletableFuture<ImageHolder> future = scheduler.submit ( this.getTaskKey ( entry.index ),
+                    entryPriority != null ? entryPriority : priority, this.getEntrySize ( entry ), new Callable<ImageHolder> ( ) {
+                        @Override
+                        public ImageHolder call ( ) throws IOException, BadConfigurationLineException {
+                            for ( int slot = 0; slot < entry.countJobs ( ); slot++ )
+                                ImageLoader.this.decodeEntry ( entry, slot );
+                            ImageLoader.this.registerEntry ( entry );
+                            return entry.holder;
+                        }
+                    } );
+
+            // Added after submitting, so removal always follows: whenComplete runs right away if the holder is already loaded
+            this.pendingHolders.put ( entry.index, future );
+            future.whenComplete ( new BiConsumer<ImageHolder, Throwable> ( ) {
+                @Override
+                public void accept ( ImageHolder holder, Throwable error ) {
+                    ImageLoader.this.pendingHolders.remove ( entry.index );
+                    if ( error != null )
+                        System.err.println ( "Failed to load image " + entry.index + ": " + error.getMessage ( ) );
+                }
+            } );
+            futures.add ( future );
+        }
+        return CompletableFuture.allOf ( futures.toArray ( new CompletableFuture<?>[futures.size ( )] ) );
+    }
+
+    /**
+     * Returns a future completing with the holder of the given name once it is loaded
+     * 
+     * @param name Name of the holder
+     * @return a future completing with the holder, or exceptionally if it failed to load or does not exist
+     * @see #loadImagesAsync(InputStream, int, Map)
+     */
+    public CompletableFuture<ImageHolder> getHolderAsync ( String name ) {
+        // Check pending holders first, since a holder is added before it stops being pending
+        CompletableFuture<ImageHolder> pending = this.pendingHolders.get ( name );
+        if ( pending != null )
+            return pending;
+
+        ImageHolder holder = this.imagesMap.get ( name );
+        if ( holder != null )
+            return CompletableFuture.completedFuture ( holder );
+
+        CompletableFuture<ImageHolder> missing = new CompletableFuture<ImageHolder> ( );
+        missing.completeExceptionally ( new NoSuchElementException ( "No such image: " + name ) );
+        return missing;
+    }
+
+    /**
+     * Raises the priority of the holder of the given name, if it is still waiting to be loaded
+     * 
+     * @param name Name of the holder
+     * @param priority New priority, ignored if lower than the current priority
+     * @return true if the holder is still waiting to be loaded
+     */
+    public boolean prioritize ( String name, int priority ) {
+        LoadScheduler scheduler = this.scheduler;
+        return scheduler != null && scheduler.prioritize ( this.getTaskKey ( name ), priority );
+    }
+
+    /**
+     * Sets the scheduler loading configuration files in the background
+     * A scheduler can be shared with a SoundLoader, so progress covers both images and sounds.
+     * 
+     * @param scheduler Scheduler to use for later calls to {@link #loadImagesAsync(InputStream, int, Map)}
+     */
+    public synchronized void setLoadScheduler ( LoadScheduler scheduler ) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns the scheduler loading configuration files in the background,
+     * creating one with a thread per processor if none was set
+     * 
+     * @return the load scheduler
+     */
+    public synchronized LoadScheduler getLoadScheduler ( ) {
+        if ( this.scheduler == null )
+            this.scheduler = new LoadScheduler ( Runtime.getRuntime ( ).availableProcessors ( ) );
+        return this.scheduler;
+    }
+
+    /**
+     * Waits for the holder of the given name if it is scheduled to load but not loaded yet,
+     * loading it on the calling thread if it is still waiting for its turn
+     * 
+     * @param name Name of the holder
+     * @return the loaded holder, or null if the holder is not scheduled to load
+     * @throws NoSuchElementException if the holder failed to load
+     */
+    private ImageHolder awaitPending ( String name ) throws NoSuchElementException {
+        CompletableFuture<ImageHolder> pending = this.pendingHolders.get ( name );
+        if ( pending == null )
+            return null;
+
+        this.getLoadScheduler ( ).expedite ( this.getTaskKey ( name ) );
+        try {
+            return pending.join ( );
+        } catch ( CompletionException | CancellationException e ) {
+            NoSuchElementException error = new NoSuchElementException ( "Failed to load image: " + name );
+            error.initCause ( e.getCause ( ) != null ? e.getCause ( ) : e );
+            throw error;
+        }
+    }
+
+    /**
+     * Returns the key of the holder of the given name in the load scheduler
+     */
+    private String getTaskKey ( String name ) {
+        return this.taskPrefix + name;
+    }
+
+    /**
+     * Returns the size in bytes of the resources decoded for the given entry, as far as it is known without reading them
+     */
+    private long getEntrySize ( ConfigEntry entry ) {
+        if ( entry.lazy )
+            return 0;
+
+        long size = 0;
+        for ( String resource : entry.resources ) {
+            if ( this.bundle != null ) {
+                ByteBuffer data = this.bundle.get ( resource );
+                size += data != null ? data.remaining ( ) : 0;
+                continue;
+            }
+
+            Path file = ResourceWatcher.getResourceFile ( this.getClass ( ), resource );
+            try {
+                size += file != null ? Files.size ( file ) : 0;
+            } catch ( IOException e ) {
+                // Reported when the entry is loaded
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Decodes and registers the given parsed configuration entries
+     * 
+     * @param entries Entries of a configuration file in order
+     * @throws IOException if an image could not be read
+     * @throws BadConfigurationLineException if an entry could not be loaded
+     */
+    private void loadEntries ( List<ConfigEntry> entries ) throws IOException, BadConfigurationLineException {
+        if ( this.loadPool == null ) {
+            for ( ConfigEntry entry : entries ) {
+                for ( int slot = 0; slot < entry.countJobs ( ); slot++ )
+                    this.decodeEntry ( entry, slot );
+                this.registerEntry ( entry );
+            }
+            return;
+        }
+
+        this.decodeEntries ( entries );
+
+        // Register in configuration order, stopping at the first entry that failed
+        for ( ConfigEntry entry : entries )
+            this.registerEntry ( entry );
+    }
+
+    /**
+     * Decodes the images of the given entries, on the load pool if there is one
+     * Failures are recorded on the entries
+     * 
+     * @param entries Entries to decode
+     */
+    private void decodeEntries ( List<ConfigEntry> entries ) {
+        if ( this.loadPool == null ) {
+            for ( ConfigEntry entry : entries )
+                for ( int slot = 0; slot < entry.countJobs ( ); slot++ )
+                    this.decodeEntry ( entry, slot );
+            return;
+        }
+
+        // Flatten all entries into one list of decode jobs, and let the pool split it up
+        int jobCount = 0;
+        for ( ConfigEntry entry : entries )
+            jobCount += entry.countJobs ( );
+
+        ConfigEntry[] jobEntries = new ConfigEntry[jobCount];
+        int[] jobSlots = new int[jobCount];
+        int job = 0;
+        for ( ConfigEntry entry : entries ) {
+            for ( int slot = 0; slot < entry.countJobs ( ); slot++ ) {
+                jobEntries[job] = entry;
+                jobSlots[job] = slot;
+                job++;
+            }
+        }
+
+        this.loadPool.invoke ( new DecodeTask ( jobEntries, jobSlots, 0, jobCount ) );
+    }
+
+    /**
+     * Parses every line of the given configuration file into a list of entries
+     * without decoding any images.
+     * 
+     * @param configurationFile Configuration file to parse
+     * @param reloading True if holders that are already loaded may be defined again
+     * @return the entries of the configuration file in order
+     * @throws IOException if the configuration file could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     */
+    private List<ConfigEntry> parseConfig ( InputStream configurationFile, boolean reloading ) throws IOException, BadConfigurationLineException {
+        BufferedReader br = new BufferedReader ( new InputStreamReader ( configurationFile ) );
+        List<ConfigEntry> entries = new ArrayList<ConfigEntry> ( );
+        Set<String> defined = new HashSet<String> ( );
+        String line;
+        int lineNumber = 0;
+
+        try {
+            while ( ( line = br.readLine ( ) ) != null ) {
+                line = line.trim ( );
+                lineNumber++;
+
+                // Dummy statement for pretty layout of code
+                if ( line.length ( ) == 0 )
+                    continue;
+                else if ( line.startsWith ( "//" ) )
+                    continue; // Comment
+
+                try {
+                    ConfigEntry entry = ImageLoader.parseConfigLine ( line );
+                    if ( entry.command != 'v' && ( ( !reloading && this.imagesMap.containsKey ( entry.index ) ) || !defined.add ( entry.index ) ) )
+                        throw new BadConfigurationLineException ( "Image name " + entry.index + " already defined" );
+
+                    entry.lineNumber = lineNumber;
+                    entry.line = line;
+                    entry.streaming = this.streamingThreshold > 0 && entry.command == 'n' && entry.resources.length >= this.streamingThreshold;
+                    entry.lazy = entry.streaming || ( this.lazyLoading && ( entry.command == 'o' || entry.command == 'n' ) );
+                    entries.add ( entry );
+                } catch ( BadConfigurationLineException e ) {
+                    // Recatch the exception to add additional debug information
+                    e.setLineNumber ( lineNumber );
+                    e.setLine ( line );
+                    throw e;
+                }
+            }
+        } finally {
+            br.close ( );
+        }
+
+        return entries;
+    }
+
+    /**
+     * Parses a single (non-empty, non-comment) configuration line
+     * 
+     * @param line Line to parse
+     * @return the parsed entry, without line information
+     * @throws BadConfigurationLineException if the line is invalid
+     */
+    private static ConfigEntry parseConfigLine ( String line ) throws BadConfigurationLineException {
+        // Tokenize and interpret line
+        StringTokenizer tokens = new StringTokenizer ( line );
+        tokens.nextToken ( ); // To skip the first character token
+
+        ConfigEntry entry = new ConfigEntry ( );
+        entry.command = Character.toLowerCase ( line.charAt ( 0 ) );
+
+        switch ( entry.command ) {
+            // Single image
+            case 'o':
+                if ( tokens.countTokens ( ) != 1 )
+                    throw new BadConfigurationLineException ( "No image filename found for single image" );
+                String name = tokens.nextToken ( );
+                entry.index = ImageLoader.getResourceIndex ( name );
+                entry.resources = new String[] { name };
+                break;
+            // Sequence of images (filename pattern)
+            case 'n':
+                if ( tokens.countTokens ( ) == 0 )
+                    throw new BadConfigurationLineException ( "No image pattern or image number found" );
+                if ( tokens.countTokens ( ) == 1 )
+                    throw new BadConfigurationLineException ( "No image count found" );
+                if ( tokens.countTokens ( ) != 2 )
+                    throw new BadConfigurationLineException ( "Too many options for sequenced image" );
+
+                String pattern = tokens.nextToken ( );
+                int imagesInSequence = ImageLoader.intFromCommandToken ( tokens.nextToken ( ) );
+
+                String[] parts = pattern.split ( "\\*", 0 );
+                if ( parts.length != 2 || parts[0].length ( ) == 0 || parts[1].length ( ) == 0 )
+                    throw new BadConfigurationLineException ( "No * found in filename pattern" );
+
+                entry.index = ImageLoader.getResourceIndex ( parts[0] );
+                entry.resources = new String[imagesInSequence];
+                for ( int i = 0; i < imagesInSequence; i++ )
+                    entry.resources[i] = parts[0] + i + parts[1];
+                break;
+            // Sequence of images in a single file
+            case 's':
+                if ( tokens.countTokens ( ) == 0 )
+                    throw new BadConfigurationLineException ( "No image or image count specified for strip" );
+                if ( tokens.countTokens ( ) == 1 )
+                    throw new BadConfigurationLineException ( "No image count found" );
+                if ( tokens.countTokens ( ) > 5 )
+                    throw new BadConfigurationLineException ( "Too many options for strip" );
+
+                String stripFile = tokens.nextToken ( );
+                entry.index = ImageLoader.getResourceIndex ( stripFile );
+                entry.resources = new String[] { stripFile };
+                entry.stripColumns = ImageLoader.intFromCommandToken ( tokens.nextToken ( ) );
+                entry.stripRows = tokens.hasMoreTokens ( ) ? ImageLoader.intFromCommandToken ( tokens.nextToken ( ) ) : 1;
+                entry.stripPadding = tokens.hasMoreTokens ( ) ? ImageLoader.pixelsFromCommandToken ( tokens.nextToken ( ) ) : 0;
+                entry.stripMargin = tokens.hasMoreTokens ( ) ? ImageLoader.pixelsFromCommandToken ( tokens.nextToken ( ) ) : 0;
+                break;
+            // Group of images
+            case 'g':
+                if ( tokens.countTokens ( ) == 0 )
+                    throw new BadConfigurationLineException ( "No group name given" );
+                if ( tokens.countTokens ( ) == 1 )
+                    throw new BadConfigurationLineException ( "No images found in group" );
+
+                entry.index = ImageLoader.getResourceIndex ( tokens.nextToken ( ) );
+                entry.resources = new String[tokens.countTokens ( )];
+                int i = 0;
+                while ( tokens.hasMoreTokens ( ) )
+                    entry.resources[i++] = tokens.nextToken ( );
+                break;
+            // Transformed variants of a loaded holder
+            case 'v':
+                if ( tokens.countTokens ( ) < 2 )
+                    throw new BadConfigurationLineException ( "No image name or scale found for variant" );
+                if ( tokens.countTokens ( ) > 4 )
+                    throw new BadConfigurationLineException ( "Too many options for variant" );
+
+                entry.index = tokens.nextToken ( );
+                entry.resources = new String[0];
+                try {
+                    entry.variantScale = Double.parseDouble ( tokens.nextToken ( ) );
+                } catch ( NumberFormatException e ) {
+                    throw new BadConfigurationLineException ( "Variant scale must be a number" );
+                }
+                if ( !( entry.variantScale > 0 ) || Double.isInfinite ( entry.variantScale ) )
+                    throw new BadConfigurationLineException ( "Variant scale must be > 0" );
+
+                while ( tokens.hasMoreTokens ( ) ) {
+                    String option = tokens.nextToken ( );
+                    if ( option.equalsIgnoreCase ( "h" ) ) {
+                        entry.variantFlip = true;
+                        continue;
+                    }
+                    try {
+                        entry.variantTurns = Integer.parseInt ( option );
+                    } catch ( NumberFormatException e ) {
+                        throw new BadConfigurationLineException ( "Variant option must be h or a number of quarter turns" );
+                    }
+                }
+                break;
+            default:
+                throw new BadConfigurationLineException ( "No image load command found! First character should be o, n, s, g or v" );
+        }
+
+        // Strips allocate their images once the strip has been sliced
+        if ( entry.command != 's' )
+            entry.images = new BufferedImage[entry.resources.length];
+
+        return entry;
+    }
+
+    /**
+     * Decodes the image(s) for the given job slot of an entry.
+     * Strips are a single job, all other entries have one job per resource.
+     * Failures are recorded on the entry rather than thrown, so that
+     * they can be reported in configuration order.
+     * 
+     * @param entry Entry to decode images for
+     * @param slot Job slot within the entry
+     */
+    private void decodeEntry ( ConfigEntry entry, int slot ) {
+        try {
+            if ( entry.command == 's' ) {
+                BufferedImage stripImage;
+                try {
+                    stripImage = this.loadImageFromResource ( entry.resources[0] );
+                } catch ( IOException e ) {
+                    throw new BadConfigurationLineException ( "Could not read strip file: " + entry.resources[0] );
+                }
+                entry.images = this.sliceStrip ( entry, stripImage );
+            } else {
+                entry.images[slot] = this.loadImageFromResource ( entry.resources[slot] );
+            }
+        } catch ( Exception e ) {
+            entry.fail ( slot, e );
+        }
+    }
+
+    /**
+     * Slices the given decoded strip image into the frames described by the given entry
+     * 
+     * @param entry Strip entry
+     * @param stripImage Decoded strip image
+     * @return the frames of the strip
+     * @throws BadConfigurationLineException if the strip image is too small for the grid of the entry
+     */
+    private BufferedImage[] sliceStrip ( ConfigEntry entry, BufferedImage stripImage ) throws BadConfigurationLineException {
+        BufferedImage[] images;
+        try {
+            images = ImageLoader.sliceSheet ( stripImage, entry.stripColumns, entry.stripRows, entry.stripPadding, entry.stripMargin );
+        } catch ( IllegalArgumentException e ) {
+            throw new BadConfigurationLineException ( e.getMessage ( ) );
+        }
+
+        if ( this.acceleratedStrips && !GraphicsEnvironment.isHeadless ( ) )
+            for ( int i = 0; i < images.length; i++ )
+                images[i] = ImageLoader.toCompatibleImage ( images[i] );
+        return images;
+    }
+
+    /**
+     * Stores the decoded images of the given entry in a new holder,
+     * or rethrows the first error encountered while decoding it.
+     * 
+     * @param entry Decoded entry
+     * @throws IOException if an image for the entry could not be read
+     * @throws BadConfigurationLineException if the entry could not be loaded
+     */
+    private void registerEntry ( ConfigEntry entry ) throws IOException, BadConfigurationLineException {
+        try {
+            try {
+                entry.rethrow ( );
+
+                if ( entry.command == 'v' ) {
+                    ImageHolder target = this.imagesMap.get ( entry.index );
+                    if ( target == null )
+                        throw new BadConfigurationLineException ( "No image holder " + entry.index + " to build variants of" );
+                    if ( target.getVariantCache ( ) == null )
+                        System.out.println ( "No variant cache set, not building variants of " + entry.index );
+                    else
+                        target.getVariantCache ( ).prepare ( target, entry.variantScale, entry.variantFlip, entry.variantTurns );
+                    return;
+                }
+
+                if ( entry.lazy ) {
+                    // Only check that the images exist, decoding is left to the holder
+                    for ( String resource : entry.resources )
+                        if ( !this.hasResource ( resource ) )
+                            throw new IOException ( String.format ( "Failed to read image file '%s'", resource ) );
+
+                    LazyImageHolder lazyHolder;
+                    if ( entry.streaming ) {
+                        lazyHolder = new StreamingImageHolder ( this, entry.resources, this.prefetcher, this.streamingWindow );
+                    } else {
+                        lazyHolder = new LazyImageHolder ( this, entry.resources, this.prefetcher, this.prefetchCount );
+                        lazyHolder.setCache ( this.imageCache );
+                    }
+                    this.addHolder ( entry.index, lazyHolder );
+                    entry.holder = lazyHolder;
+                    entry.images = null;
+                    this.configEntries.put ( entry.index, entry );
+                    return;
+                }
+
+                // Fill and seal the holder before adding it, so other threads only ever see it fully loaded
+                ImageHolder holder = entry.command == 'g' ? new GroupImageHolder ( ) : new ImageHolder ( );
+                FrameOffset[] offsets = new FrameOffset[entry.images.length];
+                BufferedImage[] images = this.prepareImages ( entry.images, offsets );
+                this.fillHolder ( entry.index, entry.command == 's' ? null : entry.resources, images, holder );
+                if ( this.trimBorders )
+                    holder.setOffsets ( offsets );
+                holder.seal ( );
+                this.addHolder ( entry.index, holder );
+
+                // Keep the entry for reloading, but not its images
+                entry.holder = holder;
+                entry.images = null;
+                this.configEntries.put ( entry.index, entry );
+            } catch ( KeyAlreadyExistsException e ) {
+                throw new BadConfigurationLineException ( e.getMessage ( ) );
+            }
+        } catch ( BadConfigurationLineException e ) {
+            // Recatch the exception to add additional debug information
+            e.setLineNumber ( entry.lineNumber );
+            e.setLine ( entry.line );
+            throw e;
+        }
+    }
+
+    /**
+     * Splits the given sheet into a grid of equally sized images, read row by row.
+     * The returned images are views into the sheet and share its pixel data,
+     * so no pixels are copied.
+     * 
+     * @param sheet Image containing a grid of images
+     * @param columns Number of images in each row
+     * @param rows Number of rows
+     * @param padding Number of pixels between adjacent images
+     * @param margin Number of pixels around the edge of the grid
+     * @return the images of the sheet from left to right, top to bottom
+     * @throws IllegalArgumentException if the sheet is too small for the given grid
+     */
+    public static BufferedImage[] sliceSheet ( BufferedImage sheet, int columns, int rows, int padding, int margin ) throws IllegalArgumentException {
+        int imWidth = ( sheet.getWidth ( ) - 2 * margin - ( columns - 1 ) * padding ) / columns;
+        int imHeight = ( sheet.getHeight ( ) - 2 * margin - ( rows - 1 ) * padding ) / rows;
+        if ( imWidth <= 0 || imHeight <= 0 )
+            throw new IllegalArgumentException ( String.format ( "Image of %dx%d is too small for %d columns and %d rows of images",
+                    sheet.getWidth ( ), sheet.getHeight ( ), columns, rows ) );
+
+        BufferedImage[] images = new BufferedImage[columns * rows];
+        for ( int row = 0; row < rows; row++ )
+            for ( int column = 0; column < columns; column++ )
+                images[row * columns + column] = sheet.getSubimage (
+                        margin + column * ( imWidth + padding ),
+                        margin + row * ( imHeight + padding ),
+                        imWidth, imHeight );
+        return images;
+    }
+
+    /**
+     * Copies the given image into a new image that is compatible with the default screen device,
+     * allowing it to be accelerated. Must not be called in headless mode.
+     * 
+     * @param image Image to copy
+     * @return a copy of the given image that is compatible with the screen
+     */
+    private static BufferedImage toCompatibleImage ( BufferedImage image ) {
+        BufferedImage compatible = GraphicsEnvironment.getLocalGraphicsEnvironment ( )
+                                                      .getDefaultScreenDevice ( )
+                                                      .getDefaultConfiguration ( )
+                                                      .createCompatibleImage ( image.getWidth ( ), image.getHeight ( ),
+                                                              image.getColorModel ( ).getTransparency ( ) );
+
+        Graphics2D gc = compatible.createGraphics ( );
+        gc.drawImage ( image, 0, 0, null );
+        gc.dispose ( );
+        return compatible;
+    }
+
+    /**
+     * Loads the given images into the holder at the given index.
+     * 
+     * @see #loadImage(String, String, BufferedImage, ImageHolder)
+     * @throws IOException if a given resource could not be read
+     */
+    public void loadImages ( String index, String[] resources, ImageHolder holder ) throws IOException {
+        for ( String resource : resources )
+            this.loadImage ( index, resource, this.loadImageFromResource ( resource ), holder );
+    }
+
+    /**
+     * Loads the given images into the holder at the given index
+     * 
+     * @see #loadImage(String, String, BufferedImage, ImageHolder)
+     */
+    public void loadImages ( String index, String[] indexNames, BufferedImage[] images, ImageHolder holder ) throws KeyAlreadyExistsException {
+        ImageHolder target = this.putHolderIfAbsent ( index, holder != null ? holder : new ImageHolder ( ) );
+        if ( holder != null && holder != target )
+            throw new KeyAlreadyExistsException ( "Attempted to create new image holder, but a holder is already present at the given index " + index );
+
+        this.fillHolder ( index, indexNames, images, target );
+    }
+
+    /**
+     * Loads the given image into a image holder at the given index.
+     * 
+     * If no image holder exists at the given index, the given holder is used.
+     * If the given holder is null, a new ImageHolder object is used.
+     * If a different holder exists at the given index *and* a holder is given,
+     * a KeyAlreadyExistsException is thrown.
+     * 
+     * imageFile may be null as long as the ImageHolder is not a GroupImageHolder.
+     * 
+     * @param index The index to use
+     * @param imageFile A file associated with the given image
+     * @param image The image to add to the holder at the given index
+     * @param holder Holder to use if no holder exists at the given index
+     * @throws KeyAlreadyExistsException if a holder exists at the given index *and* a holder is given
+     */
+    public void loadImage ( String index, String imageName, BufferedImage image, ImageHolder holder ) throws KeyAlreadyExistsException {
+        this.loadImages ( index, new String[] { imageName }, new BufferedImage[] { image }, holder );
+    }
+
+    /**
+     * Adds the given images to the given holder without storing the holder at the given index
+     * 
+     * @param index Index the holder is or will be stored at
+     * @param imageNames Name of every image, or null if the images have no names
+     * @param images Images to add
+     * @param holder Holder to add the images to
+     */
+    private void fillHolder ( String index, String[] imageNames, BufferedImage[] images, ImageHolder holder ) {
+        for ( int i = 0; i < images.length; i++ ) {
+            String imageName = imageNames == null ? null : imageNames[i];
+            System.out.println ( "Storing image by name " + imageName + " to holder indexed by " + index );
+            holder.addImage ( imageName, images[i] );
+        }
+    }
+
+    /**
+     * Stores the given holder at the given index
+     * Safe to call from several threads at once; exactly one holder is stored per index
+     * 
+     * @param index The index to use
+     * @param holder The holder to store
+     * @throws KeyAlreadyExistsException if a holder already exists at the given index
+     */
+    public void addHolder ( String index, ImageHolder holder ) throws KeyAlreadyExistsException {
+        if ( this.putHolderIfAbsent ( index, holder ) != holder )
+            throw new KeyAlreadyExistsException ( "Attempted to create new image holder, but a holder is already present at the given index " + index );
+    }
+
+    /**
+     * Stores the given holder at the given index, unless a holder is already stored there.
+     * Checking and storing happen atomically, so when several threads store a holder at the
+     * same index, all of them get the same holder back. The holder should be fully loaded
+     * before it is stored, since other threads can use it as soon as it is stored.
+     * 
+     * @param index The index to use
+     * @param holder The holder to store if the index is free
+     * @return the holder stored at the index, which is the given holder if the index was free
+     */
+    public ImageHolder putHolderIfAbsent ( String index, ImageHolder holder ) {
+        // Most calls find the index taken, which needs no lock
+        ImageHolder existing = this.imagesMap.get ( index );
+        if ( existing != null )
+            return existing;
+
+        synchronized ( this.holders ) {
+            existing = this.imagesMap.get ( index );
+            if ( existing != null )
+                return existing;
+            if ( this.variantCache != null && holder.getVariantCache ( ) == null )
+                holder.setVariantCache ( this.variantCache );
+
+            // Publish by name last, so a holder found by name always has a handle
+            this.holders.add ( holder );
+            this.handles.put ( index, this.holders.size ( ) - 1 );
+            this.imagesMap.put ( index, holder );
+            return holder;
+        }
+    }
+
+    /**
+     * Parses the given token as an int, and throws a BadConfigurationLineException if the token is not a positive int
+     * 
+     * @param token Token to parse
+     * @return token parsed as an integer
+     * @throws BadConfigurationLineException if the token is not a positive integer
+     */
+    private static int intFromCommandToken ( String token ) throws BadConfigurationLineException {
+        int imageCount;
+        try {
+            imageCount = Integer.parseInt ( token );
+            if ( imageCount <= 0 )
+                throw new BadConfigurationLineException ( "Number of images must be > 0" );
+            return imageCount;
+        } catch ( NumberFormatException e ) {
+            throw new BadConfigurationLineException ( "Number of images must be an integer" );
+        }
+    }
+
+    /**
+     * Parses the given token as a pixel count, and throws a BadConfigurationLineException if the token is negative
+     * 
+     * @param token Token to parse
+     * @return token parsed as an integer
+     * @throws BadConfigurationLineException if the token is not a non-negative integer
+     */
+    private static int pixelsFromCommandToken ( String token ) throws BadConfigurationLineException {
+        try {
+            int pixels = Integer.parseInt ( token );
+            if ( pixels < 0 )
+                throw new BadConfigurationLineException ( "Number of pixels must be >= 0" );
+            return pixels;
+        } catch ( NumberFormatException e ) {
+            throw new BadConfigurationLineException ( "Number of pixels must be an integer" );
+        }
+    }
+
+    /**
+     * Returns the image holder associated with the given name
+     * 
+     * @param name Name of the holder to retrieve
+     * @return The holder associated with the given name
+     * @throws NoSuchElementException if no image by the given name exists
+     */
+    public ImageHolder getHolder ( String name ) throws NoSuchElementException {
+        ImageHolder holder = this.imagesMap.get ( name );
+        if ( holder == null )
+            holder = this.awaitPending ( name );
+        if ( holder == null )
+            throw new NoSuchElementException ( "No such image: " + name );
+        return holder;
+    }
+
+    /**
+     * Returns the handle of the image holder associated with the given name.
+     * Handles never change once assigned, so they can be resolved once and then
+     * used with {@link #getHolder(int)} to avoid looking up names on every access.
+     * 
+     * @param name Name of the holder
+     * @return the handle of the holder associated with the given name
+     * @throws NoSuchElementException if no image by the given name exists
+     */
+    public int getHandle ( String name ) throws NoSuchElementException {
+        Integer handle = this.handles.get ( name );
+        if ( handle == null && this.awaitPending ( name ) != null )
+            handle = this.handles.get ( name );
+        if ( handle == null )
+            throw new NoSuchElementException ( "No such image: " + name );
+        return handle;
+    }
+
+    /**
+     * Returns the image holder with the given handle
+     * 
+     * @param handle Handle of the holder, as returned by {@link #getHandle(String)}
+     * @return the holder with the given handle
+     * @throws NoSuchElementException if no holder has the given handle
+     */
+    public ImageHolder getHolder ( int handle ) throws NoSuchElementException {
+        if ( handle < 0 || handle >= this.holders.size ( ) )
+            throw new NoSuchElementException ( "No image with handle " + handle );
+        return this.holders.get ( handle );
+    }
+
+    /**
+     * Returns the group image holder with the given handle
+     * If the handle does not belong to a group holder, null is returned
+     * 
+     * @param handle Handle of the group holder, as returned by {@link #getHandle(String)}
+     * @return the group holder with the given handle or null
+     * @throws NoSuchElementException if no holder has the given handle
+     */
+    public GroupImageHolder getGroupHolder ( int handle ) throws NoSuchElementException {
+        ImageHolder ih = this.getHolder ( handle );
+        if ( ih instanceof GroupImageHolder )
+            return (GroupImageHolder) ih;
+        return null;
+    }
+
+    /**
+     * Returns the group image holder associated with the given name
+     * If the given name is not associated with a group holder, null is returned
+     * 
+     * @param name Name of the group holder to retrieve
+     * @return The group holder associated with the given name or null
+     * @throws NoSuchElementException if no image by the given group name exists
+     */
+    public GroupImageHolder getGroupHolder ( String name ) throws NoSuchElementException {
+        ImageHolder ih = this.getHolder ( name );
+        if ( ih != null && ih instanceof GroupImageHolder )
+            return (GroupImageHolder) ih;
+        return null;
+    }
+
+    /**
+     * Gets the first image of the image holder by the given name
+     * 
+     * @param name Name of the holder to get the first image of
+     * @return the first image of the image holder by the given name or null
+     * @throws NoSuchElementException if no image by the given group name exists
+     */
+    public BufferedImage getImage ( String name ) throws NoSuchElementException {
+        return this.getHolder ( name ).getImage ( 0 );
+    }
+
+    /**
+     * Returns true if an image holder exists by the given name, false otherwise
+     * 
+     * @param name Name of image holder
+     * @return true if an image holder exists by the given name, false otherwise
+     */
+    public boolean isLoaded ( String name ) {
+        return this.imagesMap.containsKey ( name );
+    }
+
+    /**
+     * Returns the number of images in the given image holder
+     * Returns 0 if the given image holder does not exist
+     * 
+     * @param name Name of the image holder
+     * @return the number of images in the given image holder
+     */
+    public int numImages ( String name ) {
+        if ( !this.imagesMap.containsKey ( name ) )
+            return 0;
+        return this.imagesMap.get ( name ).countImages ( );
+    }
+
+    /**
+     * Packs the images of all loaded holders into atlas pages, and replaces each packed
+     * image in its holder with a view into its page.
+     * Lazily loaded holders are not packed, since their images are not all decoded.
+     * 
+     * @param pageSize Maximum width and height of each atlas page
+     * @return a report of packing efficiency and memory use
+     */
+    public AtlasReport buildAtlas ( int pageSize ) {
+        // Pack and replace the same holders and frames, even if holders are loaded meanwhile
+        List<ImageHolder> holders = new ArrayList<ImageHolder> ( );
+        List<BufferedImage[]> frames = new ArrayList<BufferedImage[]> ( );
+        List<BufferedImage> images = new ArrayList<BufferedImage> ( );
+        for ( ImageHolder holder : new ArrayList<ImageHolder> ( this.imagesMap.values ( ) ) ) {
+            if ( holder instanceof LazyImageHolder )
+                continue;
+            BufferedImage[] holderImages = new BufferedImage[holder.countImages ( )];
+            for ( int i = 0; i < holderImages.length; i++ )
+                holderImages[i] = holder.getImage ( i );
+            holders.add ( holder );
+            frames.add ( holderImages );
+            images.addAll ( Arrays.asList ( holderImages ) );
+        }
+
+        ImageAtlas atlas = new ImageAtlas ( pageSize );
+        AtlasReport report = atlas.pack ( images );
+
+        // Swap all regions of a holder at once, so readers never see a mix of frames and regions
+        for ( int h = 0; h < holders.size ( ); h++ ) {
+            BufferedImage[] holderImages = frames.get ( h );
+            BufferedImage[] regions = new BufferedImage[holderImages.length];
+            for ( int i = 0; i < holderImages.length; i++ )
+                regions[i] = atlas.getRegion ( holderImages[i] );
+            holders.get ( h ).setImages ( regions );
+        }
+
+        System.out.println ( "Built image atlas: " + report );
+        return report;
+    }
+
+    /**
+     * Loads the holders of the given configuration file that are not loaded yet, and swaps new frames
+     * into loaded holders whose configuration line changed but still has the same shape: the same command,
+     * the same number of frames and, for groups, the same image names.
+     * Running animators keep working and pick up the new frames. If the shape of a holder changed,
+     * a warning is printed and the holder is left alone, since it cannot be swapped in place.
+     * 
+     * @param configurationFile Configuration file to load new holders from
+     * @return the resources of the newly loaded and swapped holders
+     * @throws IOException if the configuration file or an image could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     */
+    public List<String> reloadConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        List<ConfigEntry> added = new ArrayList<ConfigEntry> ( );
+        List<ConfigEntry> changed = new ArrayList<ConfigEntry> ( );
+        for ( ConfigEntry entry : this.parseConfig ( configurationFile, true ) ) {
+            if ( entry.command == 'v' )
+                continue;
+            ConfigEntry current = this.configEntries.get ( entry.index );
+            if ( current == null && !this.imagesMap.containsKey ( entry.index ) )
+                added.add ( entry );
+            else if ( current != null && current.hasSameSource ( entry ) )
+                continue;
+            else if ( current != null && current.hasSameShape ( entry ) )
+                changed.add ( entry );
+            else
+                System.err.println ( "Shape of image holder " + entry.index + " changed, restart to apply the change" );
+        }
+
+        this.loadEntries ( added );
+
+        this.decodeEntries ( changed );
+        for ( ConfigEntry entry : changed )
+            this.swapEntry ( entry );
+
+        List<String> resources = new ArrayList<String> ( );
+        for ( ConfigEntry entry : added )
+            resources.addAll ( Arrays.asList ( entry.resources ) );
+        for ( ConfigEntry entry : changed )
+            resources.addAll ( Arrays.asList ( entry.resources ) );
+        return resources;
+    }
+
+    /**
+     * Swaps the decoded images of the given entry into the holder of the entry it replaces,
+     * or rethrows the first error encountered while decoding it.
+     * 
+     * @param entry Decoded entry with the same shape as the loaded entry of its holder
+     * @throws IOException if an image for the entry could not be read
+     * @throws BadConfigurationLineException if the entry could not be loaded
+     */
+    private void swapEntry ( ConfigEntry entry ) throws IOException, BadConfigurationLineException {
+        try {
+            entry.rethrow ( );
+        } catch ( BadConfigurationLineException e ) {
+            // Recatch the exception to add additional debug information
+            e.setLineNumber ( entry.lineNumber );
+            e.setLine ( entry.line );
+            throw e;
+        }
+
+        ImageHolder holder = this.configEntries.get ( entry.index ).holder;
+        FrameOffset[] offsets = new FrameOffset[entry.images.length];
+        BufferedImage[] images = this.prepareImages ( entry.images, offsets );
+        // Replace images and offsets in one step, so no reader pairs a new image with an old offset
+        holder.setImages ( images, this.trimBorders ? offsets : null );
+
+        // Keep the entry for reloading, but not its images
+        entry.holder = holder;
+        entry.images = null;
+        this.configEntries.put ( entry.index, entry );
+    }
+
+    /**
+     * Decodes the given resource again, and swaps the new image into every holder
+     * loaded from a configuration file that uses it.
+     * The resource is decoded at most once. Strips are sliced again, and all of their frames
+     * are swapped at once. Lazily loaded images are only replaced if they are decoded.
+     * Holders added through {@link #addHolder(String, ImageHolder)} are not affected.
+     * 
+     * @param resource Name of the changed resource
+     * @throws IOException if the resource could not be read
+     * @throws BadConfigurationLineException if a strip no longer fits its grid
+     */
+    public void reloadResource ( String resource ) throws IOException, BadConfigurationLineException {
+        BufferedImage image = null;
+
+        for ( ConfigEntry entry : new ArrayList<ConfigEntry> ( this.configEntries.values ( ) ) ) {
+            if ( entry.command == 's' ) {
+                if ( !entry.resources[0].equals ( resource ) )
+                    continue;
+                if ( image == null )
+                    image = this.loadImageFromResource ( resource );
+                BufferedImage[] frames = this.sliceStrip ( entry, image );
+                FrameOffset[] offsets = new FrameOffset[frames.length];
+                frames = this.prepareImages ( frames, offsets );
+                // Replace images and offsets in one step, so no reader pairs a new image with an old offset
+                entry.holder.setImages ( frames, this.trimBorders ? offsets : null );
+                continue;
+            }
+
+            for ( int i = 0; i < entry.resources.length; i++ ) {
+                if ( !entry.resources[i].equals ( resource ) )
+                    continue;
+
+                if ( entry.lazy ) {
+                    LazyImageHolder lazyHolder = (LazyImageHolder) entry.holder;
+                    if ( !lazyHolder.isLoaded ( i ) )
+                        continue;
+                    if ( image == null )
+                        image = this.loadImageFromResource ( resource );
+                    lazyHolder.replace ( i, image );
+                } else {
+                    if ( image == null )
+                        image = this.loadImageFromResource ( resource );
+                    FrameOffset[] offsets = new FrameOffset[1];
+                    BufferedImage trimmed = this.trimImages ( new BufferedImage[] { image }, offsets )[0];
+
+                    // Compact the new image together with the others, so the holder keeps sharing one palette
+                    BufferedImage[] frames = new BufferedImage[entry.holder.countImages ( )];
+                    for ( int frame = 0; frame < frames.length; frame++ )
+                        frames[frame] = frame == i ? trimmed : entry.holder.getImage ( frame );
+                    BufferedImage[] compacted = this.compactImages ( frames );
+
+                    // Replace images and offsets in one step, so no reader pairs a new image with an old offset
+                    if ( compacted == frames ) {
+                        entry.holder.setImage ( i, trimmed, offsets[0] );
+                    } else {
+                        FrameOffset[] frameOffsets = new FrameOffset[compacted.length];
+                        for ( int frame = 0; frame < frameOffsets.length; frame++ )
+                            frameOffsets[frame] = frame == i ? offsets[0] : entry.holder.getOffset ( frame );
+                        entry.holder.setImages ( compacted, frameOffsets );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts watching the resources of all holders loaded from configuration files, and the given
+     * configuration file, for changes.
+     * Changed resources are reloaded with {@link #reloadResource(String)}, and a changed configuration file
+     * with {@link #reloadConfig(InputStream)}, on the watcher thread, so running animators keep
+     * working and pick up the new frames.
+     * 
+     * Resources are watched where the class loader finds them, so only resources in directories
+     * on the classpath can be watched; resources inside jars or asset bundles are skipped.
+     * 
+     * @param configurationFile Configuration file to watch, or null
+     * @param debounce Time in ms a file must be left alone before it is reloaded
+     * @return the watcher, which should be closed when no longer needed
+     * @throws IOException if the file system cannot be watched
+     */
+    public synchronized ResourceWatcher watch ( Path configurationFile, long debounce ) throws IOException {
+        if ( this.watcher != null )
+            throw new IllegalStateException ( "Image loader is already being watched" );
+
+        List<String> resources = new ArrayList<String> ( );
+        for ( ConfigEntry entry : this.configEntries.values ( ) )
+            resources.addAll ( Arrays.asList ( entry.resources ) );
+
+        this.watcher = new ResourceWatcher ( debounce, "Image", this.bundle == null ? this.getClass ( ) : null, configurationFile,
+                new ResourceWatcher.Reloader ( ) {
+                    @Override
+                    public List<String> reloadConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+                        return ImageLoader.this.reloadConfig ( configurationFile );
+                    }
+
+                    @Override
+                    public void reloadResource ( String resource ) throws IOException, BadConfigurationLineException {
+                        ImageLoader.this.reloadResource ( resource );
+                    }
+                } );
+        this.watcher.watchResources ( resources );
+        return this.watcher;
+    }
+
+    /**
+     * Returns the time taken by each call loading a configuration file
+     * 
+     * @return the configuration load latency histogram
+     */
+    public LatencyHistogram getLoadLatency ( ) {
+        return this.loadLatency;
+    }
+
+    /**
+     * Returns the time taken to read and decode each image, including images decoded by lazy holders
+     * 
+     * @return the image decode latency histogram
+     */
+    public LatencyHistogram getDecodeLatency ( ) {
+        return this.decodeLatency;
+    }
+
+    /**
+     * Registers an MBean exposing the holders and metrics of this loader with the platform MBean server,
+     * under the name javax.media.utils.loaders:type=ImageLoader,name=NAME
+     * 
+     * @param name Name to register the loader under
+     * @throws JMException if the MBean could not be registered, for instance because the name is taken
+     * @see ImageLoaderMXBean
+     */
+    public void registerMBean ( String name ) throws JMException {
+        ObjectName objectName = new ObjectName ( "javax.media.utils.loaders:type=ImageLoader,name=" + ObjectName.quote ( name ) );
+        ManagementFactory.getPlatformMBeanServer ( ).registerMBean ( new Management ( ), objectName );
+        this.mbeanName = objectName;
+    }
+
+    /**
+     * Unregisters the MBean registered by {@link #registerMBean(String)}, if any
+     * 
+     * @throws JMException if the MBean could not be unregistered
+     */
+    public void unregisterMBean ( ) throws JMException {
+        if ( this.mbeanName == null )
+            return;
+        ManagementFactory.getPlatformMBeanServer ( ).unregisterMBean ( this.mbeanName );
+        this.mbeanName = null;
+    }
+
+    /**
+     * Returns the number of bytes of decoded pixel data held by this loader
+     * Pixel data shared between images, such as the frames of a strip, is only counted once,
+     * and images of lazy holders only count while they are decoded
+     * 
+     * @return the total size of all decoded images
+     */
+    public long getHeapFootprint ( ) {
+        List<BufferedImage> images = new ArrayList<BufferedImage> ( );
+        for ( ImageHolder holder : new ArrayList<ImageHolder> ( this.holders ) )
+            images.addAll ( ImageLoader.getDecodedImages ( holder ) );
+        return ImageLoader.getFootprint ( images );
+    }
+
+    /**
+     * Returns the number of bytes of pixel data of the given images, counting shared data once
+     */
+    private static long getFootprint ( Iterable<BufferedImage> images ) {
+        // Count each raster buffer once, since strip frames and atlas regions share their buffer
+        Map<DataBuffer, Long> buffers = new IdentityHashMap<DataBuffer, Long> ( );
+        for ( BufferedImage image : images ) {
+            DataBuffer buffer = image.getRaster ( ).getDataBuffer ( );
+            if ( !buffers.containsKey ( buffer ) )
+                buffers.put ( buffer, (long) buffer.getSize ( ) * buffer.getNumBanks ( ) * DataBuffer.getDataTypeSize ( buffer.getDataType ( ) ) / 8 );
+        }
+
+        long size = 0;
+        for ( long bufferSize : buffers.values ( ) )
+            size += bufferSize;
+        return size;
+    }
+
+    /**
+     * Repacks the images of the given holder into 8 bit indexed images where they use at most the given
+     * number of colors, and measures the memory and drawing time of its images before and after.
+     * This lets the color limit be picked per holder; see {@link #setIndexedColorLimit(int)} to compact
+     * all holders while loading.
+     * 
+     * The holder is updated in place, so it is safe while animators run.
+     * Images are repacked even if a pixel format is set, and then no longer have that format.
+     * 
+     * @param name Name of the holder
+     * @param maxColors Largest number of colors, at most 256
+     * @return a report of the memory reclaimed and the drawing times
+     * @throws NoSuchElementException if there is no holder with the given name
+     * @throws IllegalArgumentException if the holder is lazily loaded
+     */
+    public CompactionReport compactColors ( String name, int maxColors ) throws NoSuchElementException {
+        ImageHolder holder = this.getHolder ( name );
+        if ( holder instanceof LazyImageHolder )
+            throw new IllegalArgumentException ( "Cannot compact lazily loaded holder " + name );
+
+        BufferedImage[] images = new BufferedImage[holder.countImages ( )];
+        for ( int i = 0; i < images.length; i++ )
+            images[i] = holder.getImage ( i );
+        long bytesBefore = ImageLoader.getFootprint ( Arrays.asList ( images ) );
+        long blitBefore = ImageLoader.measureBlit ( images );
+
+        BufferedImage[] compacted = PaletteCompactor.compact ( images, maxColors );
+        int indexed = 0;
+        Set<Object> palettes = Collections.newSetFromMap ( new IdentityHashMap<Object, Boolean> ( ) );
+        for ( int i = 0; i < compacted.length; i++ ) {
+            if ( compacted[i] != images[i] ) {
+                indexed++;
+                palettes.add ( compacted[i].getColorModel ( ) );
+            }
+        }
+        if ( indexed > 0 )
+            holder.setImages ( compacted );
+
+        CompactionReport report = new CompactionReport ( name, images.length, indexed, indexed == images.length && palettes.size ( ) == 1,
+                bytesBefore, ImageLoader.getFootprint ( Arrays.asList ( compacted ) ), blitBefore, ImageLoader.measureBlit ( compacted ) );
+        System.out.println ( "Compacted colors of " + report );
+        return report;
+    }
+
+    /**
+     * Returns the given images trimmed and repacked with a palette, as far as these stages are enabled
+     * 
+     * @param images Images to prepare
+     * @param offsets Receives the offset of every trimmed image
+     * @return the prepared images
+     */
+    private BufferedImage[] prepareImages ( BufferedImage[] images, FrameOffset[] offsets ) {
+        return this.compactImages ( this.trimImages ( images, offsets ) );
+    }
+
+    /**
+     * Returns the given images with their transparent borders trimmed, if trimming is enabled
+     * 
+     * @param images Images to trim
+     * @param offsets Receives the offset of every trimmed image
+     * @return the trimmed images
+     */
+    private BufferedImage[] trimImages ( BufferedImage[] images, FrameOffset[] offsets ) {
+        if ( !this.trimBorders )
+            return images;
+
+        images = images.clone ( );
+        for ( int i = 0; i < images.length; i++ ) {
+            Rectangle bounds = ImageLoader.getOpaqueBounds ( images[i] );
+            if ( bounds.width == images[i].getWidth ( ) && bounds.height == images[i].getHeight ( ) )
+                continue;
+            offsets[i] = new FrameOffset ( bounds.x, bounds.y, images[i].getWidth ( ), images[i].getHeight ( ) );
+            images[i] = ImageLoader.cropImage ( images[i], bounds );
+        }
+        return images;
+    }
+
+    /**
+     * Returns the given images repacked with a palette, if compaction is enabled and no pixel format is set
+     * 
+     * @param images Images of one holder, compacted together so they can share a palette
+     * @return the repacked images
+     */
+    private BufferedImage[] compactImages ( BufferedImage[] images ) {
+        if ( this.indexedColorLimit == 0 || this.pixelFormat != BufferedImage.TYPE_CUSTOM )
+            return images;
+        return PaletteCompactor.compact ( images, this.indexedColorLimit );
+    }
+
+    /**
+     * Returns the bounding box of the pixels of the given image that are not fully transparent
+     * 
+     * @param image Image to measure
+     * @return the bounding box, which is a single pixel for a fully transparent image
+     */
+    public static Rectangle getOpaqueBounds ( BufferedImage image ) {
+        int width = image.getWidth ( );
+        int height = image.getHeight ( );
+        if ( !image.getColorModel ( ).hasAlpha ( ) )
+            return new Rectangle ( 0, 0, width, height );
+
+        int left = width;
+        int right = -1;
+        int top = -1;
+        int bottom = -1;
+        int[] row = new int[width];
+        for ( int y = 0; y < height; y++ ) {
+            image.getRGB ( 0, y, width, 1, row, 0, width );
+            int first = 0;
+            while ( first < width && ( row[first] >>> 24 ) == 0 )
+                first++;
+            if ( first == width )
+                continue;
+            int last = width - 1;
+            while ( ( row[last] >>> 24 ) == 0 )
+                last--;
+
+            if ( top < 0 )
+                top = y;
+            bottom = y;
+            left = Math.min ( left, first );
+            right = Math.max ( right, last );
+        }
+
+        if ( top < 0 )
+            return new Rectangle ( 0, 0, 1, 1 );
+        return new Rectangle ( left, top, right - left + 1, bottom - top + 1 );
+    }
+
+    /**
+     * Returns a copy of the given part of the given image, of the same type
+     */
+    private static BufferedImage cropImage ( BufferedImage image, Rectangle bounds ) {
+        // Copy rather than take a subimage, so the pixels do not keep the whole canvas alive
+        ColorModel model = image.getColorModel ( );
+        WritableRaster raster = model.createCompatibleWritableRaster ( bounds.width, bounds.height );
+        image.getSubimage ( bounds.x, bounds.y, bounds.width, bounds.height ).copyData ( raster );
+        return new BufferedImage ( model, raster, model.isAlphaPremultiplied ( ), null );
+    }
+
+    /**
+     * Returns the average time in ns to draw one of the given images into an off-screen image
+     */
+    private static long measureBlit ( BufferedImage[] images ) {
+        if ( images.length == 0 )
+            return 0;
+
+        int width = 1;
+        int height = 1;
+        for ( BufferedImage image : images ) {
+            width = Math.max ( width, image.getWidth ( ) );
+            height = Math.max ( height, image.getHeight ( ) );
+        }
+
+        BufferedImage target = new BufferedImage ( width, height, BufferedImage.TYPE_INT_ARGB_PRE );
+        Graphics2D gc = target.createGraphics ( );
+        try {
+            // First pass warms up the drawing loops, the others are timed
+            long start = 0;
+            for ( int pass = 0; pass <= BLIT_PASSES; pass++ ) {
+                if ( pass == 1 )
+                    start = System.nanoTime ( );
+                for ( BufferedImage image : images )
+                    gc.drawImage ( image, 0, 0, null );
+            }
+            return ( System.nanoTime ( ) - start ) / ( (long) BLIT_PASSES * images.length );
+        } finally {
+            gc.dispose ( );
+        }
+    }
+
+    /**
+     * Makes identical images share a single BufferedImage, within and across all holders.
+     * Images are hashed by their pixels, and images with equal hashes are compared pixel by pixel
+     * before they are shared, so only images with exactly the same size and pixels are merged.
+     * Lazily loaded holders are skipped, since their images are not all decoded.
+     * 
+     * Call this once loading is done; holders are updated in place, so it is safe while animators run.
+     * 
+     * @return a report of the duplicates found and the memory reclaimed
+     */
+    public DedupReport deduplicate ( ) {
+        long bytesBefore = this.getHeapFootprint ( );
+
+        // Distinct images by pixel hash; almost always a single image per hash
+        Map<Long, List<BufferedImage>> distinct = new HashMap<Long, List<BufferedImage>> ( );
+        Map<BufferedImage, Boolean> kept = new IdentityHashMap<BufferedImage, Boolean> ( );
+        int images = 0;
+        int duplicates = 0;
+
+        for ( ImageHolder holder : new ArrayList<ImageHolder> ( this.holders ) ) {
+            if ( holder instanceof LazyImageHolder )
+                continue;
+
+            BufferedImage[] frames = new BufferedImage[holder.countImages ( )];
+            boolean changed = false;
+            for ( int i = 0; i < frames.length; i++ ) {
+                BufferedImage image = holder.getImage ( i );
+                frames[i] = image;
+                images++;
+                if ( kept.containsKey ( image ) )
+                    continue;
+
+                int[] pixels = image.getRGB ( 0, 0, image.getWidth ( ), image.getHeight ( ), null, 0, image.getWidth ( ) );
+                Long hash = ImageLoader.hashPixels ( image.getWidth ( ), image.getHeight ( ), pixels );
+                List<BufferedImage> candidates = distinct.get ( hash );
+                if ( candidates == null ) {
+                    candidates = new ArrayList<BufferedImage> ( 1 );
+                    distinct.put ( hash, candidates );
+                }
+
+                BufferedImage match = null;
+                for ( BufferedImage candidate : candidates ) {
+                    if ( candidate.getWidth ( ) == image.getWidth ( ) && candidate.getHeight ( ) == image.getHeight ( )
+                            && Arrays.equals ( pixels, candidate.getRGB ( 0, 0, candidate.getWidth ( ), candidate.getHeight ( ), null, 0, candidate.getWidth ( ) ) ) ) {
+                        match = candidate;
+                        break;
+                    }
+                }
+
+                if ( match == null ) {
+                    candidates.add ( image );
+                    kept.put ( image, Boolean.TRUE );
+                } else {
+                    frames[i] = match;
+                    changed = true;
+                    duplicates++;
+                }
+            }
+
+            // Replace all frames of a holder at once, so sealed holders publish a single new array
+            if ( changed )
+                holder.setImages ( frames );
+        }
+
+        DedupReport report = new DedupReport ( images, duplicates, bytesBefore, this.getHeapFootprint ( ) );
+        System.out.println ( "Deduplicated images: " + report );
+        return report;
+    }
+
+    /**
+     * Returns a 64 bit FNV-1a hash of the given image size and ARGB pixels
+     */
+    private static long hashPixels ( int width, int height, int[] pixels ) {
+        long hash = 0xcbf29ce484222325L;
+        hash = ( hash ^ width ) * 0x100000001b3L;
+        hash = ( hash ^ height ) * 0x100000001b3L;
+        for ( int pixel : pixels )
+            hash = ( hash ^ pixel ) * 0x100000001b3L;
+        return hash;
+    }
+
+    /**
+     * Returns the images of the given holder that are decoded, without decoding any others
+     */
+    private static List<BufferedImage> getDecodedImages ( ImageHolder holder ) {
+        List<BufferedImage> images = new ArrayList<BufferedImage> ( );
+        LazyImageHolder lazy = holder instanceof LazyImageHolder ? (LazyImageHolder) holder : null;
+        for ( int i = 0; i < holder.countImages ( ); i++ ) {
+            BufferedImage image = lazy != null ? lazy.peekImage ( i ) : holder.getImage ( i );
+            if ( image != null )
+                images.add ( image );
+        }
+        return images;
+    }
+
+    /**
+     * Returns the decoded size of the given image in bytes (height x width x bits per pixel, rounded up to whole bytes per row)
+     * 
+     * @param image Image to get the size of
+     * @return the decoded size of the given image in bytes
+     */
+    public static long getImageSize ( BufferedImage image ) {
+        SampleModel model = image.getSampleModel ( );
+        int bitsPerPixel;
+        if ( model instanceof MultiPixelPackedSampleModel )
+            // Several pixels share each data element, as in TYPE_BYTE_BINARY
+            bitsPerPixel = ( (MultiPixelPackedSampleModel) model ).getPixelBitStride ( );
+        else
+            bitsPerPixel = model.getNumDataElements ( ) * DataBuffer.getDataTypeSize ( model.getDataType ( ) );
+        return ( (long) image.getWidth ( ) * bitsPerPixel + 7 ) / 8 * image.getHeight ( );
+    }
+
+    /**
+     * Returns an appropriate name for the given resource
+     * 
+     * @param name Resource to get index for
+     * @return Name of file without extension
+     */
+    public static String getResourceIndex ( String name ) {
+        
+        String base = name;
+        if ( name.contains ( "/" ) ) {
+            File f = new File ( name );
+            base = f.getName ( );
+            f = null;
+        }
+        
+        int index = base.lastIndexOf ( '.' );
+        if ( index > 0 && index <= base.length ( ) - 2 )
+            return base.substring ( 0, index );
+        return base;
+    }
+
+    /**
+     * Load the given file name into a BufferedImage object
+     * that is compatible with the current graphics device.
+     * 
+     * @param imageStream The input stream to load an image from
+     * @return the decoded image, or null if no decoder recognizes the data
+     * @throws IOException If the given file could not be read
+     */
+    public BufferedImage loadImageFromStream ( InputStream imageStream ) throws IOException {
+        if ( imageStream instanceof ByteBufferInputStream )
+            return this.loadImageFromBuffer ( ( (ByteBufferInputStream) imageStream ).getBuffer ( ) );
+        return this.loadImageFromBuffer ( ByteBuffer.wrap ( ImageLoader.readFully ( imageStream ) ) );
+    }
+
+    /**
+     * Decodes the given data with the first decoder that recognizes it
+     * 
+     * @param data Encoded image, from its position to its limit, which are left unchanged
+     * @return the decoded image, or null if no decoder recognizes the data
+     * @throws IOException if the data could not be decoded
+     * @see #addDecoder(ImageDecoder)
+     */
+    public BufferedImage loadImageFromBuffer ( ByteBuffer data ) throws IOException {
+        for ( ImageDecoder decoder : this.decoders ) {
+            BufferedImage image = decoder.decode ( data.duplicate ( ) );
+            if ( image != null )
+                return image;
+        }
+        return null;
+    }
+
+    /**
+     * Adds a decoder, which is asked to decode images before all decoders added so far.
+     * By default, images are decoded by an {@link ImageIODecoder}, which stays the last decoder asked.
+     * Close it through {@link #getDecoders()} to release its readers once the loader is no longer used.
+     * 
+     * @param decoder Decoder to add
+     * @see RawImageDecoder
+     */
+    public void addDecoder ( ImageDecoder decoder ) {
+        this.decoders.add ( 0, decoder );
+    }
+
+    /**
+     * Removes the given decoder
+     * 
+     * @param decoder Decoder to remove
+     * @return true if the decoder was removed
+     */
+    public boolean removeDecoder ( ImageDecoder decoder ) {
+        return this.decoders.remove ( decoder );
+    }
+
+    /**
+     * Returns the decoders of this loader, in the order they are asked
+     * 
+     * @return the decoders of this loader
+     */
+    public List<ImageDecoder> getDecoders ( ) {
+        return Collections.unmodifiableList ( this.decoders );
+    }
+
+    /**
+     * Loads the given classpath resource into a BufferedImage object
+     * 
+     * @param resource Name of the resource to load
+     * @return the decoded image
+     * @throws IOException If the given resource could not be read or decoded
+     */
+    public BufferedImage loadImageFromResource ( String resource ) throws IOException {
+        long start = System.nanoTime ( );
+        BufferedImage image;
+        try {
+            ByteBuffer data = this.readResource ( resource );
+            if ( this.pixelCache == null ) {
+                image = this.loadImageFromBuffer ( data );
+            } else {
+                byte[] digest = PixelCache.digest ( data );
+                image = this.pixelCache.get ( resource, digest );
+                if ( image == null ) {
+                    image = this.loadImageFromBuffer ( data );
+                    if ( image != null ) {
+                        // Return the same type a later read from the cache returns, so results do not depend on the cache state
+                        image = ImageLoader.convertImage ( image, BufferedImage.TYPE_INT_ARGB );
+                        try {
+                            this.pixelCache.put ( resource, digest, image );
+                        } catch ( IOException e ) {
+                            System.err.println ( "Failed to store decoded image " + resource + " in pixel cache: " + e.getMessage ( ) );
+                        }
+                    }
+                }
+            }
+        } finally {
+            this.decodeLatency.record ( System.nanoTime ( ) - start );
+        }
+
+        if ( image == null )
+            throw new IOException ( String.format ( "No image reader found for image file '%s'", resource ) );
+        return ImageLoader.convertImage ( image, this.pixelFormat );
+    }
+
+    /**
+     * Returns the given image converted to the given type, or the image itself if it already has that type.
+     * Opaque images are converted to TYPE_INT_RGB rather than an alpha type, and translucent
+     * images to TYPE_INT_ARGB_PRE rather than TYPE_INT_RGB, so no image loses its alpha.
+     * Conversion draws into a plain BufferedImage, so it works headless.
+     * 
+     * @param image Image to convert
+     * @param imageType Type to convert to, or TYPE_CUSTOM to return the image as is
+     * @return an image of the given type with the same pixels
+     */
+    public static BufferedImage convertImage ( BufferedImage image, int imageType ) {
+        if ( imageType == BufferedImage.TYPE_CUSTOM )
+            return image;
+        if ( image.getColorModel ( ).getTransparency ( ) == Transparency.OPAQUE )
+            imageType = BufferedImage.TYPE_INT_RGB;
+        else if ( imageType == BufferedImage.TYPE_INT_RGB )
+            imageType = BufferedImage.TYPE_INT_ARGB_PRE;
+        if ( image.getType ( ) == imageType )
+            return image;
+
+        BufferedImage converted = new BufferedImage ( image.getWidth ( ), image.getHeight ( ), imageType );
+        Graphics2D gc = converted.createGraphics ( );
+        gc.setComposite ( AlphaComposite.Src );
+        gc.drawImage ( image, 0, 0, null );
+        gc.dispose ( );
+        return converted;
+    }
+
+    /**
+     * Opens the given resource from the bundle this loader was created with,
+     * or from the classpath if there is no bundle
+     * 
+     * @param resource Name of resource
+     * @return a stream reading the resource, or null if it does not exist
+     */
+    private InputStream openResource ( String resource ) {
+        if ( this.bundle != null )
+            return this.bundle.openStream ( resource );
+        return this.getClass ( ).getResourceAsStream ( resource );
+    }
+
+    /**
+     * Returns the encoded data of the given resource
+     * Resources of a bundle are returned as views of its mapped memory, without copying
+     * 
+     * @param resource Name of resource
+     * @return the data of the resource
+     * @throws IOException if the resource does not exist or could not be read
+     */
+    private ByteBuffer readResource ( String resource ) throws IOException {
+        ByteBuffer data = this.bundle != null ? this.bundle.get ( resource ) : null;
+        if ( data != null )
+            return data;
+
+        InputStream imageStream = this.bundle != null ? null : this.openResource ( resource );
+        if ( imageStream == null )
+            throw new IOException ( String.format ( "Failed to read image file '%s'", resource ) );
+        try {
+            return ByteBuffer.wrap ( ImageLoader.readFully ( imageStream ) );
+        } finally {
+            imageStream.close ( );
+        }
+    }
+
+    /**
+     * Returns true if the given resource exists, without reading it
+     * 
+     * @param resource Name of resource
+     * @return true if the given resource exists
+     */
+    private boolean hasResource ( String resource ) {
+        if ( this.bundle != null )
+            return this.bundle.contains ( resource );
+        return this.getClass ( ).getResource ( resource ) != null;
+    }
+
+    /**
+     * Returns the names of all resources referred to by the given configuration file
+     * 
+     * @param configurationFile Configuration file to parse
+     * @return the resources referred to by the configuration file, in order
+     * @throws IOException if the configuration file could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     * @see #loadImagesFromConfig(InputStream)
+     */
+    public static List<String> getConfigResources ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        List<String> resources = new ArrayList<String> ( );
+        for ( ConfigEntry entry : new ImageLoader ( ).parseConfig ( configurationFile, false ) )
+            for ( String resource : entry.resources )
+                resources.add ( resource );
+        return resources;
+    }
+
+    /**
+     * Reads the remainder of the given stream into a byte array
+     * 
+     * @param stream Stream to read
+     * @return the bytes read from the stream
+     * @throws IOException if the stream could not be read
+     */
+    private static byte[] readFully ( InputStream stream ) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream ( Math.max ( 32, stream.available ( ) ) );
+        byte[] buffer = new byte[8192];
+        int read;
+        while ( ( read = stream.read ( buffer ) ) > 0 )
+            out.write ( buffer, 0, read );
+        return out.toByteArray ( );
+    }
+
+    /**
+     * A single parsed line of an image configuration file,
+     * along with the images decoded for it
+     */
+    private static class ConfigEntry {
+        int lineNumber;
+        String line;
+        char command;
+        String index;
+        String[] resources;
+        int stripColumns;
+        int stripRows;
+        int stripPadding;
+        int stripMargin;
+        boolean lazy;
+        boolean streaming;
+        BufferedImage[] images;
+
+        /**
+         * Holder the entry was loaded into, once registered
+         */
+        ImageHolder holder;
+
+        /**
+         * Transform of variant entries
+         */
+        double variantScale;
+        boolean variantFlip;
+        int variantTurns;
+
+        /**
+         * First error encountered while decoding this entry, and the job slot it occured in
+         */
+        private Exception error;
+        private int errorSlot;
+
+        /**
+         * Returns the number of decode jobs needed for this entry
+         * 
+         * @return the number of decode jobs needed for this entry
+         */
+        int countJobs ( ) {
+            if ( this.lazy )
+                return 0;
+            return this.command == 's' ? 1 : this.resources.length;
+        }
+
+        /**
+         * Returns true if the given entry loads the same resources in the same way as this entry
+         * 
+         * @param other Entry to compare with
+         * @return true if both entries would load identical holders
+         */
+        boolean hasSameSource ( ConfigEntry other ) {
+            return this.command == other.command
+                    && this.lazy == other.lazy
+                    && this.streaming == other.streaming
+                    && Arrays.equals ( this.resources, other.resources )
+                    && this.stripColumns == other.stripColumns
+                    && this.stripRows == other.stripRows
+                    && this.stripPadding == other.stripPadding
+                    && this.stripMargin == other.stripMargin;
+        }
+
+        /**
+         * Returns true if the holder of this entry can take the frames of the given entry in place:
+         * both are loaded eagerly with the same command, the same number of frames and, for groups,
+         * the same image names. Strips are checked once they are sliced.
+         * 
+         * @param other Entry to compare with
+         * @return true if the frames of the given entry can be swapped into the holder of this entry
+         */
+        boolean hasSameShape ( ConfigEntry other ) {
+            if ( this.command != other.command || this.lazy || other.lazy || this.holder == null )
+                return false;
+            if ( this.command == 's' )
+                return this.stripColumns * this.stripRows == other.stripColumns * other.stripRows;
+            if ( this.resources.length != other.resources.length )
+                return false;
+            if ( this.command == 'g' )
+                for ( int i = 0; i < this.resources.length; i++ )
+                    if ( !ImageLoader.getResourceIndex ( this.resources[i] ).equals ( ImageLoader.getResourceIndex ( other.resources[i] ) ) )
+                        return false;
+            return true;
+        }
+
+        /**
+         * Records an error for the given slot
+         * Only the error of the lowest slot is kept, so reporting does not depend on decode order
+         */
+        synchronized void fail ( int slot, Exception e ) {
+            if ( this.error == null || slot < this.errorSlot ) {
+                this.error = e;
+                this.errorSlot = slot;
+            }
+        }
+
+        /**
+         * Throws the recorded error, if any
+         */
+        synchronized void rethrow ( ) throws IOException, BadConfigurationLineException {
+            if ( this.error == null )
+                return;
+            if ( this.error instanceof IOException )
+                throw (IOException) this.error;
+            if ( this.error instanceof BadConfigurationLineException )
+                throw (BadConfigurationLineException) this.error;
+            throw (RuntimeException) this.error;
+        }
+    }
+
+    /**
+     * Decodes a range of jobs, splitting it in half until each task decodes a single resource
+     */
+    @SuppressWarnings ( "serial" )
+    private class DecodeTask extends RecursiveAction {
+        private ConfigEntry[] entries;
+        private int[] slots;
+        private int from;
+        private int to;
+
+        DecodeTask ( ConfigEntry[] entries, int[] slots, int from, int to ) {
+            this.entries = entries;
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute ( ) {
+            if ( this.to - this.from <= 1 ) {
+                if ( this.to > this.from )
+                    ImageLoader.this.decodeEntry ( this.entries[this.from], this.slots[this.from] );
+                return;
+            }
+
+            int middle = ( this.from + this.to ) >>> 1;
+            RecursiveAction.invokeAll (
+                    new DecodeTask ( this.entries, this.slots, this.from, middle ),
+                    new DecodeTask ( this.entries, this.slots, middle, this.to ) );
+        }
+    }
+
+    /**
+     * Management view of this loader
+     * Holders are read while the MBean is queried, so values may be slightly out of date
+     * if holders are added concurrently
+     */
+    private class Management implements ImageLoaderMXBean {
+
+        @Override
+        public int getHolderCount ( ) {
+            return ImageLoader.this.holders.size ( );
+        }
+
+        @Override
+        public int getImageCount ( ) {
+            int count = 0;
+            for ( ImageHolder holder : new ArrayList<ImageHolder> ( ImageLoader.this.holders ) )
+                count += holder.countImages ( );
+            return count;
+        }
+
+        @Override
+        public Map<String, Long> getDecodedBytes ( ) {
+            Map<String, Long> bytes = new LinkedHashMap<String, Long> ( );
+            for ( Map.Entry<String, ImageHolder> entry : new ArrayList<Map.Entry<String, ImageHolder>> ( ImageLoader.this.imagesMap.entrySet ( ) ) ) {
+                long size = 0;
+                for ( BufferedImage image : ImageLoader.getDecodedImages ( entry.getValue ( ) ) )
+                    size += ImageLoader.getImageSize ( image );
+                bytes.put ( entry.getKey ( ), size );
+            }
+            return bytes;
+        }
+
+        @Override
+        public long getHeapFootprint ( ) {
+            return ImageLoader.this.getHeapFootprint ( );
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getLoadLatency ( ) {
+            return ImageLoader.this.loadLatency.getSnapshot ( );
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getDecodeLatency ( ) {
+            return ImageLoader.this.decodeLatency.getSnapshot ( );
+        }
+
+        @Override
+        public long getActiveAnimators ( ) {
+            return ImageAnimator.getActiveAnimators ( );
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getDispatchLatency ( ) {
+            return ImageAnimator.getDispatchLatency ( ).getSnapshot ( );
+        }
     }
 }
@@ -0,0 +1,73 @@
+package javax.media.utils.loaders.images;
+
+import java.util.Map;
+
+import javax.media.utils.loaders.LatencyHistogram;
+
+/**
+ * Management interface of an {@link ImageLoader}
+ *
+ * @see ImageLoader#registerMBean(String)
+ */
+public interface ImageLoaderMXBean {
+
+    /**
+     * Returns the number of holders in the loader
+     *
+     * @return the number of holders
+     */
+    public int getHolderCount ( );
+
+    /**
+     * Returns the number of images in all holders, including images of lazy holders that are not decoded
+     *
+     * @return the number of images
+     */
+    public int getImageCount ( );
+
+    /**
+     * Returns the number of bytes of decoded pixel data held by each holder
+     * Images of lazy holders only count while they are decoded
+     *
+     * @return decoded bytes by holder name
+     */
+    public Map<String, Long> getDecodedBytes ( );
+
+    /**
+     * Returns the number of bytes of decoded pixel data held by the loader
+     * Pixel data shared between images, such as the frames of a strip, is only counted once
+     *
+     * @return the total size of all decoded images
+     */
+    public long getHeapFootprint ( );
+
+    /**
+     * Returns the time taken by each call loading a configuration file
+     *
+     * @return configuration load latencies
+     */
+    public LatencyHistogram.Snapshot getLoadLatency ( );
+
+    /**
+     * Returns the time taken to read and decode each image
+     *
+     * @return image decode latencies
+     */
+    public LatencyHistogram.Snapshot getDecodeLatency ( );
+
+    /**
+     * Returns the number of running image animators in this JVM
+     *
+     * @return the number of running animators
+     * @see ImageAnimator#getActiveAnimators()
+     */
+    public long getActiveAnimators ( );
+
+    /**
+     * Returns the time from an animation event being raised until all watchers of an animator were notified
+     *
+     * @return watcher dispatch latencies
+     * @see ImageAnimator#getDispatchLatency()
+     */
+    public LatencyHistogram.Snapshot getDispatchLatency ( );
+}
@@ -0,0 +1,394 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An ImageHolder that only records where its images are located,
+ * and decodes each image the first time it is requested.
+ *
+ * Optionally, requesting an image also schedules the next few images
+ * of the sequence to be decoded in the background, so that animations
+ * rarely have to wait for an image to be decoded.
+ */
+public class LazyImageHolder extends ImageHolder {
+
+    /**
+     * Loader used to decode images
+     */
+    private ImageLoader loader;
+
+    /**
+     * Resource of each image, in the same order as the images
+     */
+    private List<String> resources;
+
+    /**
+     * Executor used to decode images in the background
+     */
+    private Executor prefetcher;
+
+    /**
+     * Number of images following a requested image to decode in the background
+     */
+    private int prefetchCount;
+
+    /**
+     * Images that are currently being decoded in the background
+     */
+    private BitSet pending;
+
+    /**
+     * Cache keeping decoded images within a byte budget, or null
+     */
+    private ImageCache cache = null;
+
+    /**
+     * Time each image was last requested or decoded, read by the cache to find the least recently used images
+     * Replaced by a longer copy when images are added
+     */
+    private volatile AtomicLongArray accessed = new AtomicLongArray ( 0 );
+
+    /**
+     * Number of images on either side of a requested image searched for a decoded image to show instead
+     */
+    private static final int FALLBACK_DISTANCE = 4;
+
+    /**
+     * Image decoded last, shown in place of images that are not decoded yet if none is decoded nearby
+     */
+    private volatile BufferedImage lastDecoded = null;
+
+    /**
+     * Creates a new lazy image holder for the given resources
+     *
+     * @param loader Loader used to decode the images
+     * @param resources Resource names of the images, in order
+     * @param prefetcher Executor to decode images on in the background, or null to use the common pool
+     * @param prefetchCount Number of images to decode ahead of a requested image
+     */
+    public LazyImageHolder ( ImageLoader loader, String[] resources, Executor prefetcher, int prefetchCount ) {
+        super ( );
+        this.loader = loader;
+        this.resources = new ArrayList<String> ( );
+        this.prefetcher = prefetcher != null ? prefetcher : ForkJoinPool.commonPool ( );
+        this.prefetchCount = Math.max ( 0, prefetchCount );
+        this.pending = new BitSet ( );
+
+        for ( String resource : resources )
+            this.addImage ( resource, null );
+    }
+
+    /**
+     * Sets the cache that decoded images of this holder are accounted in
+     * Images evicted by the cache are decoded again when next requested
+     *
+     * @param cache Cache to use, or null to keep all decoded images
+     */
+    public void setCache ( ImageCache cache ) {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cache that decoded images of this holder are accounted in, or null
+     *
+     * @return the cache of this holder, or null
+     */
+    public ImageCache getCache ( ) {
+        return this.cache;
+    }
+
+    /**
+     * Adds the given image to this image holder
+     * If image is null, the image will be decoded from the resource imageName when first requested
+     */
+    @Override
+    public void addImage ( String imageName, BufferedImage image ) {
+        synchronized ( this.images ) {
+            this.resources.add ( imageName );
+            AtomicLongArray grown = new AtomicLongArray ( this.accessed.length ( ) + 1 );
+            for ( int i = 0; i < this.accessed.length ( ); i++ )
+                grown.set ( i, this.accessed.get ( i ) );
+            this.accessed = grown;
+            super.addImage ( imageName, image );
+        }
+    }
+
+    /**
+     * Returns the image at the given index, decoding it if necessary
+     *
+     * @param image Index of image
+     * @return the image at the given index
+     * @throws IllegalStateException if the image could not be decoded
+     */
+    @Override
+    public BufferedImage getImage ( int image ) {
+        BufferedImage decoded = this.images.get ( image );
+        if ( decoded == null )
+            decoded = this.decode ( image, true );
+        else if ( this.cache != null )
+            this.cache.touch ( this, image );
+        this.prefetch ( image );
+        return decoded;
+    }
+
+    /**
+     * Returns the image at the given index, decoding it if necessary, together with its offset
+     * The loader never trims lazily loaded images, so the image is decoded without holding a lock
+     *
+     * @param image Index of image
+     * @return the image at the given index and its offset
+     * @throws IllegalStateException if the image could not be decoded
+     */
+    @Override
+    public ImageFrame getFrame ( int image ) {
+        return new ImageFrame ( this.getImage ( image ), this.getOffset ( image ) );
+    }
+
+    /**
+     * Returns the image at the given index if it has already been decoded.
+     * Otherwise, the image is scheduled for decoding and the closest decoded image
+     * a few images away is returned instead, or the image decoded last if there is none.
+     * Returns null only if no image has been decoded yet.
+     *
+     * This method never decodes on the calling thread.
+     *
+     * @param image Index of image
+     * @return the image at the given index, a nearby decoded image or null
+     */
+    @Override
+    public BufferedImage getLoadedImage ( int image ) {
+        return this.getLoadedImage ( image, null );
+    }
+
+    /**
+     * Returns the image at the given index if it has already been decoded.
+     * Otherwise, the image is scheduled for decoding and the given fallback is returned instead,
+     * so an animation holds its previous image until the next one is ready.
+     * Without a fallback, this behaves like {@link #getLoadedImage(int)}.
+     *
+     * This method never decodes on the calling thread.
+     *
+     * @param image Index of image
+     * @param fallback Image to return if the image at the given index is not decoded yet, or null
+     * @return the image at the given index, the fallback, a nearby decoded image or null
+     */
+    @Override
+    public BufferedImage getLoadedImage ( int image, BufferedImage fallback ) {
+        BufferedImage decoded = this.images.get ( image );
+        if ( decoded != null ) {
+            if ( this.cache != null )
+                this.cache.touch ( this, image );
+            this.prefetch ( image );
+            return decoded;
+        }
+
+        this.schedule ( image );
+        this.prefetch ( image );
+        if ( fallback != null )
+            return fallback;
+
+        // Only look a few images away, so a miss costs the same however long the sequence is
+        int count = this.images.size ( );
+        for ( int distance = 1; distance <= LazyImageHolder.FALLBACK_DISTANCE; distance++ ) {
+            if ( image - distance >= 0 && ( decoded = this.images.get ( image - distance ) ) != null )
+                return decoded;
+            if ( image + distance < count && ( decoded = this.images.get ( image + distance ) ) != null )
+                return decoded;
+        }
+        return this.lastDecoded;
+    }
+
+    /**
+     * Returns true if the image at the given index has been decoded
+     *
+     * @param image Index of image
+     * @return true if the image at the given index has been decoded
+     */
+    public boolean isLoaded ( int image ) {
+        return this.images.get ( image ) != null;
+    }
+
+    /**
+     * Returns the image at the given index if it has been decoded, without decoding,
+     * prefetching or touching the cache
+     *
+     * @param image Index of image
+     * @return the decoded image, or null
+     */
+    BufferedImage peekImage ( int image ) {
+        return this.images.get ( image );
+    }
+
+    /**
+     * Returns the resource the image at the given index is decoded from
+     *
+     * @param image Index of image
+     * @return the resource the image at the given index is decoded from
+     */
+    public String getResource ( int image ) {
+        synchronized ( this.images ) {
+            return this.resources.get ( image );
+        }
+    }
+
+    /**
+     * Lazy holders are never sealed, since their images change whenever
+     * an image is decoded or evicted
+     */
+    @Override
+    public void seal ( ) {
+    }
+
+    /**
+     * Prevents the images of this holder from being evicted from its cache
+     */
+    @Override
+    public void pin ( ) {
+        if ( this.cache != null )
+            this.cache.pin ( this );
+    }
+
+    /**
+     * Allows the images of this holder to be evicted from its cache again
+     */
+    @Override
+    public void unpin ( ) {
+        if ( this.cache != null )
+            this.cache.unpin ( this );
+    }
+
+    /**
+     * Records that the image at the given index was just requested or decoded
+     * Lock free, since it is called on the render thread whenever a decoded image is requested
+     *
+     * @param image Index of image
+     * @param time Time of the access, in nanoseconds
+     */
+    void access ( int image, long time ) {
+        AtomicLongArray accessed = this.accessed;
+        if ( image < accessed.length ( ) )
+            accessed.lazySet ( image, time );
+    }
+
+    /**
+     * Returns the time the image at the given index was last requested or decoded
+     *
+     * @param image Index of image
+     * @return the time of the last access, in nanoseconds
+     */
+    long getAccessTime ( int image ) {
+        AtomicLongArray accessed = this.accessed;
+        return image < accessed.length ( ) ? accessed.get ( image ) : 0;
+    }
+
+    /**
+     * Drops the decoded image at the given index
+     * It will be decoded again when next requested
+     *
+     * @param image Index of image
+     */
+    void evict ( int image ) {
+        this.images.set ( image, null );
+    }
+
+    /**
+     * Replaces the image at the given index if it is decoded
+     * Images that are not decoded are left alone, since they are read from their resource when requested
+     *
+     * @param image Index of image
+     * @param replacement Newly decoded image
+     * @return true if the image was replaced
+     */
+    boolean replace ( int image, BufferedImage replacement ) {
+        synchronized ( this.images ) {
+            if ( this.images.get ( image ) == null )
+                return false;
+            this.images.set ( image, replacement );
+        }
+
+        if ( this.cache != null )
+            this.cache.added ( this, image, ImageLoader.getImageSize ( replacement ), false );
+        return true;
+    }
+
+    /**
+     * Decodes the image at the given index on the calling thread
+     *
+     * @param image Index of image
+     * @param requested True if the image was requested, false if it is being prefetched
+     * @return the decoded image
+     * @throws IllegalStateException if the image could not be decoded
+     */
+    protected BufferedImage decode ( int image, boolean requested ) {
+        BufferedImage decoded;
+        try {
+            decoded = this.loader.loadImageFromResource ( this.getResource ( image ) );
+        } catch ( IOException e ) {
+            throw new IllegalStateException ( "Failed to decode image " + image + " of " + this.getResource ( image ), e );
+        }
+
+        // Another thread may have decoded the same image in the meantime
+        synchronized ( this.images ) {
+            BufferedImage existing = this.images.get ( image );
+            if ( existing != null )
+                return existing;
+            this.images.set ( image, decoded );
+        }
+        this.lastDecoded = decoded;
+
+        if ( this.cache != null )
+            this.cache.added ( this, image, ImageLoader.getImageSize ( decoded ), requested );
+        return decoded;
+    }
+
+    /**
+     * Schedules the images following the given index for background decoding
+     * Since animations usually loop, this wraps around at the end of the sequence
+     *
+     * @param image Index of the image that was requested
+     */
+    private void prefetch ( int image ) {
+        int count = this.countImages ( );
+        for ( int i = 1; i <= this.prefetchCount && i < count; i++ )
+            this.schedule ( ( image + i ) % count );
+    }
+
+    /**
+     * Schedules the image at the given index for background decoding,
+     * unless it is already decoded or being decoded
+     *
+     * @param image Index of image
+     */
+    private void schedule ( final int image ) {
+        if ( this.images.get ( image ) != null )
+            return;
+
+        synchronized ( this.pending ) {
+            if ( this.pending.get ( image ) )
+                return;
+            this.pending.set ( image );
+        }
+
+        this.prefetcher.execute ( new Runnable ( ) {
+            @Override
+            public void run ( ) {
+                try {
+                    LazyImageHolder.this.decode ( image, false );
+                } catch ( IllegalStateException e ) {
+                    // Will be reported to whoever calls getImage for this image
+                } finally {
+                    synchronized ( LazyImageHolder.this.pending ) {
+                        LazyImageHolder.this.pending.clear ( image );
+                    }
+                }
+            }
+        } );
+    }
+}
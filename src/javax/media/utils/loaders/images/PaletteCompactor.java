@@ -0,0 +1,137 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Repacks images that use few colors into 8 bit indexed images, which take a quarter
+ * of the memory of 32 bit ARGB images.
+ *
+ * Pixels keep their exact ARGB values, except that fully transparent pixels are all stored
+ * as transparent black, since their color is never visible. Images with more colors than
+ * allowed are left as they are.
+ */
+public class PaletteCompactor {
+
+    /**
+     * Largest number of colors an 8 bit palette can hold
+     */
+    public static final int MAX_COLORS = 256;
+
+    private PaletteCompactor ( ) {
+    }
+
+    /**
+     * Repacks the given images into indexed images.
+     * If all images together use at most the given number of colors, they share a single palette.
+     * Otherwise every image that uses at most the given number of colors gets its own palette,
+     * and the others are returned unchanged.
+     *
+     * @param images Images to repack
+     * @param maxColors Largest number of colors a palette may have, at most {@link #MAX_COLORS}
+     * @return the repacked images, in the same order
+     */
+    public static BufferedImage[] compact ( BufferedImage[] images, int maxColors ) {
+        maxColors = Math.min ( maxColors, MAX_COLORS );
+        BufferedImage[] compacted = images.clone ( );
+        if ( maxColors < 1 )
+            return compacted;
+
+        int[][] pixels = new int[images.length][];
+        for ( int i = 0; i < images.length; i++ )
+            pixels[i] = PaletteCompactor.getPixels ( images[i] );
+
+        // Try a palette shared by all images first
+        Set<Integer> shared = new HashSet<Integer> ( );
+        for ( int i = 0; i < images.length && shared != null; i++ )
+            if ( !PaletteCompactor.addColors ( shared, pixels[i], maxColors ) )
+                shared = null;
+
+        if ( shared != null ) {
+            IndexColorModel palette = PaletteCompactor.createPalette ( shared );
+            for ( int i = 0; i < images.length; i++ )
+                compacted[i] = PaletteCompactor.createIndexedImage ( images[i].getWidth ( ), images[i].getHeight ( ), pixels[i], palette );
+            return compacted;
+        }
+
+        for ( int i = 0; i < images.length; i++ ) {
+            Set<Integer> colors = new HashSet<Integer> ( );
+            if ( PaletteCompactor.addColors ( colors, pixels[i], maxColors ) )
+                compacted[i] = PaletteCompactor.createIndexedImage ( images[i].getWidth ( ), images[i].getHeight ( ),
+                        pixels[i], PaletteCompactor.createPalette ( colors ) );
+        }
+        return compacted;
+    }
+
+    /**
+     * Returns the ARGB pixels of the given image, with fully transparent pixels set to 0
+     */
+    private static int[] getPixels ( BufferedImage image ) {
+        int[] pixels = image.getRGB ( 0, 0, image.getWidth ( ), image.getHeight ( ), null, 0, image.getWidth ( ) );
+        for ( int i = 0; i < pixels.length; i++ )
+            if ( ( pixels[i] >>> 24 ) == 0 )
+                pixels[i] = 0;
+        return pixels;
+    }
+
+    /**
+     * Adds the colors of the given pixels to the given set
+     *
+     * @return false if the set would grow beyond the given number of colors
+     */
+    private static boolean addColors ( Set<Integer> colors, int[] pixels, int maxColors ) {
+        int last = 0;
+        boolean first = true;
+        for ( int pixel : pixels ) {
+            // Neighbouring pixels usually share a color, so skip the set lookup for runs
+            if ( !first && pixel == last )
+                continue;
+            first = false;
+            last = pixel;
+            if ( colors.add ( pixel ) && colors.size ( ) > maxColors )
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns an 8 bit palette holding the given colors in ascending order
+     */
+    private static IndexColorModel createPalette ( Set<Integer> colors ) {
+        int[] palette = new int[colors.size ( )];
+        int i = 0;
+        boolean hasAlpha = false;
+        for ( int color : colors ) {
+            palette[i++] = color;
+            hasAlpha |= ( color >>> 24 ) != 0xFF;
+        }
+        Arrays.sort ( palette );
+        return new IndexColorModel ( 8, palette.length, palette, 0, hasAlpha, -1, DataBuffer.TYPE_BYTE );
+    }
+
+    /**
+     * Returns an indexed image of the given pixels, all of which must be in the given palette
+     */
+    private static BufferedImage createIndexedImage ( int width, int height, int[] pixels, IndexColorModel palette ) {
+        int[] colors = new int[palette.getMapSize ( )];
+        palette.getRGBs ( colors );
+
+        BufferedImage image = new BufferedImage ( width, height, BufferedImage.TYPE_BYTE_INDEXED, palette );
+        byte[] indices = ( (DataBufferByte) image.getRaster ( ).getDataBuffer ( ) ).getData ( );
+        int last = 0;
+        int lastIndex = -1;
+        for ( int i = 0; i < pixels.length; i++ ) {
+            if ( lastIndex < 0 || pixels[i] != last ) {
+                last = pixels[i];
+                lastIndex = Arrays.binarySearch ( colors, last );
+            }
+            indices[i] = (byte) lastIndex;
+        }
+        return image;
+    }
+}
@@ -0,0 +1,257 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores decoded images on disk as raw pixels, so that later runs can skip decoding.
+ *
+ * Each image is stored in its own file, named after its resource and the SHA-256 digest of the
+ * encoded image data. The full digest is also stored in the entry and checked when it is read,
+ * so changed images are never read from a stale entry, even if the file names collide.
+ * A file consists of a 64 byte header followed by one int per pixel in native byte order:
+ *
+ * <pre>
+ * int magic      // 0x4A4D5550
+ * int version
+ * int byteOrder  // 1 for big endian, 2 for little endian
+ * int width
+ * int height
+ * int hasAlpha   // 1 if pixels are ARGB, 0 if they are RGB
+ * int reserved[2]
+ * byte digest[32] // SHA-256 of the encoded image, or zeros for images not stored in a cache
+ * int pixels[width * height]
+ * </pre>
+ *
+ * Entries are read back by memory mapping the file and copying the pixels
+ * straight into the int array backing the image raster, so images read from the cache
+ * are always TYPE_INT_ARGB, or TYPE_INT_RGB if they are opaque.
+ * The same format is read by {@link RawImageDecoder}, for assets that are stored pre-decoded.
+ */
+public class PixelCache {
+    private static final int MAGIC = 0x4A4D5550;
+    private static final int VERSION = 2;
+    private static final int DIGEST_OFFSET = 32;
+    private static final int DIGEST_SIZE = 32;
+    private static final int HEADER_SIZE = DIGEST_OFFSET + DIGEST_SIZE;
+    private static final int NATIVE_ORDER = ByteOrder.nativeOrder ( ) == ByteOrder.BIG_ENDIAN ? 1 : 2;
+
+    /**
+     * Directory entries are stored in
+     */
+    private Path directory;
+
+    private AtomicLong hits = new AtomicLong ( );
+    private AtomicLong misses = new AtomicLong ( );
+
+    /**
+     * Creates a cache storing entries in the given directory
+     *
+     * @param directory Directory to store entries in, created if it does not exist
+     * @throws IOException if the directory could not be created
+     */
+    public PixelCache ( Path directory ) throws IOException {
+        this.directory = directory;
+        Files.createDirectories ( directory );
+    }
+
+    /**
+     * Returns the SHA-256 digest of the given encoded image data, used to key cache entries
+     * Equal to {@link #digest(byte[], int, int)} of the same bytes
+     *
+     * @param data Encoded image data, from its position to its limit, which are left unchanged
+     * @return the digest of the given data
+     */
+    public static byte[] digest ( ByteBuffer data ) {
+        MessageDigest digest = PixelCache.createDigest ( );
+        digest.update ( data.duplicate ( ) );
+        return digest.digest ( );
+    }
+
+    /**
+     * Returns the SHA-256 digest of the given encoded image data, used to key cache entries
+     *
+     * @param data Encoded image data
+     * @param offset Offset of the image data in the array
+     * @param length Length of the image data
+     * @return the digest of the given data
+     */
+    public static byte[] digest ( byte[] data, int offset, int length ) {
+        MessageDigest digest = PixelCache.createDigest ( );
+        digest.update ( data, offset, length );
+        return digest.digest ( );
+    }
+
+    /**
+     * Returns the cached image for the given resource and digest, or null if there is none
+     * An entry whose stored digest differs from the given one is treated as a miss
+     *
+     * @param resource Resource name of the image
+     * @param digest Digest of the encoded image data, see {@link #digest(ByteBuffer)}
+     * @return the cached image, or null
+     */
+    public BufferedImage get ( String resource, byte[] digest ) {
+        Path file = this.getFile ( resource, digest );
+        if ( !Files.isRegularFile ( file ) ) {
+            this.misses.incrementAndGet ( );
+            return null;
+        }
+
+        try ( FileChannel channel = FileChannel.open ( file, StandardOpenOption.READ ) ) {
+            MappedByteBuffer buffer = channel.map ( FileChannel.MapMode.READ_ONLY, 0, channel.size ( ) );
+            byte[] stored = new byte[DIGEST_SIZE];
+            if ( buffer.remaining ( ) >= HEADER_SIZE )
+                ( (ByteBuffer) buffer.duplicate ( ).position ( DIGEST_OFFSET ) ).get ( stored );
+            BufferedImage image = Arrays.equals ( stored, digest ) ? PixelCache.decodeRaw ( buffer ) : null;
+            if ( image == null ) {
+                this.misses.incrementAndGet ( );
+                return null;
+            }
+
+            this.hits.incrementAndGet ( );
+            return image;
+        } catch ( IOException e ) {
+            this.misses.incrementAndGet ( );
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given decoded image for the given resource and digest
+     * The entry is written to a temporary file first, so readers never see a partial entry
+     *
+     * @param resource Resource name of the image
+     * @param digest Digest of the encoded image data, see {@link #digest(ByteBuffer)}
+     * @param image Decoded image
+     * @throws IOException if the entry could not be written, or the image is too large to store
+     */
+    public void put ( String resource, byte[] digest, BufferedImage image ) throws IOException {
+        if ( digest.length != DIGEST_SIZE )
+            throw new IllegalArgumentException ( "Digest must be " + DIGEST_SIZE + " bytes" );
+        ByteBuffer buffer = PixelCache.encodeRaw ( image );
+        buffer.position ( DIGEST_OFFSET );
+        buffer.put ( digest );
+        buffer.rewind ( );
+        Path file = this.getFile ( resource, digest );
+        Path temporary = Files.createTempFile ( this.directory, file.getFileName ( ).toString ( ), ".tmp" );
+        try {
+            try ( FileChannel channel = FileChannel.open ( temporary, StandardOpenOption.WRITE ) ) {
+                while ( buffer.hasRemaining ( ) )
+                    channel.write ( buffer );
+            }
+            Files.move ( temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists ( temporary );
+        }
+    }
+
+    /**
+     * Returns the given image as raw pixels with a header, in native byte order
+     * The digest in the header is left as zeros.
+     *
+     * @param image Image to encode
+     * @return the encoded image, positioned at its start
+     * @throws IOException if the image is too large to be stored in a single buffer
+     */
+    static ByteBuffer encodeRaw ( BufferedImage image ) throws IOException {
+        int width = image.getWidth ( );
+        int height = image.getHeight ( );
+        boolean hasAlpha = image.getColorModel ( ).getTransparency ( ) != Transparency.OPAQUE;
+
+        long size = HEADER_SIZE + 4L * width * height;
+        if ( size > Integer.MAX_VALUE )
+            throw new IOException ( "Image of " + width + "x" + height + " pixels is too large to store as raw pixels" );
+
+        ByteBuffer buffer = ByteBuffer.allocate ( (int) size ).order ( ByteOrder.nativeOrder ( ) );
+        buffer.putInt ( MAGIC ).putInt ( VERSION ).putInt ( NATIVE_ORDER )
+              .putInt ( width ).putInt ( height ).putInt ( hasAlpha ? 1 : 0 )
+              .putInt ( 0 ).putInt ( 0 )
+              .put ( new byte[DIGEST_SIZE] );
+        buffer.asIntBuffer ( ).put ( image.getRGB ( 0, 0, width, height, null, 0, width ) );
+        buffer.rewind ( );
+        return buffer;
+    }
+
+    /**
+     * Decodes raw pixels with a header, written in either byte order
+     *
+     * @param data Encoded image, from its position to its limit; its position and byte order are left unchanged
+     * @return the decoded image, or null if the data is not a valid raw image
+     */
+    static BufferedImage decodeRaw ( ByteBuffer data ) {
+        ByteBuffer buffer = data.slice ( ).order ( ByteOrder.BIG_ENDIAN );
+        if ( buffer.remaining ( ) < HEADER_SIZE )
+            return null;
+        if ( buffer.getInt ( 0 ) != MAGIC )
+            buffer.order ( ByteOrder.LITTLE_ENDIAN );
+        int order = buffer.order ( ) == ByteOrder.BIG_ENDIAN ? 1 : 2;
+        if ( buffer.getInt ( 0 ) != MAGIC || buffer.getInt ( 4 ) != VERSION || buffer.getInt ( 8 ) != order )
+            return null;
+
+        int width = buffer.getInt ( 12 );
+        int height = buffer.getInt ( 16 );
+        boolean hasAlpha = buffer.getInt ( 20 ) != 0;
+        if ( width <= 0 || height <= 0 || buffer.remaining ( ) != HEADER_SIZE + 4L * width * height )
+            return null;
+
+        BufferedImage image = new BufferedImage ( width, height, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB );
+        int[] pixels = ( (DataBufferInt) image.getRaster ( ).getDataBuffer ( ) ).getData ( );
+        buffer.position ( HEADER_SIZE );
+        buffer.asIntBuffer ( ).get ( pixels );
+        return image;
+    }
+
+    /**
+     * Returns the number of images read from the cache
+     *
+     * @return the number of cache hits
+     */
+    public long getHits ( ) {
+        return this.hits.get ( );
+    }
+
+    /**
+     * Returns the number of images that were not found in the cache
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses ( ) {
+        return this.misses.get ( );
+    }
+
+    /**
+     * Returns the file holding the entry for the given resource and digest
+     * Only the start of the digest is used in the name; the whole digest is checked when the entry is read
+     */
+    private Path getFile ( String resource, byte[] digest ) {
+        StringBuilder name = new StringBuilder ( resource.replaceAll ( "[^A-Za-z0-9._-]", "_" ) ).append ( '-' );
+        for ( int i = 0; i < 8 && i < digest.length; i++ )
+            name.append ( String.format ( "%02x", digest[i] ) );
+        return this.directory.resolve ( name.append ( ".argb" ).toString ( ) );
+    }
+
+    /**
+     * Returns a new SHA-256 digest, which every Java platform is required to support
+     */
+    private static MessageDigest createDigest ( ) {
+        try {
+            return MessageDigest.getInstance ( "SHA-256" );
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException ( "SHA-256 is not available", e );
+        }
+    }
+}
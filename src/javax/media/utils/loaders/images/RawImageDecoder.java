@@ -0,0 +1,33 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes images stored as raw pixels, in the format of {@link PixelCache} entries.
+ *
+ * Decoding is a single bulk copy of the pixels into the image raster, so assets that are
+ * converted to this format ahead of time load much faster than PNG, at the cost of being
+ * stored uncompressed. Data in other formats is left to the next decoder.
+ */
+public class RawImageDecoder implements ImageDecoder {
+
+    @Override
+    public BufferedImage decode ( ByteBuffer data ) {
+        return PixelCache.decodeRaw ( data );
+    }
+
+    /**
+     * Writes the given image as raw pixels, so it can be read by this decoder
+     *
+     * @param image Image to write
+     * @param out Stream to write to, which is not closed
+     * @throws IOException if the image could not be written
+     */
+    public static void write ( BufferedImage image, OutputStream out ) throws IOException {
+        ByteBuffer buffer = PixelCache.encodeRaw ( image );
+        out.write ( buffer.array ( ), buffer.arrayOffset ( ), buffer.remaining ( ) );
+    }
+}
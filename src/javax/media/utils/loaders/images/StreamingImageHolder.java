@@ -0,0 +1,169 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A LazyImageHolder for very long sequences, that only keeps a window of decoded images
+ * around the image that was last requested.
+ *
+ * Every request moves the window to the requested image: the images following it are decoded
+ * in the background, and decoded images outside the window are dropped. When the holder is
+ * played by an animator, images are therefore decoded ahead at the playback rate, and at most
+ * the window size plus two images are decoded at any time, however long the sequence is.
+ *
+ * An image that is not decoded yet when the window reaches it counts as an underrun; animators
+ * then keep showing the image they showed last until it is ready.
+ */
+public class StreamingImageHolder extends LazyImageHolder {
+
+    /**
+     * Number of images following the current image to keep decoded
+     */
+    private int window;
+
+    /**
+     * Index of the image the window starts at, or -1 if no image was requested yet
+     */
+    private volatile int position = -1;
+
+    /**
+     * Images that are currently decoded, guarded by the images lock
+     */
+    private BitSet resident = new BitSet ( );
+
+    /**
+     * Index of the last image counted as an underrun, so repeated requests for it count once
+     */
+    private volatile int lastUnderrun = -1;
+
+    private LongAdder underruns = new LongAdder ( );
+
+    /**
+     * Creates a new streaming image holder for the given resources
+     *
+     * @param loader Loader used to decode the images
+     * @param resources Resource names of the images, in order
+     * @param decoder Executor to decode images on in the background, or null to use the common pool
+     * @param window Number of images following the current image to keep decoded, at least 1
+     */
+    public StreamingImageHolder ( ImageLoader loader, String[] resources, Executor decoder, int window ) {
+        super ( loader, resources, decoder, Math.max ( 1, window ) );
+        this.window = Math.max ( 1, window );
+    }
+
+    /**
+     * Returns the number of images following the current image that are kept decoded
+     *
+     * @return the size of the window
+     */
+    public int getWindow ( ) {
+        return this.window;
+    }
+
+    /**
+     * Returns the number of images that were not decoded yet when first requested
+     * Each image counts once per visit of the window, however often it is requested while missing
+     *
+     * @return the number of underruns
+     */
+    public long getUnderruns ( ) {
+        return this.underruns.sum ( );
+    }
+
+    /**
+     * Returns the number of images that are currently decoded
+     *
+     * @return the number of decoded images
+     */
+    public int getResidentCount ( ) {
+        synchronized ( this.images ) {
+            return this.resident.cardinality ( );
+        }
+    }
+
+    /**
+     * Returns the image at the given index, decoding it on the calling thread if necessary
+     * Also moves the window to the given image
+     *
+     * @param image Index of image
+     * @return the image at the given index
+     * @throws IllegalStateException if the image could not be decoded
+     */
+    @Override
+    public BufferedImage getImage ( int image ) {
+        this.moveTo ( image );
+        return super.getImage ( image );
+    }
+
+    /**
+     * Returns the image at the given index if it has already been decoded, or the given fallback
+     * Also moves the window to the given image
+     *
+     * @param image Index of image
+     * @param fallback Image to return if the image at the given index is not decoded yet, or null
+     * @return the image at the given index, the fallback, a nearby decoded image or null
+     * @see LazyImageHolder#getLoadedImage(int, BufferedImage)
+     */
+    @Override
+    public BufferedImage getLoadedImage ( int image, BufferedImage fallback ) {
+        this.moveTo ( image );
+        return super.getLoadedImage ( image, fallback );
+    }
+
+    /**
+     * Decodes the given image, and drops it right away if the window has moved past it meanwhile
+     */
+    @Override
+    protected BufferedImage decode ( int image, boolean requested ) {
+        BufferedImage decoded = super.decode ( image, requested );
+        synchronized ( this.images ) {
+            int position = this.position;
+            if ( position < 0 || this.isInWindow ( image, position ) )
+                this.resident.set ( image );
+            else
+                this.evict ( image );
+        }
+        return decoded;
+    }
+
+    /**
+     * Moves the window to the given image, dropping decoded images outside of it,
+     * and counts an underrun if the image is not decoded
+     *
+     * @param image Index of the requested image
+     */
+    private void moveTo ( int image ) {
+        if ( image != this.position ) {
+            synchronized ( this.images ) {
+                this.position = image;
+                for ( int i = this.resident.nextSetBit ( 0 ); i >= 0; i = this.resident.nextSetBit ( i + 1 ) ) {
+                    if ( !this.isInWindow ( i, image ) ) {
+                        this.evict ( i );
+                        this.resident.clear ( i );
+                    }
+                }
+            }
+        }
+
+        if ( image != this.lastUnderrun && !this.isLoaded ( image ) ) {
+            this.lastUnderrun = image;
+            this.underruns.increment ( );
+        } else if ( image != this.lastUnderrun ) {
+            this.lastUnderrun = -1;
+        }
+    }
+
+    /**
+     * Returns true if the given image is in the window starting at the given position
+     * The image before the position is kept as well, so it can be shown while the current image is decoded.
+     * Since animations usually loop, the window wraps around at the end of the sequence.
+     */
+    private boolean isInWindow ( int image, int position ) {
+        int count = this.countImages ( );
+        int distance = ( ( image - position ) % count + count ) % count;
+        return distance <= this.window || distance == count - 1;
+    }
+}
@@ -0,0 +1,292 @@
+package javax.media.utils.loaders.images;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps scaled, mirrored and rotated copies of holder images, so that drawing
+ * a transformed frame is a plain blit instead of a transform on every draw.
+ *
+ * Variants are built with high quality interpolation the first time they are requested,
+ * and the least recently used variants are dropped once their total size exceeds the budget.
+ * A variant is rebuilt if the image it was built from has been replaced in its holder.
+ */
+public class VariantCache {
+
+    /**
+     * Maximum number of bytes of variants to keep
+     */
+    private long budget;
+
+    /**
+     * Number of bytes of variants currently kept
+     */
+    private long size = 0;
+
+    /**
+     * Variants in least recently used order
+     */
+    private LinkedHashMap<Key, Variant> entries = new LinkedHashMap<Key, Variant> ( 16, 0.75f, true );
+
+    private AtomicLong hits = new AtomicLong ( );
+    private AtomicLong misses = new AtomicLong ( );
+    private AtomicLong evictions = new AtomicLong ( );
+
+    /**
+     * Creates a cache keeping at most the given number of bytes of variants
+     *
+     * @param budget Maximum size of all variants in bytes
+     */
+    public VariantCache ( long budget ) {
+        this.budget = budget;
+    }
+
+    /**
+     * Sets the maximum size of all variants, dropping variants if needed
+     *
+     * @param budget Maximum size of all variants in bytes
+     */
+    public synchronized void setBudget ( long budget ) {
+        this.budget = budget;
+        this.evict ( );
+    }
+
+    public synchronized long getBudget ( ) {
+        return this.budget;
+    }
+
+    /**
+     * Returns the number of bytes of variants currently kept
+     *
+     * @return the size of all variants in bytes
+     */
+    public synchronized long getSize ( ) {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of requests for a variant that was already built
+     *
+     * @return the number of cache hits
+     */
+    public long getHits ( ) {
+        return this.hits.get ( );
+    }
+
+    /**
+     * Returns the number of requests for a variant that had to be built
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses ( ) {
+        return this.misses.get ( );
+    }
+
+    /**
+     * Returns the number of variants dropped to stay within the budget
+     *
+     * @return the number of evicted variants
+     */
+    public long getEvictions ( ) {
+        return this.evictions.get ( );
+    }
+
+    /**
+     * Returns the given image of the given holder scaled, then mirrored horizontally, then rotated
+     * clockwise by the given number of quarter turns, building it if needed.
+     * The untransformed image is returned as is, and never cached.
+     *
+     * @param holder Holder of the image
+     * @param image Index of image
+     * @param scale Scale factor, larger than 0
+     * @param flip True to mirror the image horizontally
+     * @param quarterTurns Number of clockwise quarter turns
+     * @return the transformed image
+     */
+    public BufferedImage get ( ImageHolder holder, int image, double scale, boolean flip, int quarterTurns ) {
+        quarterTurns = ( ( quarterTurns % 4 ) + 4 ) % 4;
+        BufferedImage source = holder.getImage ( image );
+        if ( scale == 1 && !flip && quarterTurns == 0 )
+            return source;
+
+        Key key = new Key ( holder, image, scale, flip, quarterTurns );
+        synchronized ( this ) {
+            Variant variant = this.entries.get ( key );
+            if ( variant != null && variant.source == source ) {
+                this.hits.incrementAndGet ( );
+                return variant.image;
+            }
+        }
+
+        // Build outside the lock, so other variants can be read meanwhile
+        this.misses.incrementAndGet ( );
+        BufferedImage built = VariantCache.transform ( source, scale, flip, quarterTurns );
+        this.put ( key, new Variant ( source, built ) );
+        return built;
+    }
+
+    /**
+     * Builds the given variant of every image of the given holder
+     *
+     * @param holder Holder of the images
+     * @param scale Scale factor, larger than 0
+     * @param flip True to mirror the images horizontally
+     * @param quarterTurns Number of clockwise quarter turns
+     */
+    public void prepare ( ImageHolder holder, double scale, boolean flip, int quarterTurns ) {
+        for ( int i = 0; i < holder.countImages ( ); i++ )
+            this.get ( holder, i, scale, flip, quarterTurns );
+    }
+
+    /**
+     * Drops all variants of the given holder
+     *
+     * @param holder Holder to drop variants of
+     */
+    public synchronized void invalidate ( ImageHolder holder ) {
+        Iterator<Map.Entry<Key, Variant>> it = this.entries.entrySet ( ).iterator ( );
+        while ( it.hasNext ( ) ) {
+            Map.Entry<Key, Variant> entry = it.next ( );
+            if ( entry.getKey ( ).holder == holder ) {
+                this.size -= entry.getValue ( ).bytes;
+                it.remove ( );
+            }
+        }
+    }
+
+    private synchronized void put ( Key key, Variant variant ) {
+        Variant previous = this.entries.put ( key, variant );
+        if ( previous != null )
+            this.size -= previous.bytes;
+        this.size += variant.bytes;
+        this.evict ( );
+    }
+
+    /**
+     * Drops least recently used variants until the cache is within budget
+     */
+    private void evict ( ) {
+        Iterator<Variant> it = this.entries.values ( ).iterator ( );
+        while ( this.size > this.budget && it.hasNext ( ) ) {
+            this.size -= it.next ( ).bytes;
+            it.remove ( );
+            this.evictions.incrementAndGet ( );
+        }
+    }
+
+    /**
+     * Returns the given image scaled, then mirrored horizontally, then rotated clockwise by the given
+     * number of quarter turns.
+     * Variants that are only mirrored or rotated copy pixels exactly; scaled variants are interpolated bicubically.
+     *
+     * @param source Image to transform
+     * @param scale Scale factor, larger than 0
+     * @param flip True to mirror the image horizontally
+     * @param quarterTurns Number of clockwise quarter turns
+     * @return a new, transformed image
+     */
+    public static BufferedImage transform ( BufferedImage source, double scale, boolean flip, int quarterTurns ) {
+        if ( scale <= 0 )
+            throw new IllegalArgumentException ( "Scale must be > 0" );
+        quarterTurns = ( ( quarterTurns % 4 ) + 4 ) % 4;
+
+        int width = Math.max ( 1, (int) Math.round ( source.getWidth ( ) * scale ) );
+        int height = Math.max ( 1, (int) Math.round ( source.getHeight ( ) * scale ) );
+        boolean sideways = ( quarterTurns & 1 ) != 0;
+
+        int type = source.getColorModel ( ).getTransparency ( ) == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE;
+        BufferedImage variant = new BufferedImage ( sideways ? height : width, sideways ? width : height, type );
+
+        // Transforms are applied to the source in reverse order: scale, flip, then rotate about the origin and move back into view
+        AffineTransform transform = new AffineTransform ( );
+        switch ( quarterTurns ) {
+            case 1:
+                transform.translate ( height, 0 );
+                break;
+            case 2:
+                transform.translate ( width, height );
+                break;
+            case 3:
+                transform.translate ( 0, width );
+                break;
+        }
+        transform.quadrantRotate ( quarterTurns );
+        if ( flip ) {
+            transform.translate ( width, 0 );
+            transform.scale ( -1, 1 );
+        }
+        transform.scale ( (double) width / source.getWidth ( ), (double) height / source.getHeight ( ) );
+
+        Graphics2D gc = variant.createGraphics ( );
+        gc.setComposite ( AlphaComposite.Src );
+        if ( width != source.getWidth ( ) || height != source.getHeight ( ) ) {
+            gc.setRenderingHint ( RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC );
+            gc.setRenderingHint ( RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY );
+        } else {
+            gc.setRenderingHint ( RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR );
+        }
+        gc.drawImage ( source, transform, null );
+        gc.dispose ( );
+        return variant;
+    }
+
+    /**
+     * A built variant, and the image it was built from
+     */
+    private static class Variant {
+        private BufferedImage source;
+        private BufferedImage image;
+        private long bytes;
+
+        Variant ( BufferedImage source, BufferedImage image ) {
+            this.source = source;
+            this.image = image;
+            this.bytes = ImageLoader.getImageSize ( image );
+        }
+    }
+
+    /**
+     * Identifies a variant of an image in a holder
+     */
+    private static class Key {
+        private ImageHolder holder;
+        private int image;
+        private double scale;
+        private boolean flip;
+        private int quarterTurns;
+
+        Key ( ImageHolder holder, int image, double scale, boolean flip, int quarterTurns ) {
+            this.holder = holder;
+            this.image = image;
+            this.scale = scale;
+            this.flip = flip;
+            this.quarterTurns = quarterTurns;
+        }
+
+        @Override
+        public boolean equals ( Object o ) {
+            if ( !( o instanceof Key ) )
+                return false;
+            Key other = (Key) o;
+            return this.holder == other.holder && this.image == other.image && this.scale == other.scale
+                    && this.flip == other.flip && this.quarterTurns == other.quarterTurns;
+        }
+
+        @Override
+        public int hashCode ( ) {
+            int hash = System.identityHashCode ( this.holder );
+            hash = 31 * hash + this.image;
+            hash = 31 * hash + Double.hashCode ( this.scale );
+            hash = 31 * hash + ( this.flip ? 1 : 0 );
+            return 31 * hash + this.quarterTurns;
+        }
+    }
+}
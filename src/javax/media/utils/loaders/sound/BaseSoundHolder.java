@@ -1,14 +1,55 @@
 package javax.media.utils.loaders.sound;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import javax.media.utils.loaders.EventDispatcher;
+import javax.media.utils.loaders.InlineEventDispatcher;
+import javax.media.utils.loaders.LatencyHistogram;
 
 /**
  * Implements looping and watchers functionality common to all SoundHolders
  */
 public abstract class BaseSoundHolder implements SoundHolder {
 
-    private Set<SoundWatcher> watchers = new HashSet<SoundWatcher>();
+    private Set<SoundWatcher> watchers = new CopyOnWriteArraySet<SoundWatcher> ( );
+
+    /**
+     * Dispatcher delivering watcher notifications
+     */
+    private EventDispatcher dispatcher = InlineEventDispatcher.INSTANCE;
+
+    /**
+     * Reusable watcher notifications, so that line events do not allocate
+     */
+    private Runnable finishEvent = new Runnable ( ) {
+        @Override
+        public void run ( ) {
+            for ( SoundWatcher watcher : BaseSoundHolder.this.watchers )
+                watcher.sequenceEnded ( BaseSoundHolder.this );
+            BaseSoundHolder.dispatchLatency.record ( System.nanoTime ( ) - BaseSoundHolder.this.finishRaised );
+        }
+    };
+    private Runnable loopEvent = new Runnable ( ) {
+        @Override
+        public void run ( ) {
+            for ( SoundWatcher watcher : BaseSoundHolder.this.watchers )
+                watcher.sequenceLooped ( BaseSoundHolder.this );
+            BaseSoundHolder.dispatchLatency.record ( System.nanoTime ( ) - BaseSoundHolder.this.loopRaised );
+        }
+    };
+
+    /**
+     * System.nanoTime at which each event was last raised
+     * If an event is raised again before it was delivered, only the latest is measured
+     */
+    private volatile long finishRaised;
+    private volatile long loopRaised;
+
+    /**
+     * Time from raising an event until all watchers were notified, for all sounds in this JVM
+     */
+    private static LatencyHistogram dispatchLatency = new LatencyHistogram ( );
 
     protected boolean isLooping = false;
 
@@ -36,14 +77,24 @@ public abstract class BaseSoundHolder implements SoundHolder {
         this.watchers.remove ( watcher );
     }
 
+    /**
+     * Sets the dispatcher used to notify watchers
+     * By default, watchers are notified inline on the audio system's event thread
+     * 
+     * @param dispatcher Dispatcher to deliver notifications, or null to notify inline again
+     */
+    public void setEventDispatcher ( EventDispatcher dispatcher ) {
+        this.dispatcher = dispatcher != null ? dispatcher : InlineEventDispatcher.INSTANCE;
+    }
+
     /**
      * Should be called by the implementing SoundHolder class
      * when the playing audio clip finishes (reaches the end)
      * and is not looped
      */
     protected void onFinish ( ) {
-        for ( SoundWatcher watcher : this.watchers )
-            watcher.sequenceEnded ( this );
+        this.finishRaised = System.nanoTime ( );
+        this.dispatcher.dispatch ( this.finishEvent );
     }
 
     /**
@@ -52,8 +103,18 @@ public abstract class BaseSoundHolder implements SoundHolder {
      * and is looped
      */
     protected void onLoop ( ) {
-        for ( SoundWatcher watcher : this.watchers )
-            watcher.sequenceLooped ( this );
+        this.loopRaised = System.nanoTime ( );
+        this.dispatcher.dispatch ( this.loopEvent );
+    }
+
+    /**
+     * Returns the time from a sound event being raised until all watchers were notified,
+     * for all sounds in this JVM
+     * 
+     * @return the watcher dispatch latency histogram
+     */
+    public static LatencyHistogram getDispatchLatency ( ) {
+        return BaseSoundHolder.dispatchLatency;
     }
 
 }
@@ -2,6 +2,7 @@ package javax.media.utils.loaders.sound;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -23,25 +24,28 @@ public class ClipSoundHolder extends BaseSoundHolder implements SoundHolder, Lin
 
     private Clip clip;
 
+    /**
+     * True while this clip is counted as active
+     */
+    private boolean active = false;
+
+    /**
+     * Number of clips currently playing, and number of clip lines opened, in this JVM
+     */
+    private static LongAdder activeClips = new LongAdder ( );
+    private static LongAdder openLines = new LongAdder ( );
+
+    /**
+     * Loads the given stream into a new clip
+     * If a clip was already loaded, the new clip replaces it, continuing from the same position,
+     * and playing if the old clip was playing
+     */
     @Override
     public void loadStream ( InputStream soundStream ) throws UnsupportedAudioFileException, IOException {
         try {
-            AudioInputStream stream = AudioSystem.getAudioInputStream ( soundStream );
+            AudioInputStream stream = ClipSoundHolder.getPcmStream ( soundStream );
             AudioFormat format = stream.getFormat ( );
 
-            // Make sure output is PCM
-            AudioFormat newFormat =
-                    new AudioFormat ( AudioFormat.Encoding.PCM_SIGNED,
-                            format.getSampleRate ( ),
-                            format.getSampleSizeInBits ( ),
-                            format.getChannels ( ),
-                            format.getFrameSize ( ),
-                            format.getFrameRate ( ),
-                            false );
-            // Convert input stream for output
-            stream = AudioSystem.getAudioInputStream ( newFormat, stream );
-            format = newFormat;
-
             DataLine.Info info = new DataLine.Info ( Clip.class, format );
 
             // If we can't play the file, throw an exception
@@ -49,22 +53,91 @@ public class ClipSoundHolder extends BaseSoundHolder implements SoundHolder, Lin
                 throw new UnsupportedAudioFileException ( "Audio file cannot be converted to PCM for output" );
 
             // Get access to the clip
-            this.clip = (Clip) AudioSystem.getLine ( info );
-            this.clip.addLineListener ( this );
-            this.clip.open ( stream );
+            Clip clip = (Clip) AudioSystem.getLine ( info );
+            clip.open ( stream );
+            ClipSoundHolder.openLines.increment ( );
 
             // Cleanup
             stream.close ( );
+
+            this.swapClip ( clip );
         } catch ( LineUnavailableException e ) {
             throw new IOException ( "No audio line available: " + e.getMessage ( ) );
         }
     }
 
+    /**
+     * Returns the given sound converted to little endian PCM_SIGNED, the format clips are opened with
+     *
+     * @param soundStream The audio file
+     * @return a stream of the converted samples
+     * @throws UnsupportedAudioFileException If the given sound file cannot be read or converted
+     * @throws IOException If the given file could not be read
+     */
+    public static AudioInputStream getPcmStream ( InputStream soundStream ) throws UnsupportedAudioFileException, IOException {
+        AudioInputStream stream = AudioSystem.getAudioInputStream ( soundStream );
+        AudioFormat format = stream.getFormat ( );
+
+        // Make sure output is PCM
+        AudioFormat newFormat =
+                new AudioFormat ( AudioFormat.Encoding.PCM_SIGNED,
+                        format.getSampleRate ( ),
+                        format.getSampleSizeInBits ( ),
+                        format.getChannels ( ),
+                        format.getFrameSize ( ),
+                        format.getFrameRate ( ),
+                        false );
+        // Convert input stream for output
+        return AudioSystem.getAudioInputStream ( newFormat, stream );
+    }
+
+    /**
+     * Replaces the current clip, if any, with the given opened clip
+     */
+    private synchronized void swapClip ( Clip clip ) {
+        Clip previous = this.clip;
+        clip.addLineListener ( this );
+        if ( previous == null ) {
+            this.clip = clip;
+            return;
+        }
+
+        // Stop listening first, so stopping the old clip does not count as finishing
+        previous.removeLineListener ( this );
+        long position = previous.getMicrosecondPosition ( );
+        previous.stop ( );
+        previous.close ( );
+        ClipSoundHolder.openLines.decrement ( );
+
+        this.clip = clip;
+        if ( position < clip.getMicrosecondLength ( ) )
+            clip.setMicrosecondPosition ( position );
+        if ( this.state == State.PLAYING )
+            clip.start ( );
+    }
+
+    /**
+     * Closes the clip of this holder, releasing its audio line
+     * Nothing can be played until a new stream is loaded
+     */
+    public synchronized void close ( ) {
+        if ( this.clip == null )
+            return;
+
+        this.clip.removeLineListener ( this );
+        this.clip.stop ( );
+        this.clip.close ( );
+        ClipSoundHolder.openLines.decrement ( );
+        this.clip = null;
+        this.setActive ( false );
+    }
+
     @Override
     public void play ( ) throws InvalidAudioDataException {
         if ( this.clip == null )
             return;
         this.state = State.PLAYING;
+        this.setActive ( true );
         this.seek ( 0 );
         this.clip.start ( );
     }
@@ -74,6 +147,7 @@ public class ClipSoundHolder extends BaseSoundHolder implements SoundHolder, Lin
         if ( this.clip == null )
             return;
         this.state = State.STOPPED_MANUALLY;
+        this.setActive ( false );
         this.clip.stop ( );
     }
 
@@ -82,6 +156,7 @@ public class ClipSoundHolder extends BaseSoundHolder implements SoundHolder, Lin
         if ( this.clip == null )
             return;
         this.state = State.PAUSED;
+        this.setActive ( false );
         this.clip.stop ( );
     }
 
@@ -90,6 +165,7 @@ public class ClipSoundHolder extends BaseSoundHolder implements SoundHolder, Lin
         if ( this.clip == null )
             return;
         this.state = State.PLAYING;
+        this.setActive ( true );
         this.clip.start ( );
     }
     
@@ -100,6 +176,49 @@ public class ClipSoundHolder extends BaseSoundHolder implements SoundHolder, Lin
         this.clip.setMicrosecondPosition ( position );
     }
 
+    /**
+     * Returns the size of the decoded audio data of this clip in bytes
+     * 
+     * @return the size of the decoded audio data, or 0 if no clip is loaded
+     */
+    public long getDecodedSize ( ) {
+        if ( this.clip == null )
+            return 0;
+        return (long) this.clip.getFrameLength ( ) * this.clip.getFormat ( ).getFrameSize ( );
+    }
+
+    /**
+     * Returns the number of clips currently playing in this JVM
+     * 
+     * @return the number of playing clips
+     */
+    public static long getActiveClips ( ) {
+        return ClipSoundHolder.activeClips.sum ( );
+    }
+
+    /**
+     * Returns the number of clip lines opened in this JVM
+     * 
+     * @return the number of open clip lines
+     */
+    public static long getOpenLines ( ) {
+        return ClipSoundHolder.openLines.sum ( );
+    }
+
+    /**
+     * Counts this clip as playing or not playing
+     * Called both by the user and the audio event thread
+     */
+    private synchronized void setActive ( boolean active ) {
+        if ( this.active == active )
+            return;
+        this.active = active;
+        if ( active )
+            ClipSoundHolder.activeClips.increment ( );
+        else
+            ClipSoundHolder.activeClips.decrement ( );
+    }
+
     @Override
     public void update ( LineEvent event ) {
         if ( this.clip == null )
@@ -116,6 +235,7 @@ public class ClipSoundHolder extends BaseSoundHolder implements SoundHolder, Lin
                 this.clip.start ( );
             } else {
                 this.state = State.FINISHED;
+                this.setActive ( false );
                 this.onFinish ( );
             }
         }
@@ -1,8 +1,12 @@
 package javax.media.utils.loaders.sound;
 
-import java.util.HashMap;
+import java.lang.management.ManagementFactory;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.management.openmbean.KeyAlreadyExistsException;
 import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
@@ -31,11 +35,32 @@ public class MidiLoader {
      */
     private MidiSoundHolder currentMidi;
 
+    /**
+     * System.nanoTime at which this loader was created, and at which currentMidi took the sequencer
+     */
+    private long createdAt = System.nanoTime ( );
+    private long heldSince;
+
+    /**
+     * Total time the sequencer was held by a MIDI, not counting the current MIDI
+     */
+    private LongAdder heldNanos = new LongAdder ( );
+
+    /**
+     * Number of play requests refused because another MIDI held the sequencer
+     */
+    private LongAdder rejectedRequests = new LongAdder ( );
+
+    /**
+     * Name this loader is registered with the platform MBean server under, or null
+     */
+    private ObjectName mbeanName = null;
+
     /**
      * Initialize the MIDI sequencer and data storage
      */
     public MidiLoader ( ) throws MidiUnavailableException {
-        this.midisMap = new HashMap<String, MidiSoundHolder> ( );
+        this.midisMap = new ConcurrentHashMap<String, MidiSoundHolder> ( );
 
         this.sequencer = MidiSystem.getSequencer ( );
         if ( this.sequencer == null )
@@ -63,11 +88,10 @@ public class MidiLoader {
      * @throws KeyAlreadyExistsException
      */
     public SoundHolder getMidiHolder ( String name ) throws KeyAlreadyExistsException {
-        if ( this.midisMap.containsKey ( name ) )
+        MidiSoundHolder holder = new MidiSoundHolder ( this );
+        if ( this.midisMap.putIfAbsent ( name, holder ) != null )
             throw new KeyAlreadyExistsException ( "Sound name " + name + " already exists!" );
-
-        this.midisMap.put ( name, new MidiSoundHolder ( this ) );
-        return this.midisMap.get ( name );
+        return holder;
     }
 
     /**
@@ -88,6 +112,7 @@ public class MidiLoader {
      */
     public void notifyStoppedPlaying ( MidiSoundHolder sound ) {
         if ( this.currentMidi == sound ) {
+            this.heldNanos.add ( System.nanoTime ( ) - this.heldSince );
             this.currentMidi = null;
             this.sequencer.removeMetaEventListener ( sound );
         }
@@ -100,8 +125,12 @@ public class MidiLoader {
      * @return the current sequencer if no other sound is playing
      */
     public Sequencer requestPlay ( MidiSoundHolder sound ) {
-        if ( this.currentMidi != null && this.currentMidi != sound )
+        if ( this.currentMidi != null && this.currentMidi != sound ) {
+            this.rejectedRequests.increment ( );
             return null;
+        }
+        if ( this.currentMidi == null )
+            this.heldSince = System.nanoTime ( );
         this.currentMidi = sound;
         this.sequencer.addMetaEventListener ( sound );
         return this.sequencer;
@@ -119,6 +148,32 @@ public class MidiLoader {
         return this.sequencer;
     }
 
+    /**
+     * Registers an MBean exposing the sequencer occupancy of this loader with the platform MBean server,
+     * under the name javax.media.utils.loaders:type=MidiLoader,name=NAME
+     * 
+     * @param name Name to register the loader under
+     * @throws JMException if the MBean could not be registered, for instance because the name is taken
+     * @see MidiLoaderMXBean
+     */
+    public void registerMBean ( String name ) throws JMException {
+        ObjectName objectName = new ObjectName ( "javax.media.utils.loaders:type=MidiLoader,name=" + ObjectName.quote ( name ) );
+        ManagementFactory.getPlatformMBeanServer ( ).registerMBean ( new Management ( ), objectName );
+        this.mbeanName = objectName;
+    }
+
+    /**
+     * Unregisters the MBean registered by {@link #registerMBean(String)}, if any
+     * 
+     * @throws JMException if the MBean could not be unregistered
+     */
+    public void unregisterMBean ( ) throws JMException {
+        if ( this.mbeanName == null )
+            return;
+        ManagementFactory.getPlatformMBeanServer ( ).unregisterMBean ( this.mbeanName );
+        this.mbeanName = null;
+    }
+
     /**
      * Closes down the sequencer (and any playing sequence).
      */
@@ -135,4 +190,55 @@ public class MidiLoader {
         this.sequencer = null;
     }
 
+    /**
+     * Management view of this loader
+     */
+    private class Management implements MidiLoaderMXBean {
+
+        @Override
+        public int getMidiCount ( ) {
+            return MidiLoader.this.midisMap.size ( );
+        }
+
+        @Override
+        public String getCurrentMidi ( ) {
+            MidiSoundHolder current = MidiLoader.this.currentMidi;
+            if ( current == null )
+                return null;
+            for ( Map.Entry<String, MidiSoundHolder> entry : MidiLoader.this.midisMap.entrySet ( ) )
+                if ( entry.getValue ( ) == current )
+                    return entry.getKey ( );
+            return null;
+        }
+
+        @Override
+        public boolean isSequencerRunning ( ) {
+            Sequencer sequencer = MidiLoader.this.sequencer;
+            return sequencer != null && sequencer.isRunning ( );
+        }
+
+        @Override
+        public long getSequencerHeldMillis ( ) {
+            return this.getHeldNanos ( ) / 1000000L;
+        }
+
+        @Override
+        public double getSequencerOccupancy ( ) {
+            long lifetime = System.nanoTime ( ) - MidiLoader.this.createdAt;
+            return lifetime <= 0 ? 0 : Math.min ( 1.0, (double) this.getHeldNanos ( ) / lifetime );
+        }
+
+        @Override
+        public long getRejectedPlayRequests ( ) {
+            return MidiLoader.this.rejectedRequests.sum ( );
+        }
+
+        private long getHeldNanos ( ) {
+            long held = MidiLoader.this.heldNanos.sum ( );
+            if ( MidiLoader.this.currentMidi != null )
+                held += System.nanoTime ( ) - MidiLoader.this.heldSince;
+            return held;
+        }
+    }
+
 }
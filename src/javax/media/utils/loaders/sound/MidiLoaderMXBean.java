@@ -0,0 +1,51 @@
+package javax.media.utils.loaders.sound;
+
+/**
+ * Management interface of a {@link MidiLoader}
+ *
+ * @see MidiLoader#registerMBean(String)
+ */
+public interface MidiLoaderMXBean {
+
+    /**
+     * Returns the number of MIDI holders in the loader
+     *
+     * @return the number of MIDI holders
+     */
+    public int getMidiCount ( );
+
+    /**
+     * Returns the name of the MIDI currently holding the sequencer, or null if it is free
+     *
+     * @return the name of the MIDI holding the sequencer, or null
+     */
+    public String getCurrentMidi ( );
+
+    /**
+     * Returns true if the sequencer is currently playing
+     *
+     * @return true if the sequencer is playing
+     */
+    public boolean isSequencerRunning ( );
+
+    /**
+     * Returns the total time the sequencer has been held by a MIDI since the loader was created
+     *
+     * @return the time the sequencer was held in ms
+     */
+    public long getSequencerHeldMillis ( );
+
+    /**
+     * Returns the fraction of time the sequencer has been held by a MIDI since the loader was created
+     *
+     * @return sequencer occupancy between 0 and 1
+     */
+    public double getSequencerOccupancy ( );
+
+    /**
+     * Returns the number of requests to play that were refused because another MIDI held the sequencer
+     *
+     * @return the number of refused play requests
+     */
+    public long getRejectedPlayRequests ( );
+}
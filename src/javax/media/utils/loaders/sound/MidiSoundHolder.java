@@ -32,10 +32,35 @@ public class MidiSoundHolder extends BaseSoundHolder implements MetaEventListene
         this.loader = s;
     }
 
+    /**
+     * Loads the given stream as the sequence of this holder
+     * If this holder is currently using the sequencer, the new sequence replaces the old one
+     * at the same position, and keeps playing if the old one was playing
+     */
     @Override
     public void loadStream ( InputStream soundStream ) throws UnsupportedAudioFileException, IOException {
+        Sequence sequence;
         try {
-            this.sequence = MidiSystem.getSequence ( soundStream );
+            sequence = MidiSystem.getSequence ( soundStream );
+        } catch ( InvalidMidiDataException e ) {
+            throw new UnsupportedAudioFileException ( e.getMessage ( ) );
+        }
+
+        Sequencer sequencer = this.sequence != null ? this.loader.requestSequencer ( this ) : null;
+        this.sequence = sequence;
+        if ( sequencer == null )
+            return;
+
+        boolean running = sequencer.isRunning ( );
+        long position = sequencer.getTickPosition ( );
+        try {
+            if ( running )
+                sequencer.stop ( );
+            sequencer.setSequence ( sequence );
+            if ( position < sequence.getTickLength ( ) )
+                sequencer.setTickPosition ( position );
+            if ( running )
+                sequencer.start ( );
         } catch ( InvalidMidiDataException e ) {
             throw new UnsupportedAudioFileException ( e.getMessage ( ) );
         }
@@ -5,12 +5,33 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.HashMap;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.management.openmbean.KeyAlreadyExistsException;
+import javax.media.utils.loaders.AssetBundle;
 import javax.media.utils.loaders.BadConfigurationLineException;
+import javax.media.utils.loaders.LatencyHistogram;
+import javax.media.utils.loaders.LoadScheduler;
+import javax.media.utils.loaders.ResourceWatcher;
 import javax.sound.midi.MidiUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
@@ -26,8 +47,51 @@ public class SoundLoader {
 
     /**
      * We need a separate MIDI Loader since only a single MIDI can play at any given time
+     * Created on first use, see {@link #getMidiLoader()}
      */
-    private MidiLoader midi = null;
+    private volatile MidiLoader midi = null;
+
+    /**
+     * Bundle that sounds are read from, or null to read sounds from the classpath
+     */
+    private AssetBundle bundle = null;
+
+    /**
+     * Time taken to read and decode each sound
+     */
+    private LatencyHistogram loadLatency = new LatencyHistogram ( );
+
+    /**
+     * Name this loader is registered with the platform MBean server under, or null
+     */
+    private ObjectName mbeanName = null;
+
+    /**
+     * Resource every sound was loaded from, by sound name
+     */
+    private Map<String, String> soundResources;
+
+    /**
+     * Watcher reloading changed resources, or null
+     */
+    private ResourceWatcher watcher = null;
+
+    /**
+     * Scheduler loading configuration files in the background, or null until first needed
+     */
+    private LoadScheduler scheduler = null;
+
+    /**
+     * Number of loaders created, and the prefix of the keys of the tasks of this loader in the load scheduler,
+     * so loaders sharing a scheduler never take each other's tasks for their own
+     */
+    private static AtomicInteger loaderCount = new AtomicInteger ( );
+    private String taskPrefix = "sound" + SoundLoader.loaderCount.incrementAndGet ( ) + ":";
+
+    /**
+     * Sounds scheduled to load in the background that are not loaded yet, by name
+     */
+    private Map<String, CompletableFuture<SoundHolder>> pendingSounds = new ConcurrentHashMap<String, CompletableFuture<SoundHolder>> ( );
 
     /**
      * Sets up the current class and parses the given configuration file
@@ -37,14 +101,49 @@ public class SoundLoader {
      */
     public SoundLoader ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
         this ( );
-        loadSoundsFromConfig ( configurationFile );
+        loadSoundsFromConfig ( configurationFile, false );
+    }
+
+    /**
+     * Sets up the current class and loads the sound configuration stored in the given bundle.
+     * All sounds are read from the bundle rather than the classpath.
+     * 
+     * @param bundle Bundle to load sounds from
+     * @throws IOException if the bundle contains no sound configuration, or a sound could not be read
+     * @see #loadSoundsFromConfig(InputStream)
+     */
+    public SoundLoader ( AssetBundle bundle ) throws IOException, BadConfigurationLineException {
+        this ( );
+        this.bundle = bundle;
+
+        InputStream configurationFile = bundle.openStream ( AssetBundle.SOUND_CONFIGURATION );
+        if ( configurationFile == null )
+            throw new IOException ( "Asset bundle contains no sound configuration" );
+        loadSoundsFromConfig ( configurationFile, false );
     }
 
     /**
      * Initializes data structures for storing sounds
      */
     public SoundLoader ( ) {
-        this.soundMap = new HashMap<String, SoundHolder> ( );
+        this.soundMap = new ConcurrentHashMap<String, SoundHolder> ( );
+        this.soundResources = new ConcurrentHashMap<String, String> ( );
+    }
+
+    /**
+     * Loads the sounds of the given configuration file in addition to the sounds already loaded
+     * Safe to call on a background thread while other threads play sounds that are already loaded;
+     * each sound becomes visible through {@link #getHolder(String)} once it is fully loaded.
+     * 
+     * @param configurationFile Configuration file to load sounds from
+     * @return the resources of the sounds that were loaded
+     * @throws IOException if the configuration file could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines,
+     *             or names a sound that is already loaded
+     * @see #loadSoundsFromConfig(InputStream, boolean)
+     */
+    public List<String> loadSoundsFromConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        return this.loadSoundsFromConfig ( configurationFile, false );
     }
 
     /**
@@ -60,86 +159,417 @@ public class SoundLoader {
      * allowing a unified API for different types of sounds
      * 
      * @param configurationFile Path to configuration file
+     * @param onlyNew True to skip sounds that are already loaded
+     * @return the resources of the sounds that were loaded
      * @throws IOException if the configuration file could not be read
      * @throws BadConfigurationLineException if the configuration file contains invalid lines
      */
-    private void loadSoundsFromConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+    private List<String> loadSoundsFromConfig ( InputStream configurationFile, boolean onlyNew ) throws IOException, BadConfigurationLineException {
         System.out.println ( "Reading sound configuration file: " + configurationFile );
 
-        BufferedReader br = new BufferedReader ( new InputStreamReader ( configurationFile ) );
-        String line;
-        int lineNumber = 0;
+        List<String> loaded = new ArrayList<String> ( );
+        for ( ConfigEntry entry : SoundLoader.parseSoundConfig ( configurationFile ) ) {
+            try {
+                if ( this.loadSound ( entry, onlyNew ) )
+                    loaded.add ( entry.name );
+            } catch ( BadConfigurationLineException e ) {
+                // Recatch the exception to add additional debug information
+                e.setLineNumber ( entry.lineNumber );
+                e.setLine ( entry.line );
+                throw e;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Schedules the sounds of the given configuration file to load in the background, and returns right away.
+     * The file itself is read and checked on the calling thread, so invalid lines are reported by this call.
+     * 
+     * Sounds load in order of priority, then in file order, on the threads of the load scheduler.
+     * Each sound becomes available once it is fully loaded; until then {@link #getHolderAsync(String)}
+     * returns a future completing once it is loaded, and {@link #getHolder(String)} loads it right away
+     * on the calling thread instead of waiting for its turn.
+     * 
+     * @param configurationFile Configuration file to load, in the format of {@link #loadSoundsFromConfig(InputStream)}
+     * @param priority Priority of all sounds of the file, higher priorities load first
+     * @param priorities Priorities of individual sounds by name, overriding the given priority, or null
+     * @return a future completing once all sounds of the file are loaded, or exceptionally if any failed to load
+     * @throws IOException if the configuration file could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     * @see #setLoadScheduler(LoadScheduler)
+     * @see LoadScheduler#getProgress()
+     */
+    public CompletableFuture<Void> loadSoundsAsync ( InputStream configurationFile, int priority, Map<String, Integer> priorities )
+            throws IOException, BadConfigurationLineException {
+        System.out.println ( "Scheduling sound configuration file: " + configurationFile );
 
-        while ( ( line = br.readLine ( ) ) != null ) {
-            line = line.trim ( );
-            lineNumber++;
+        // The whole file is checked before anything is scheduled
+        List<ConfigEntry> entries = SoundLoader.parseSoundConfig ( configurationFile );
+        Set<String> indexes = new HashSet<String> ( );
+        for ( ConfigEntry entry : entries ) {
+            if ( this.pendingSounds.containsKey ( entry.index ) || !indexes.add ( entry.index ) ) {
+                BadConfigurationLineException e = new BadConfigurationLineException ( "Sound name " + entry.index + " already scheduled" );
+                e.setLineNumber ( entry.lineNumber );
+                e.setLine ( entry.line );
+                throw e;
+            }
+        }
 
-            // Dummy statement for pretty layout of code
-            if ( line.isEmpty ( ) )
-                continue;
-            else if ( line.startsWith ( "//" ) )
-                continue; // Comment
+        LoadScheduler scheduler = this.getLoadScheduler ( );
+        List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>> ( );
+        for ( final ConfigEntry entry : entries ) {
+            Integer soundPriority = priorities != null ? priorities.get ( entry.index ) : null;
+            CompletableFuture<SoundHolder> future = scheduler.submit ( this.getTaskKey ( entry.index ),
+                    soundPriority != null ? soundPriority : priority, this.getResourceSize ( entry.name ), new Callable<SoundHolder> ( ) {
+                        @Override
+                        public SoundHolder call ( ) throws IOException, BadConfigurationLineException {
+                            SoundLoader.this.loadSound ( entry, false );
+                            return SoundLoader.this.soundMap.get ( entry.index );
+                        }
+                    } );
+
+            // Added after submitting, so removal always follows: whenComplete runs right away if the sound is already loaded
+            this.pendingSounds.put ( entry.index, future );
+            future.whenComplete ( new BiConsumer<SoundHolder, Throwable> ( ) {
+                @Override
+                public void accept ( SoundHolder holder, Throwable error ) {
+                    SoundLoader.this.pendingSounds.remove ( entry.index );
+                    if ( error != null )
+                        System.err.println ( "Failed to load sound " + entry.name + ": " + error.getMessage ( ) );
+                }
+            } );
+            futures.add ( future );
+        }
+        return CompletableFuture.allOf ( futures.toArray ( new CompletableFuture<?>[futures.size ( )] ) );
+    }
+
+    /**
+     * Returns a future completing with the sound holder of the given name once it is loaded
+     * 
+     * @param name Name of the sound
+     * @return a future completing with the holder, or exceptionally if it failed to load or does not exist
+     * @see #loadSoundsAsync(InputStream, int, Map)
+     */
+    public CompletableFuture<SoundHolder> getHolderAsync ( String name ) {
+        // Check pending sounds first, since a sound is added before it stops being pending
+        CompletableFuture<SoundHolder> pending = this.pendingSounds.get ( name );
+        if ( pending != null )
+            return pending;
 
-            // Tokenize and interpret line
-            StringTokenizer tokens = new StringTokenizer ( line );
-            tokens.nextToken ( ); // To skip the first character token
+        SoundHolder holder = this.soundMap.get ( name );
+        if ( holder != null )
+            return CompletableFuture.completedFuture ( holder );
 
-            if ( tokens.countTokens ( ) != 1 )
-                throw new BadConfigurationLineException ( "No filename found for sound" );
+        CompletableFuture<SoundHolder> missing = new CompletableFuture<SoundHolder> ( );
+        missing.completeExceptionally ( new IllegalArgumentException ( "No such sound: " + name ) );
+        return missing;
+    }
 
-            String name = tokens.nextToken ( );
-            InputStream is = this.getClass ( ).getResourceAsStream ( name );
-            if ( is == null )
-                throw new BadConfigurationLineException ( "File for sound " + name + " does not exist or is not readable" );
+    /**
+     * Raises the priority of the sound of the given name, if it is still waiting to be loaded
+     * 
+     * @param name Name of the sound
+     * @param priority New priority, ignored if lower than the current priority
+     * @return true if the sound is still waiting to be loaded
+     */
+    public boolean prioritize ( String name, int priority ) {
+        LoadScheduler scheduler = this.scheduler;
+        return scheduler != null && scheduler.prioritize ( this.getTaskKey ( name ), priority );
+    }
+
+    /**
+     * Sets the scheduler loading configuration files in the background
+     * A scheduler can be shared with an ImageLoader, so progress covers both images and sounds.
+     * 
+     * @param scheduler Scheduler to use for later calls to {@link #loadSoundsAsync(InputStream, int, Map)}
+     */
+    public synchronized void setLoadScheduler ( LoadScheduler scheduler ) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns the scheduler loading configuration files in the background,
+     * creating one with a thread per processor if none was set
+     * 
+     * @return the load scheduler
+     */
+    public synchronized LoadScheduler getLoadScheduler ( ) {
+        if ( this.scheduler == null )
+            this.scheduler = new LoadScheduler ( Runtime.getRuntime ( ).availableProcessors ( ) );
+        return this.scheduler;
+    }
+
+    /**
+     * Returns the key of the sound of the given name in the load scheduler
+     */
+    private String getTaskKey ( String name ) {
+        return this.taskPrefix + name;
+    }
+
+    /**
+     * Returns the size in bytes of the given resource, or 0 if it is not known without reading it
+     */
+    private long getResourceSize ( String resource ) {
+        if ( this.bundle != null ) {
+            ByteBuffer data = this.bundle.get ( resource );
+            return data != null ? data.remaining ( ) : 0;
+        }
+
+        Path file = ResourceWatcher.getResourceFile ( this.getClass ( ), resource );
+        try {
+            return file != null ? Files.size ( file ) : 0;
+        } catch ( IOException e ) {
+            // Reported when the sound is loaded
+            return 0;
+        }
+    }
+
+    /**
+     * Loads the sound of a single configuration line and adds it to this loader once it is fully loaded
+     * 
+     * @param entry Parsed configuration line
+     * @param onlyNew True to skip the sound if it is already loaded
+     * @return true if the sound was loaded, false if it was skipped
+     * @throws IOException if the sound could not be read
+     * @throws BadConfigurationLineException if the sound could not be loaded
+     */
+    private boolean loadSound ( ConfigEntry entry, boolean onlyNew ) throws IOException, BadConfigurationLineException {
+        String name = entry.name;
+        String index = entry.index;
+        if ( onlyNew && this.soundMap.containsKey ( index ) )
+            return false;
+
+        InputStream is = this.bundle != null ? this.bundle.openStream ( name ) : this.getClass ( ).getResourceAsStream ( name );
+        if ( is == null )
+            throw new BadConfigurationLineException ( "File for sound " + name + " does not exist or is not readable" );
+
+        try {
+            SoundHolder s;
+            switch ( entry.command ) {
+                // MIDI file
+                case 'm':
+                    s = this.getMidiLoader ( ).getMidiHolder ( index );
+                    break;
+                // Java Sound Clip API
+                case 'c':
+                    s = new ClipSoundHolder ( );
+                    break;
+                default:
+                    throw new IllegalStateException ( "Unknown sound command " + entry.command );
+            }
+
+            long start = System.nanoTime ( );
+            try {
+                s.loadStream ( is );
+                this.loadLatency.record ( System.nanoTime ( ) - start );
+            } catch ( UnsupportedAudioFileException e ) {
+                throw new BadConfigurationLineException ( "Failed to load audio file: " + e.getMessage ( ) );
+            }
 
-            char ch = Character.toLowerCase ( line.charAt ( 0 ) );
+            // Publish the sound only once it is loaded; another thread may have loaded the same name meanwhile
+            if ( this.soundMap.putIfAbsent ( index, s ) != null ) {
+                // Release the line of the clip that lost; MIDI holders are shared by name and stay open
+                if ( s instanceof ClipSoundHolder )
+                    ( (ClipSoundHolder) s ).close ( );
+                if ( onlyNew )
+                    return false;
+                throw new KeyAlreadyExistsException ( "Sound name " + index + " already exists!" );
+            }
+            this.soundResources.put ( index, name );
+            return true;
+        } catch ( KeyAlreadyExistsException e ) {
+            throw new BadConfigurationLineException ( e.getMessage ( ) );
+        } catch ( MidiUnavailableException e ) {
+            throw new BadConfigurationLineException ( "Midi unavailable: " + e.getMessage ( ) );
+        }
+    }
+
+    /**
+     * Returns the loader of MIDI sounds, creating it on first use
+     * 
+     * @return the MIDI loader
+     * @throws MidiUnavailableException if no sequencer is available
+     */
+    private MidiLoader getMidiLoader ( ) throws MidiUnavailableException {
+        MidiLoader midi = this.midi;
+        if ( midi == null ) {
+            synchronized ( this ) {
+                midi = this.midi;
+                if ( midi == null )
+                    this.midi = midi = new MidiLoader ( );
+            }
+        }
+        return midi;
+    }
+
+    /**
+     * Loads the sounds of the given configuration file that are not loaded yet
+     * 
+     * @param configurationFile Configuration file to load new sounds from
+     * @return the resources of the newly loaded sounds
+     * @throws IOException if the configuration file could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     */
+    public List<String> reloadConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        return this.loadSoundsFromConfig ( configurationFile, true );
+    }
+
+    /**
+     * Reads the given resource again into every sound loaded from it.
+     * Playing sounds continue with the new data from the same position.
+     * 
+     * @param resource Name of the changed resource
+     * @throws IOException if the resource could not be read
+     * @throws UnsupportedAudioFileException if the resource is no longer a supported sound
+     */
+    public void reloadResource ( String resource ) throws IOException, UnsupportedAudioFileException {
+        for ( Map.Entry<String, String> entry : new ArrayList<Map.Entry<String, String>> ( this.soundResources.entrySet ( ) ) ) {
+            if ( !entry.getValue ( ).equals ( resource ) )
+                continue;
+
+            InputStream is = this.bundle != null ? this.bundle.openStream ( resource ) : this.getClass ( ).getResourceAsStream ( resource );
+            if ( is == null )
+                throw new IOException ( "File for sound " + resource + " does not exist or is not readable" );
             try {
-                try {
-                    SoundHolder s;
-                    switch ( ch ) {
-                        // MIDI file
-                        case 'm':
-                            if ( this.midi == null )
-                                this.midi = new MidiLoader ( );
-                            s = this.midi.getMidiHolder ( SoundLoader.getResourceIndex ( name ) );
-                            break;
-                        // Java Sound Clip API
-                        case 'c':
-                            s = new ClipSoundHolder ( );
-                            break;
-                        default:
-                            throw new BadConfigurationLineException ( "No sound load command found! First character should be m or c" );
+                this.soundMap.get ( entry.getKey ( ) ).loadStream ( is );
+            } finally {
+                is.close ( );
+            }
+        }
+    }
+
+    /**
+     * Starts watching the resources of all loaded sounds, and the given configuration file, for changes.
+     * Changed resources are reloaded with {@link #reloadResource(String)}, and a changed configuration file
+     * with {@link #reloadConfig(InputStream)}, on the watcher thread.
+     * 
+     * Resources are watched where the class loader finds them, so only resources in directories
+     * on the classpath can be watched; resources inside jars or asset bundles are skipped.
+     * 
+     * @param configurationFile Configuration file to watch, or null
+     * @param debounce Time in ms a file must be left alone before it is reloaded
+     * @return the watcher, which should be closed when no longer needed
+     * @throws IOException if the file system cannot be watched
+     */
+    public synchronized ResourceWatcher watch ( Path configurationFile, long debounce ) throws IOException {
+        if ( this.watcher != null )
+            throw new IllegalStateException ( "Sound loader is already being watched" );
+
+        this.watcher = new ResourceWatcher ( debounce, "Sound", this.bundle == null ? this.getClass ( ) : null, configurationFile,
+                new ResourceWatcher.Reloader ( ) {
+                    @Override
+                    public List<String> reloadConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+                        return SoundLoader.this.reloadConfig ( configurationFile );
                     }
 
-                    try {
-                        s.loadStream ( is );
-                        this.soundMap.put ( SoundLoader.getResourceIndex ( name ), s );
-                    } catch ( UnsupportedAudioFileException e ) {
-                        throw new BadConfigurationLineException ( "Failed to load audio file: " + e.getMessage ( ) );
+                    @Override
+                    public void reloadResource ( String resource ) throws IOException {
+                        try {
+                            SoundLoader.this.reloadResource ( resource );
+                        } catch ( UnsupportedAudioFileException e ) {
+                            throw new IOException ( e.getMessage ( ), e );
+                        }
                     }
-                } catch ( KeyAlreadyExistsException e ) {
-                    throw new BadConfigurationLineException ( e.getMessage ( ) );
-                } catch ( MidiUnavailableException e ) {
-                    throw new BadConfigurationLineException ( "Midi unavailable: " + e.getMessage ( ) );
+                } );
+        this.watcher.watchResources ( new ArrayList<String> ( this.soundResources.values ( ) ) );
+        return this.watcher;
+    }
+
+    /**
+     * Returns the names of all sound files referred to by the given configuration file
+     * 
+     * @param configurationFile Configuration file to parse
+     * @return the sound files referred to by the configuration file, in order
+     * @throws IOException if the configuration file could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     * @see #loadSoundsFromConfig(InputStream)
+     */
+    public static List<String> getConfigResources ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        List<String> resources = new ArrayList<String> ( );
+        for ( ConfigEntry entry : SoundLoader.parseSoundConfig ( configurationFile ) )
+            resources.add ( entry.name );
+        return resources;
+    }
+
+    /**
+     * Parses every line of the given configuration file without loading any sounds
+     * 
+     * @param configurationFile Configuration file to parse, which is closed afterwards
+     * @return the entries of the configuration file in order
+     * @throws IOException if the configuration file could not be read
+     * @throws BadConfigurationLineException if the configuration file contains invalid lines
+     * @see #loadSoundsFromConfig(InputStream)
+     */
+    private static List<ConfigEntry> parseSoundConfig ( InputStream configurationFile ) throws IOException, BadConfigurationLineException {
+        BufferedReader br = new BufferedReader ( new InputStreamReader ( configurationFile ) );
+        List<ConfigEntry> entries = new ArrayList<ConfigEntry> ( );
+        String line;
+        int lineNumber = 0;
+
+        try {
+            while ( ( line = br.readLine ( ) ) != null ) {
+                line = line.trim ( );
+                lineNumber++;
+
+                if ( line.isEmpty ( ) || line.startsWith ( "//" ) )
+                    continue; // Comment
+
+                // Tokenize and interpret line
+                StringTokenizer tokens = new StringTokenizer ( line );
+                tokens.nextToken ( ); // To skip the first character token
+
+                BadConfigurationLineException e = null;
+                char command = Character.toLowerCase ( line.charAt ( 0 ) );
+                if ( tokens.countTokens ( ) != 1 )
+                    e = new BadConfigurationLineException ( "No filename found for sound" );
+                else if ( command != 'm' && command != 'c' )
+                    e = new BadConfigurationLineException ( "No sound load command found! First character should be m or c" );
+
+                if ( e != null ) {
+                    e.setLineNumber ( lineNumber );
+                    e.setLine ( line );
+                    throw e;
                 }
-            } catch ( BadConfigurationLineException e ) {
-                // Recatch the exception to add additional debug information
-                e.setLineNumber ( lineNumber );
-                e.setLine ( line );
-                throw e;
+
+                ConfigEntry entry = new ConfigEntry ( );
+                entry.lineNumber = lineNumber;
+                entry.line = line;
+                entry.command = command;
+                entry.name = tokens.nextToken ( );
+                entry.index = SoundLoader.getResourceIndex ( entry.name );
+                entries.add ( entry );
             }
+        } finally {
+            br.close ( );
         }
-        br.close ( );
+        return entries;
     }
 
     /**
      * Returns the sound holder associated with the given name
      * 
+     * If the sound is scheduled to load in the background but not loaded yet, it is loaded
+     * on the calling thread, or waited for if it is already loading
+     * 
      * @param name Name of the holder to retrieve
-     * @return The holder associated with the given name
+     * @return The holder associated with the given name, or null if there is none or it failed to load
      */
     public SoundHolder getHolder ( String name ) {
-        return this.soundMap.get ( name );
+        SoundHolder holder = this.soundMap.get ( name );
+        if ( holder != null )
+            return holder;
+
+        // Load sounds that are still waiting for their turn right away
+        CompletableFuture<SoundHolder> pending = this.pendingSounds.get ( name );
+        if ( pending == null )
+            return this.soundMap.get ( name );
+        this.getLoadScheduler ( ).expedite ( this.getTaskKey ( name ) );
+        try {
+            return pending.join ( );
+        } catch ( CompletionException | CancellationException e ) {
+            return null;
+        }
     }
 
     /**
@@ -152,6 +582,49 @@ public class SoundLoader {
         return this.soundMap.containsKey ( name );
     }
 
+    /**
+     * Returns the time taken to read and decode each sound
+     * 
+     * @return the sound load latency histogram
+     */
+    public LatencyHistogram getLoadLatency ( ) {
+        return this.loadLatency;
+    }
+
+    /**
+     * Registers an MBean exposing the holders and metrics of this loader with the platform MBean server,
+     * under the name javax.media.utils.loaders:type=SoundLoader,name=NAME
+     * If MIDI files have been loaded, the MIDI loader is registered under the same name as well
+     * 
+     * @param name Name to register the loader under
+     * @throws JMException if the MBean could not be registered, for instance because the name is taken
+     * @see SoundLoaderMXBean
+     * @see MidiLoader#registerMBean(String)
+     */
+    public void registerMBean ( String name ) throws JMException {
+        ObjectName objectName = new ObjectName ( "javax.media.utils.loaders:type=SoundLoader,name=" + ObjectName.quote ( name ) );
+        ManagementFactory.getPlatformMBeanServer ( ).registerMBean ( new Management ( ), objectName );
+        this.mbeanName = objectName;
+
+        if ( this.midi != null )
+            this.midi.registerMBean ( name );
+    }
+
+    /**
+     * Unregisters the MBeans registered by {@link #registerMBean(String)}, if any
+     * 
+     * @throws JMException if an MBean could not be unregistered
+     */
+    public void unregisterMBean ( ) throws JMException {
+        if ( this.mbeanName == null )
+            return;
+        ManagementFactory.getPlatformMBeanServer ( ).unregisterMBean ( this.mbeanName );
+        this.mbeanName = null;
+
+        if ( this.midi != null )
+            this.midi.unregisterMBean ( );
+    }
+
     /**
      * Returns an appropriate name for the given resource
      * 
@@ -165,4 +638,63 @@ public class SoundLoader {
             return f.getName ( ).substring ( 0, index );
         return "";
     }
+
+    /**
+     * A single parsed line of a sound configuration file
+     */
+    private static class ConfigEntry {
+        int lineNumber;
+        String line;
+
+        /**
+         * Lower case command, m for MIDI files or c for clips
+         */
+        char command;
+
+        /**
+         * Resource name of the sound, and the sound name derived from it
+         */
+        String name;
+        String index;
+    }
+
+    /**
+     * Management view of this loader
+     */
+    private class Management implements SoundLoaderMXBean {
+
+        @Override
+        public int getHolderCount ( ) {
+            return SoundLoader.this.soundMap.size ( );
+        }
+
+        @Override
+        public Map<String, Long> getDecodedBytes ( ) {
+            Map<String, Long> bytes = new LinkedHashMap<String, Long> ( );
+            for ( Map.Entry<String, SoundHolder> entry : SoundLoader.this.soundMap.entrySet ( ) )
+                if ( entry.getValue ( ) instanceof ClipSoundHolder )
+                    bytes.put ( entry.getKey ( ), ( (ClipSoundHolder) entry.getValue ( ) ).getDecodedSize ( ) );
+            return bytes;
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getLoadLatency ( ) {
+            return SoundLoader.this.loadLatency.getSnapshot ( );
+        }
+
+        @Override
+        public long getActiveClips ( ) {
+            return ClipSoundHolder.getActiveClips ( );
+        }
+
+        @Override
+        public long getOpenLines ( ) {
+            return ClipSoundHolder.getOpenLines ( );
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getDispatchLatency ( ) {
+            return BaseSoundHolder.getDispatchLatency ( ).getSnapshot ( );
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package javax.media.utils.loaders.sound;
+
+import java.util.Map;
+
+import javax.media.utils.loaders.LatencyHistogram;
+
+/**
+ * Management interface of a {@link SoundLoader}
+ *
+ * @see SoundLoader#registerMBean(String)
+ */
+public interface SoundLoaderMXBean {
+
+    /**
+     * Returns the number of holders in the loader
+     *
+     * @return the number of holders
+     */
+    public int getHolderCount ( );
+
+    /**
+     * Returns the number of bytes of decoded audio held by each clip
+     * MIDI holders are not included, since their sequences are not decoded to audio
+     *
+     * @return decoded bytes by clip name
+     */
+    public Map<String, Long> getDecodedBytes ( );
+
+    /**
+     * Returns the time taken to read and decode each sound
+     *
+     * @return sound load latencies
+     */
+    public LatencyHistogram.Snapshot getLoadLatency ( );
+
+    /**
+     * Returns the number of clips playing in this JVM
+     *
+     * @return the number of playing clips
+     * @see ClipSoundHolder#getActiveClips()
+     */
+    public long getActiveClips ( );
+
+    /**
+     * Returns the number of clip lines opened in this JVM
+     *
+     * @return the number of open clip lines
+     * @see ClipSoundHolder#getOpenLines()
+     */
+    public long getOpenLines ( );
+
+    /**
+     * Returns the time from a sound event being raised until all watchers of a sound were notified
+     *
+     * @return watcher dispatch latencies
+     * @see BaseSoundHolder#getDispatchLatency()
+     */
+    public LatencyHistogram.Snapshot getDispatchLatency ( );
+}